@@ -16,25 +16,39 @@ import com.basetools.api.ICallService;
 import com.basetools.constant.InviteType;
 import com.basetools.constant.RoomType;
 import com.basetools.listener.CheckCallPluginVersionListener;
+import com.basetools.listener.SignalingListener;
 import com.basetools.model.BaseResult;
 import com.basetools.model.CreateChannelRequest;
 import com.basetools.model.CreateChannelResult;
 import com.basetools.model.GiveGiftRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
 import com.basetools.model.HeartBeatRequest;
 import com.basetools.model.HeartBeatResult;
 import com.basetools.model.HeartBeatResult2;
 import com.basetools.model.JoinChannelRequest;
 import com.basetools.model.JoinChannelResult;
 import com.basetools.model.LeaveChannelRequest;
+import com.basetools.model.RandomRoomData;
 import com.basetools.model.RandomRoomRequest;
 import com.basetools.model.RandomRoomResult;
 import com.basetools.model.RefuseRequest;
 import com.basetools.model.UpdatePackageRequest;
 import com.basetools.model.UpdatePackageResult;
 import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiClient;
 import com.basetools.net.core.ApiException;
 import com.basetools.net.core.ApiObserver;
+import com.basetools.net.core.Hedging;
+import com.basetools.net.core.LatencyProber;
+import com.basetools.net.gift.GiftAssetPrefetcher;
+import com.basetools.net.gift.GiftCatalog;
+import com.basetools.net.heartbeat.HeartbeatBatcher;
+import com.basetools.net.heartbeat.HeartbeatEngine;
+import com.basetools.net.heartbeat.HeartbeatIntervalPolicy;
+import com.basetools.net.outbox.Outbox;
 import com.basetools.net.repository.CallRepository;
+import com.basetools.net.signaling.SignalingClient;
 import com.basetools.task.AbstractCreateChannelFailureTask;
 import com.basetools.task.AbstractCreateChannelSuccessTask;
 import com.basetools.task.AbstractHeartbeatFailureTask;
@@ -43,12 +57,19 @@ import com.basetools.task.AbstractJoinChannelFailureTask;
 import com.basetools.task.AbstractJoinChannelSuccessTask;
 import com.basetools.task.AbstractRandomMatchFailureTask;
 import com.basetools.task.AbstractRandomMatchSuccessTask;
+import com.basetools.task.HeartbeatRoom;
 import com.basetools.task.IBaseTask;
 import com.basetools.util.Timber;
 
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 1V1通话CallActivity启动工具
@@ -63,6 +84,10 @@ public class CallKit {
      * 海外音视频通话模块包名：io.agora.opensource
      */
     private static final String GLOBAL_PACKAGE_NAME = "aW8uYWdvcmEub3BlbnNvdXJjZQ==";
+    /**
+     * 多房间心跳的合并等待时间
+     */
+    private static final long HEARTBEAT_BATCH_WINDOW_MILLIS = 200;
     /**
      * 应用实例
      */
@@ -75,6 +100,23 @@ public class CallKit {
      * 公开业务api接口
      */
     private static ICallService mCallService;
+    /**
+     * 信令推送回调
+     */
+    private static volatile SignalingListener mSignalingListener;
+    /**
+     * 前台时定期探测各域名延迟
+     */
+    private static LatencyProber mLatencyProber;
+    /**
+     * 通话中的心跳间隔策略：channelId -> 策略
+     */
+    private static final ConcurrentHashMap<String, HeartbeatIntervalPolicy> mHeartbeatPolicies = new ConcurrentHashMap<>();
+    /**
+     * 多房间模式下合并 {@link #startHeartBeat} 启动的各房间心跳
+     */
+    private static final HeartbeatBatcher<PendingHeartbeat> mHeartbeatBatcher =
+            new HeartbeatBatcher<>(HEARTBEAT_BATCH_WINDOW_MILLIS, heartbeats -> getInstance().sendHeartbeats(heartbeats));
 
     private static class SingletonHolder {
         private static final CallKit sInstance = new CallKit();
@@ -97,6 +139,7 @@ public class CallKit {
         Timber.setDebugEnable(config.isDebugEnable());
         mApp = application;
         mCallConfig = config;
+        Hedging.setBudgetPercent(config.getHedgeBudgetPercent());
         boolean isMainProcess = application.getApplicationContext().getPackageName().equals(getCurrentProcessName(application));
         // 只有在主进程时初始化相应数据
         if (isMainProcess) {
@@ -116,9 +159,15 @@ public class CallKit {
             } catch (Exception e) {
                 e.printStackTrace();
             }
+            initOutbox(application);
+            initSignaling();
+            initGiftCatalog();
         } else {
             Timber.e("This process is not main process, init failure!");
         }
+        initDns(application);
+        preconnect();
+        initLatencyProber(application);
     }
 
     /**
@@ -131,7 +180,121 @@ public class CallKit {
         Timber.setDebugEnable(config.isDebugEnable());
         mApp = application;
         mCallConfig = config;
+        Hedging.setBudgetPercent(config.getHedgeBudgetPercent());
         Timber.d("initForRePlugin success.");
+        initOutbox(application);
+        initSignaling();
+        initGiftCatalog();
+        initDns(application);
+        preconnect();
+        initLatencyProber(application);
+    }
+
+    /**
+     * 网络切换时清空DNS缓存，所有进程都需要
+     */
+    private static void initDns(Application application) {
+        try {
+            ApiClient.getDns().registerNetworkReceiver(application);
+        } catch (Exception e) {
+            Timber.e(e, "init dns exception：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 前台时定期重新预连接，使多域名路由的延迟数据跟随网络变化
+     */
+    private static void initLatencyProber(Application application) {
+        try {
+            synchronized (CallKit.class) {
+                if (mLatencyProber == null) {
+                    mLatencyProber = new LatencyProber(ApiClient.getExecutors().getTimer(),
+                            LatencyProber.DEFAULT_INTERVAL_MILLIS, CallKit::preconnect);
+                }
+            }
+            mLatencyProber.register(application);
+        } catch (Exception e) {
+            Timber.e(e, "init latency prober exception：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 初始化发件箱，补发上次进程被杀或断网时未完成的离开、拒绝请求
+     */
+    private static void initOutbox(Application application) {
+        try {
+            Outbox.getInstance().init(application);
+        } catch (Exception e) {
+            Timber.e(e, "init outbox exception：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 加载本地礼物目录并后台增量同步，开启预下载时同步后下载礼物素材
+     */
+    private static void initGiftCatalog() {
+        try {
+            GiftCatalog.getInstance().init();
+            if (mCallConfig.isGiftPrefetchEnable()) {
+                GiftAssetPrefetcher.getInstance().init();
+            }
+        } catch (Exception e) {
+            Timber.e(e, "init gift catalog exception：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 配置了信令地址时建立长连接，推送的余额变化同步到 {@link ICallService#updateDiamondBalance(int)}
+     */
+    private static void initSignaling() {
+        try {
+            SignalingClient.getInstance().setListener(new SignalingListener() {
+                @Override
+                public void onBalanceChanged(int diamondNum) {
+                    getInstance().getICallService().updateDiamondBalance(diamondNum);
+                    final SignalingListener listener = mSignalingListener;
+                    if (listener != null) {
+                        listener.onBalanceChanged(diamondNum);
+                    }
+                }
+
+                @Override
+                public void onRandomMatched(RandomRoomData data) {
+                    final SignalingListener listener = mSignalingListener;
+                    if (listener != null) {
+                        listener.onRandomMatched(data);
+                    }
+                }
+            });
+            SignalingClient.getInstance().connect(mCallConfig.getSignalingUrl());
+        } catch (Exception e) {
+            Timber.e(e, "init signaling exception：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 设置信令推送回调（需配置 {@link CallConfig.Builder#setSignalingUrl(String)}）
+     *
+     * @param listener 回调，null 取消
+     */
+    public static void setSignalingListener(SignalingListener listener) {
+        mSignalingListener = listener;
+    }
+
+    /**
+     * 预连接服务端（含备用域名），使首次createChannel/joinChannel复用已建立的连接
+     */
+    public static void preconnect() {
+        if (mCallConfig == null) {
+            return;
+        }
+        try {
+            for (String baseUrl : mCallConfig.getBaseUrls()) {
+                ApiClient.getInstance().preconnect(baseUrl);
+            }
+        } catch (Exception e) {
+            Timber.e(e, "preconnect exception：" + e.getMessage());
+        }
     }
 
     public Application getApplication() {
@@ -142,6 +305,10 @@ public class CallKit {
         return mApp.getApplicationContext();
     }
 
+    public CallConfig getCallConfig() {
+        return mCallConfig;
+    }
+
     public boolean isDebugEnable() {
         return mCallConfig != null && mCallConfig.isDebugEnable();
     }
@@ -201,6 +368,9 @@ public class CallKit {
      */
     public static Intent createCallIntentForGlobalModule(Context context, long channelId, @RoomType int callType, long remoteUid,
                                                          @NonNull String remoteNickname, @NonNull String remoteAvatar, @InviteType int inviteCallType, Serializable ext) {
+        if (inviteCallType == InviteType.RECEIVED_INVITE) {
+            preconnect();
+        }
         Intent intent = new Intent();
         intent.putExtra("roomId", channelId);
         intent.putExtra("roomType", callType);
@@ -228,6 +398,9 @@ public class CallKit {
      */
     public static Intent createCallIntentForModule(Context context, long channelId, @RoomType int callType, long remoteUid,
                                                    @NonNull String remoteNickname, @NonNull String remoteAvatar, @InviteType int inviteCallType, Serializable ext) {
+        if (inviteCallType == InviteType.RECEIVED_INVITE) {
+            preconnect();
+        }
         Intent intent = new Intent();
         intent.putExtra("roomId", channelId);
         intent.putExtra("roomType", callType);
@@ -254,6 +427,9 @@ public class CallKit {
      */
     public static Intent createCallIntentForPlugin(long channelId, @RoomType int callType, long remoteUid,
                                                    @NonNull String remoteNickname, @NonNull String remoteAvatar, @InviteType int inviteCallType, Serializable ext) {
+        if (inviteCallType == InviteType.RECEIVED_INVITE) {
+            preconnect();
+        }
         Intent intent = new Intent();
         intent.putExtra("roomId", channelId);
         intent.putExtra("roomType", callType);
@@ -479,6 +655,8 @@ public class CallKit {
 
             @Override
             public void onNext(JoinChannelResult joinChannelResult) {
+                // 通话期间暂停礼物素材预下载，与离开、拒绝、心跳停止时的恢复对应
+                pauseGiftPrefetch(channelId);
                 if (okTask != null) {
                     String token = "";
                     if (joinChannelResult.getData() != null) {
@@ -510,10 +688,18 @@ public class CallKit {
      */
     public void leaveChannel(String channelId, Serializable ext, IBaseTask okTask, IBaseTask errorTask) {
         Timber.d("leaveChannel >>> channelId:" + channelId + " | ext:" + ext);
+        if (channelId != null) {
+            HeartbeatEngine.getInstance().stop(channelId);
+            mHeartbeatPolicies.remove(channelId);
+            resumeGiftPrefetch(channelId);
+        }
         CallRepository.getInstance().leaveChannel(new LeaveChannelRequest(channelId), new ApiObserver<BaseResult>() {
             @Override
             public void onNext(BaseResult baseResult) {
                 super.onNext(baseResult);
+                if (okTask != null) {
+                    okTask.run();
+                }
             }
 
             @Override
@@ -538,6 +724,114 @@ public class CallKit {
      */
     public void heartBeat(String channelId, long chatId, int loginFeeType, Serializable ext, AbstractHeartbeatSuccessTask okTask, AbstractHeartbeatFailureTask errorTask) {
         Timber.d("heartBeat >>> channelId:" + channelId + " | chatId:" + chatId + " | loginFeeType:" + loginFeeType + " | ext:" + ext);
+        sendHeartbeat(channelId, chatId, loginFeeType, okTask, null, errorTask);
+    }
+
+    /**
+     * 启动心跳：立即发出一次，之后由SDK按计费分钟定时发出，网络错误时在宽限期内快速重试，仍失败才执行 errorTask
+     * </br>
+     * 同一频道重复调用只替换参数（如通话接通后 loginFeeType 改为 1），不会产生多个定时器；
+     * 离开频道、拒绝通话时自动停止
+     *
+     * @param channelId    频道ID
+     * @param chatId       消息ID
+     * @param loginFeeType 是否已建立通话 0 否 1 是
+     * @param ext          扩展参数
+     * @param okTask       每次心跳成功后需要执行的任务
+     * @param errorTask    心跳最终失败后执行的任务，此时心跳已停止
+     */
+    public void startHeartBeat(String channelId, long chatId, int loginFeeType, Serializable ext, AbstractHeartbeatSuccessTask okTask, AbstractHeartbeatFailureTask errorTask) {
+        startHeartBeat(channelId, chatId, loginFeeType, 0, ext, okTask, errorTask);
+    }
+
+    /**
+     * 按指定间隔启动心跳，其余同 {@link #startHeartBeat(String, long, int, Serializable, AbstractHeartbeatSuccessTask, AbstractHeartbeatFailureTask)}
+     * </br>
+     * 指定间隔后按该间隔定时发出，不再按计费分钟对齐，也不采用服务端下发的间隔（okTask 的 onNextInterval 仍为计费策略的建议值）
+     *
+     * @param channelId      频道ID
+     * @param chatId         消息ID
+     * @param loginFeeType   是否已建立通话 0 否 1 是
+     * @param intervalMillis 心跳间隔（毫秒），0 表示按计费策略
+     * @param ext            扩展参数
+     * @param okTask         每次心跳成功后需要执行的任务
+     * @param errorTask      心跳最终失败后执行的任务，此时心跳已停止
+     */
+    public void startHeartBeat(String channelId, long chatId, int loginFeeType, long intervalMillis, Serializable ext, AbstractHeartbeatSuccessTask okTask, AbstractHeartbeatFailureTask errorTask) {
+        Timber.d("startHeartBeat >>> channelId:" + channelId + " | chatId:" + chatId + " | loginFeeType:" + loginFeeType + " | interval:" + intervalMillis + " | ext:" + ext);
+        HeartbeatEngine.getInstance().start(channelId, intervalMillis, new HeartbeatEngine.Beat() {
+            @Override
+            public void send(HeartbeatEngine.Callback callback) {
+                if (mCallConfig != null && mCallConfig.isMultiRoomHeartbeatEnable()) {
+                    mHeartbeatBatcher.add(new PendingHeartbeat(
+                            new HeartbeatRoom(channelId, chatId, loginFeeType, ext, okTask, errorTask), callback));
+                } else {
+                    sendHeartbeat(channelId, chatId, loginFeeType, okTask, callback, null);
+                }
+            }
+
+            @Override
+            public void onGiveUp(Throwable e, String msg) {
+                // 心跳已停止，通话随之结束
+                resumeGiftPrefetch(channelId);
+                Toast.makeText(getContext(), msg + "", Toast.LENGTH_SHORT).show();
+                if (errorTask != null) {
+                    errorTask.run();
+                }
+            }
+        });
+    }
+
+    /**
+     * 多房间心跳（需服务端支持）：同时持有多个房间时一次请求发出所有房间的心跳，结果分别交给各房间的任务
+     *
+     * @param rooms 各房间的参数及任务
+     */
+    public void heartBeat(List<HeartbeatRoom> rooms) {
+        Timber.d("heartBeat >>> rooms:" + rooms);
+        final List<PendingHeartbeat> heartbeats = new ArrayList<>(rooms.size());
+        for (HeartbeatRoom room : rooms) {
+            heartbeats.add(new PendingHeartbeat(room, null));
+        }
+        sendHeartbeats(heartbeats);
+    }
+
+    /**
+     * 停止 {@link #startHeartBeat} 启动的心跳
+     *
+     * @param channelId 频道ID
+     */
+    public void stopHeartBeat(String channelId) {
+        HeartbeatEngine.getInstance().stop(channelId);
+        resumeGiftPrefetch(channelId);
+    }
+
+    /**
+     * 通话开始，暂停礼物素材预下载；未开启预下载时不做处理
+     */
+    private static void pauseGiftPrefetch(String channelId) {
+        if (channelId != null && mCallConfig != null && mCallConfig.isGiftPrefetchEnable()) {
+            GiftAssetPrefetcher.getInstance().onCallStarted(channelId);
+        }
+    }
+
+    /**
+     * 通话结束（离开、拒绝、停止心跳或心跳最终失败），恢复礼物素材预下载；重复调用无影响
+     */
+    private static void resumeGiftPrefetch(String channelId) {
+        if (channelId != null && mCallConfig != null && mCallConfig.isGiftPrefetchEnable()) {
+            GiftAssetPrefetcher.getInstance().onCallEnded(channelId);
+        }
+    }
+
+    /**
+     * 发出一次心跳
+     *
+     * @param callback 由心跳引擎发出时不为空，失败时交给引擎处理，不执行 errorTask
+     */
+    private void sendHeartbeat(String channelId, long chatId, int loginFeeType, AbstractHeartbeatSuccessTask okTask,
+                               HeartbeatEngine.Callback callback, AbstractHeartbeatFailureTask errorTask) {
+        final long sentAt = elapsedMillis();
         if (mCallConfig != null && mCallConfig.isFixHeartbeatApi()) {
             CallRepository.getInstance().heartbeatV2(new HeartBeatRequest(channelId, String.valueOf(chatId), loginFeeType), new ApiObserver<HeartBeatResult2>() {
                 @Override
@@ -548,14 +842,17 @@ public class CallKit {
                     if (okTask != null) {
                         okTask.run(heartBeatResult.getData().getDiamondNum(), heartBeatResult.getExt());
                     }
+                    final HeartBeatResult2.Data data = heartBeatResult.getData();
+                    final long nextDelay = onHeartbeatResult(channelId, loginFeeType, sentAt, data.getDiamondNum(),
+                            data.getNextInterval(), okTask);
+                    if (callback != null) {
+                        callback.onSuccess(nextDelay);
+                    }
                 }
 
                 @Override
                 protected void onErrorResolved(Throwable e, String msg) {
-                    Toast.makeText(getContext(), msg + "", Toast.LENGTH_SHORT).show();
-                    if (errorTask != null) {
-                        errorTask.run();
-                    }
+                    onHeartbeatError(e, msg, callback, errorTask);
                 }
             });
         } else {
@@ -568,19 +865,160 @@ public class CallKit {
                     if (okTask != null) {
                         okTask.run(heartBeatResult.getData(), heartBeatResult.getExt());
                     }
+                    final long nextDelay = onHeartbeatResult(channelId, loginFeeType, sentAt,
+                            heartBeatResult.getData(), 0, okTask);
+                    if (callback != null) {
+                        callback.onSuccess(nextDelay);
+                    }
                 }
 
                 @Override
                 protected void onErrorResolved(Throwable e, String msg) {
-                    Toast.makeText(getContext(), msg + "", Toast.LENGTH_SHORT).show();
-                    if (errorTask != null) {
-                        errorTask.run();
-                    }
+                    onHeartbeatError(e, msg, callback, errorTask);
                 }
             });
         }
     }
 
+    /**
+     * 发出多个房间的心跳，只有一个房间时使用单房间接口
+     */
+    private void sendHeartbeats(List<PendingHeartbeat> heartbeats) {
+        if (heartbeats.size() == 1) {
+            final HeartbeatRoom room = heartbeats.get(0).room;
+            sendHeartbeat(room.getChannelId(), room.getChatId(), room.getLoginFeeType(), room.getOkTask(),
+                    heartbeats.get(0).callback, room.getErrorTask());
+            return;
+        }
+        final long sentAt = elapsedMillis();
+        final List<HeartBeatBatchRequest.Room> rooms = new ArrayList<>(heartbeats.size());
+        for (PendingHeartbeat heartbeat : heartbeats) {
+            rooms.add(new HeartBeatBatchRequest.Room(heartbeat.room.getChannelId(),
+                    String.valueOf(heartbeat.room.getChatId()), heartbeat.room.getLoginFeeType()));
+        }
+        CallRepository.getInstance().heartbeatBatch(new HeartBeatBatchRequest(rooms), new ApiObserver<HeartBeatBatchResult>() {
+            @Override
+            public void onNext(HeartBeatBatchResult heartBeatResult) {
+                final Map<String, HeartBeatBatchResult.Room> results = new HashMap<>();
+                for (HeartBeatBatchResult.Room result : heartBeatResult.getData()) {
+                    results.put(result.getRoomId(), result);
+                }
+                for (PendingHeartbeat heartbeat : heartbeats) {
+                    onHeartbeatResult(heartbeat, sentAt, results.get(heartbeat.room.getChannelId()));
+                }
+            }
+
+            @Override
+            protected void onErrorResolved(Throwable e, String msg) {
+                boolean toasted = false;
+                for (PendingHeartbeat heartbeat : heartbeats) {
+                    if (heartbeat.callback != null) {
+                        heartbeat.callback.onFailure(e, msg);
+                        continue;
+                    }
+                    if (!toasted) {
+                        Toast.makeText(getContext(), msg + "", Toast.LENGTH_SHORT).show();
+                        toasted = true;
+                    }
+                    if (heartbeat.room.getErrorTask() != null) {
+                        heartbeat.room.getErrorTask().run();
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 多房间心跳中一个房间的结果
+     *
+     * @param result 该房间的结果，服务端未返回时为null
+     */
+    private void onHeartbeatResult(PendingHeartbeat heartbeat, long sentAt, HeartBeatBatchResult.Room result) {
+        final HeartbeatRoom room = heartbeat.room;
+        if (result == null || result.getCode() != 1) {
+            final ApiException e = result == null
+                    ? new ApiException(ApiException.CODE_FAILED, "Fetch data failure!")
+                    : new ApiException(result.getCode(), result.getMsg());
+            onHeartbeatError(e, e.getMsg(), heartbeat.callback, room.getErrorTask());
+            return;
+        }
+        if (mCallService != null) {
+            mCallService.updateDiamondBalance(result.getDiamondNum());
+        }
+        if (room.getOkTask() != null) {
+            room.getOkTask().run(result.getDiamondNum(), result.getExt());
+        }
+        final long nextDelay = onHeartbeatResult(room.getChannelId(), room.getLoginFeeType(), sentAt,
+                result.getDiamondNum(), result.getNextInterval(), room.getOkTask());
+        if (heartbeat.callback != null) {
+            heartbeat.callback.onSuccess(nextDelay);
+        }
+    }
+
+    private void onHeartbeatError(Throwable e, String msg, HeartbeatEngine.Callback callback,
+                                  AbstractHeartbeatFailureTask errorTask) {
+        if (callback != null) {
+            callback.onFailure(e, msg);
+            return;
+        }
+        Toast.makeText(getContext(), msg + "", Toast.LENGTH_SHORT).show();
+        if (errorTask != null) {
+            errorTask.run();
+        }
+    }
+
+    /**
+     * 通话建立后（loginFeeType == 1）按计费分钟对齐计算下次心跳时间，并通知调用方
+     *
+     * @param sentAt 本次心跳发出时间，首次时作为计费开始时间
+     * @return 距下次心跳的时间（毫秒），未建立通话时为 0
+     */
+    private static long onHeartbeatResult(String channelId, int loginFeeType, long sentAt, int diamondNum,
+                                          int nextInterval, AbstractHeartbeatSuccessTask okTask) {
+        if (loginFeeType != 1 || channelId == null) {
+            return 0;
+        }
+        final HeartbeatIntervalPolicy policy = heartbeatPolicy(channelId, sentAt);
+        final long now = elapsedMillis();
+        policy.onHeartbeat(now, diamondNum, nextInterval);
+        final long nextDelay = policy.nextDelayMillis(now);
+        if (okTask != null) {
+            okTask.onNextInterval(nextDelay);
+        }
+        return nextDelay;
+    }
+
+    /**
+     * 设置通话每分钟价格（钻石），用于判断余额是否即将耗尽；未设置时根据心跳返回的余额变化估算
+     *
+     * @param channelId      频道ID
+     * @param pricePerMinute 每分钟价格
+     */
+    public void setCallPricePer(String channelId, int pricePerMinute) {
+        heartbeatPolicy(channelId, elapsedMillis()).setPricePerMinute(pricePerMinute);
+    }
+
+    /**
+     * 获取通话的心跳间隔策略，不存在时创建
+     *
+     * @param billingStart 计费开始时间（创建时使用）
+     */
+    private static HeartbeatIntervalPolicy heartbeatPolicy(String channelId, long billingStart) {
+        HeartbeatIntervalPolicy policy = mHeartbeatPolicies.get(channelId);
+        if (policy == null) {
+            policy = new HeartbeatIntervalPolicy(billingStart, new Random());
+            final HeartbeatIntervalPolicy previous = mHeartbeatPolicies.putIfAbsent(channelId, policy);
+            if (previous != null) {
+                policy = previous;
+            }
+        }
+        return policy;
+    }
+
+    private static long elapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+    }
+
     /**
      * 拒绝通话
      *
@@ -593,10 +1031,18 @@ public class CallKit {
      */
     public void refuseCall(String channelId, long remoteUid, int refuseType, Serializable ext, IBaseTask okTask, IBaseTask errorTask) {
         Timber.d("refuseCall >>> channelId:" + channelId + " | remoteUid:" + remoteUid + " | refuseType:" + refuseType + " | ext:" + ext);
+        if (channelId != null) {
+            HeartbeatEngine.getInstance().stop(channelId);
+            mHeartbeatPolicies.remove(channelId);
+            resumeGiftPrefetch(channelId);
+        }
         CallRepository.getInstance().refuse(new RefuseRequest(remoteUid, refuseType), new ApiObserver<BaseResult>() {
             @Override
             public void onNext(BaseResult baseResult) {
                 super.onNext(baseResult);
+                if (okTask != null) {
+                    okTask.run();
+                }
             }
 
             @Override
@@ -700,4 +1146,20 @@ public class CallKit {
         }
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * 待发出的房间心跳
+     */
+    private static final class PendingHeartbeat {
+        final HeartbeatRoom room;
+        /**
+         * 由心跳引擎发出时不为空
+         */
+        final HeartbeatEngine.Callback callback;
+
+        PendingHeartbeat(HeartbeatRoom room, HeartbeatEngine.Callback callback) {
+            this.room = room;
+            this.callback = callback;
+        }
+    }
+}
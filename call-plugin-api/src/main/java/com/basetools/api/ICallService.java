@@ -53,6 +53,8 @@ public interface ICallService {
 
     /**
      * 获取特效礼物SVGA路径
+     * </br>
+     * 开启礼物素材预下载时可直接返回 {@link com.basetools.net.gift.GiftAssetPrefetcher#getSvgaPath} 的结果，未缓存时再自行下载
      * @param giftId 礼物ID
      * @return
      */
@@ -0,0 +1,23 @@
+package com.basetools.constant;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import androidx.annotation.IntDef;
+
+/**
+ * 网络请求优先级，数值越小优先级越高
+ */
+@IntDef({
+        RequestPriority.CRITICAL,
+        RequestPriority.INTERACTIVE,
+        RequestPriority.BACKGROUND
+})
+@Retention(RetentionPolicy.SOURCE)
+public @interface RequestPriority {
+    /** 通话关键路径：加入频道、心跳、离开 */
+    int CRITICAL = 0;
+    /** 用户交互：创建频道、拒绝、送礼 */
+    int INTERACTIVE = 1;
+    /** 后台：礼物列表、插件版本检查、补发 */
+    int BACKGROUND = 2;
+}
@@ -0,0 +1,17 @@
+package com.basetools.listener;
+
+import com.basetools.model.Gift;
+import java.util.List;
+
+/**
+ * 礼物目录变化回调
+ */
+public interface GiftCatalogListener {
+
+    /**
+     * 礼物目录已更新（主线程回调）
+     *
+     * @param gifts 更新后的全部礼物（副本，可以修改），列表不可修改
+     */
+    void onGiftCatalogChanged(List<Gift> gifts);
+}
@@ -0,0 +1,18 @@
+package com.basetools.listener;
+
+import com.basetools.model.Gift;
+
+/**
+ * 礼物列表流式接收：礼物从响应流中逐个解析后直接写入，不再生成临时列表
+ * </br>
+ * 网络异常重试时会从头重新下发，实现方需按 giftId 去重
+ */
+public interface GiftSink {
+
+    /**
+     * 解析出一个礼物（io线程回调）
+     *
+     * @param gift 礼物
+     */
+    void onGift(Gift gift);
+}
@@ -0,0 +1,21 @@
+package com.basetools.listener;
+
+import com.basetools.model.RandomRoomData;
+
+/**
+ * 信令长连接推送回调（主线程回调）
+ */
+public interface SignalingListener {
+
+    /**
+     * 服务端推送余额变化，已同步到 ICallService#updateDiamondBalance
+     * @param diamondNum 钻石余额
+     */
+    void onBalanceChanged(int diamondNum);
+
+    /**
+     * 服务端推送随机匹配成功，无需再轮询 randomMatch
+     * @param data 匹配到的频道
+     */
+    void onRandomMatched(RandomRoomData data);
+}
@@ -1,17 +1,21 @@
 package com.basetools.model;
 
-import com.basetools.CallKit;
-import com.basetools.util.GsonUtils;
+import com.basetools.net.config.PlatformSnapshot;
 
 public class CreateChannelRequest{
     private int type;
     private String remoteUserId;
     private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
 
     public CreateChannelRequest(int type, String remoteUserId) {
         this.type = type;
         this.remoteUserId = remoteUserId;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public int getType() {
@@ -30,11 +34,26 @@ public class CreateChannelRequest{
         this.remoteUserId = remoteUserId;
     }
 
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
     public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
         return platform;
     }
 
     public void setPlatform(Platform platform) {
         this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
     }
 }
@@ -109,6 +109,11 @@ public class Gift implements Serializable {
         return super.equals(obj);
     }
 
+    @Override
+    public int hashCode() {
+        return TextUtils.isEmpty(giftId) ? super.hashCode() : giftId.hashCode();
+    }
+
     public boolean isSelected() {
         return selected;
     }
@@ -15,7 +15,10 @@ public class GiftListResult implements Serializable {
     public static class GiftData implements Serializable  {
 
         private long lastTime;
+        /** 增量同步时为新增或修改的礼物，lastTime 为 0 时为全部礼物 */
         private ArrayList<Gift> gifts;
+        /** 增量同步时已下架的礼物ID */
+        private ArrayList<String> deletedIds;
 
         public long getLastTime() {
             return lastTime;
@@ -33,11 +36,20 @@ public class GiftListResult implements Serializable {
             this.gifts = gifts;
         }
 
+        public ArrayList<String> getDeletedIds() {
+            return deletedIds;
+        }
+
+        public void setDeletedIds(ArrayList<String> deletedIds) {
+            this.deletedIds = deletedIds;
+        }
+
         @Override
         public String toString() {
             return "GiftListResult{" +
                     "lastTime=" + lastTime +
                     ", gifts=" + gifts +
+                    ", deletedIds=" + deletedIds +
                     '}';
         }
     }
@@ -1,7 +1,6 @@
 package com.basetools.model;
 
-import com.basetools.CallKit;
-import com.basetools.util.GsonUtils;
+import com.basetools.net.config.PlatformSnapshot;
 
 public class GiveGiftMsgRequest {
     private long userId;
@@ -10,13 +9,18 @@ public class GiveGiftMsgRequest {
     private int type; // 默认0，通话中送礼物传 2
     private int isNewApp = 1;
     private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
 
     public GiveGiftMsgRequest(long userId, String giftId, int count) {
         this.userId = userId;
         this.giftId = giftId;
         this.count = count;
         this.isNewApp = 1;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public GiveGiftMsgRequest(long userId, String giftId, int type, int count) {
@@ -25,7 +29,8 @@ public class GiveGiftMsgRequest {
         this.count = count;
         this.type = type;
         this.isNewApp = 1;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public long getUserId() {
@@ -68,12 +73,27 @@ public class GiveGiftMsgRequest {
         this.isNewApp = isNewApp;
     }
 
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
     public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
         return platform;
     }
 
     public void setPlatform(Platform platform) {
         this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
     }
 
     @Override
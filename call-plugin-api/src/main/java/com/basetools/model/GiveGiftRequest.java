@@ -1,7 +1,6 @@
 package com.basetools.model;
 
-import com.basetools.CallKit;
-import com.basetools.util.GsonUtils;
+import com.basetools.net.config.PlatformSnapshot;
 
 public class GiveGiftRequest {
     private long userId;
@@ -11,6 +10,10 @@ public class GiveGiftRequest {
     private int type = 2;
     private int isNewApp = 1;
     private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
 
     public GiveGiftRequest(long userId, String giftId, int count, long roomId) {
         this.userId = userId;
@@ -19,7 +22,8 @@ public class GiveGiftRequest {
         this.roomId = roomId;
         this.type = 2;
         this.isNewApp = 1;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public long getUserId() {
@@ -70,12 +74,27 @@ public class GiveGiftRequest {
         this.isNewApp = isNewApp;
     }
 
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
     public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
         return platform;
     }
 
     public void setPlatform(Platform platform) {
         this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
     }
 
     @Override
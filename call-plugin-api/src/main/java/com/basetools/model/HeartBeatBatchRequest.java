@@ -0,0 +1,107 @@
+package com.basetools.model;
+
+import com.basetools.net.config.PlatformSnapshot;
+import java.util.List;
+
+/**
+ * 多房间心跳请求：一次请求携带多个房间，平台信息只发送一次
+ */
+public class HeartBeatBatchRequest {
+    private List<Room> rooms;
+    private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
+
+    public HeartBeatBatchRequest(List<Room> rooms) {
+        this.rooms = rooms;
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
+    }
+
+    public List<Room> getRooms() {
+        return rooms;
+    }
+
+    public void setRooms(List<Room> rooms) {
+        this.rooms = rooms;
+    }
+
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
+    public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
+        return platform;
+    }
+
+    public void setPlatform(Platform platform) {
+        this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
+    }
+
+    @Override
+    public String toString() {
+        return "HeartBeatBatchRequest{" +
+                "rooms=" + rooms +
+                ", platform=" + platform +
+                '}';
+    }
+
+    public static class Room {
+        private String roomId;
+        private String chatId;
+        /** 是否建立通话扣费：0否 1是 */
+        private int loginFeeType;
+
+        public Room(String roomId, String chatId, int loginFeeType) {
+            this.roomId = roomId;
+            this.chatId = chatId;
+            this.loginFeeType = loginFeeType;
+        }
+
+        public String getRoomId() {
+            return roomId;
+        }
+
+        public void setRoomId(String roomId) {
+            this.roomId = roomId;
+        }
+
+        public String getChatId() {
+            return chatId;
+        }
+
+        public void setChatId(String chatId) {
+            this.chatId = chatId;
+        }
+
+        public int getLoginFeeType() {
+            return loginFeeType;
+        }
+
+        public void setLoginFeeType(int loginFeeType) {
+            this.loginFeeType = loginFeeType;
+        }
+
+        @Override
+        public String toString() {
+            return "Room{" +
+                    "roomId='" + roomId + '\'' +
+                    ", chatId='" + chatId + '\'' +
+                    ", loginFeeType=" + loginFeeType +
+                    '}';
+        }
+    }
+}
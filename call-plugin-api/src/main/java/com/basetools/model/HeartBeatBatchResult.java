@@ -0,0 +1,118 @@
+package com.basetools.model;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 多房间心跳响应数据：每个房间单独返回结果，某个房间失败（如通话已结束）不影响其他房间
+ */
+public class HeartBeatBatchResult implements Serializable {
+
+    private String msg;
+    private int code;
+    private List<Room> data;
+
+    public String getMsg() {
+        return msg;
+    }
+
+    public void setMsg(String msg) {
+        this.msg = msg;
+    }
+
+    public int getCode() {
+        return code;
+    }
+
+    public void setCode(int code) {
+        this.code = code;
+    }
+
+    public List<Room> getData() {
+        return data;
+    }
+
+    public void setData(List<Room> data) {
+        this.data = data;
+    }
+
+    @Override
+    public String toString() {
+        return "HeartBeatBatchResult{" +
+                "msg='" + msg + '\'' +
+                ", code=" + code +
+                ", data=" + data +
+                '}';
+    }
+
+    public static class Room implements Serializable {
+        private String roomId;
+        /** 该房间的结果：1 成功，其他同单房间心跳的错误码 */
+        private int code;
+        private String msg;
+        private int diamondNum;
+        /** 服务端建议的下次心跳间隔（秒），0 表示未指定 */
+        private int nextInterval;
+        private HeartbeatExt ext;
+
+        public String getRoomId() {
+            return roomId;
+        }
+
+        public void setRoomId(String roomId) {
+            this.roomId = roomId;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public void setCode(int code) {
+            this.code = code;
+        }
+
+        public String getMsg() {
+            return msg;
+        }
+
+        public void setMsg(String msg) {
+            this.msg = msg;
+        }
+
+        public int getDiamondNum() {
+            return diamondNum;
+        }
+
+        public void setDiamondNum(int diamondNum) {
+            this.diamondNum = diamondNum;
+        }
+
+        public int getNextInterval() {
+            return nextInterval;
+        }
+
+        public void setNextInterval(int nextInterval) {
+            this.nextInterval = nextInterval;
+        }
+
+        public HeartbeatExt getExt() {
+            return ext;
+        }
+
+        public void setExt(HeartbeatExt ext) {
+            this.ext = ext;
+        }
+
+        @Override
+        public String toString() {
+            return "Room{" +
+                    "roomId='" + roomId + '\'' +
+                    ", code=" + code +
+                    ", msg='" + msg + '\'' +
+                    ", diamondNum=" + diamondNum +
+                    ", nextInterval=" + nextInterval +
+                    ", ext=" + ext +
+                    '}';
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.basetools.model;
 
-import com.basetools.CallKit;
-import com.basetools.util.GsonUtils;
+import com.basetools.net.config.PlatformSnapshot;
 
 public class HeartBeatRequest {
     private String roomId;
@@ -9,19 +8,25 @@ public class HeartBeatRequest {
     /** 是否建立通话扣费：0否 1是 */
     private int loginFeeType;
     private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
 
     public HeartBeatRequest(String roomId, String chatId) {
         this.roomId = roomId;
         this.chatId = chatId;
         this.loginFeeType = 1;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public HeartBeatRequest(String roomId, String chatId, int loginFeeType) {
         this.roomId = roomId;
         this.chatId = chatId;
         this.loginFeeType = loginFeeType;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public String getRoomId() {
@@ -40,12 +45,27 @@ public class HeartBeatRequest {
         this.chatId = chatId;
     }
 
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
     public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
         return platform;
     }
 
     public void setPlatform(Platform platform) {
         this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
     }
 
     public int getLoginFeeType() {
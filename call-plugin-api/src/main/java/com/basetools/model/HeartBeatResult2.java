@@ -46,6 +46,8 @@ public class HeartBeatResult2 implements Serializable {
 
     public static class Data {
         private int diamondNum;
+        /** 服务端建议的下次心跳间隔（秒），0 表示未指定 */
+        private int nextInterval;
 
         public int getDiamondNum() {
             return diamondNum;
@@ -55,10 +57,19 @@ public class HeartBeatResult2 implements Serializable {
             this.diamondNum = diamondNum;
         }
 
+        public int getNextInterval() {
+            return nextInterval;
+        }
+
+        public void setNextInterval(int nextInterval) {
+            this.nextInterval = nextInterval;
+        }
+
         @Override
         public String toString() {
             return "Data{" +
                     "diamondNum=" + diamondNum +
+                    ", nextInterval=" + nextInterval +
                     '}';
         }
     }
@@ -1,24 +1,29 @@
 package com.basetools.model;
 
-import com.basetools.CallKit;
-import com.basetools.util.GsonUtils;
+import com.basetools.net.config.PlatformSnapshot;
 
 public class JoinChannelRequest {
     private String roomId;
     /** 是否建立通话扣费：0否 1是 */
     private int loginFeeType;
     private Platform platform;
+    /**
+     * platform 为共用实例时的快照，序列化时拼接预编码片段
+     */
+    private transient PlatformSnapshot platformSnapshot;
 
     public JoinChannelRequest(String roomId) {
         this.roomId = roomId;
         this.loginFeeType = 1;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public JoinChannelRequest(String roomId, int loginFeeType) {
         this.roomId = roomId;
         this.loginFeeType = loginFeeType;
-        this.platform = GsonUtils.fromJson(CallKit.getInstance().getPlatformJson(), Platform.class);
+        this.platformSnapshot = PlatformSnapshot.current();
+        this.platform = platformSnapshot != null ? platformSnapshot.getPlatform() : null;
     }
 
     public String getRoomId() {
@@ -29,12 +34,35 @@ public class JoinChannelRequest {
         this.roomId = roomId;
     }
 
+    public int getLoginFeeType() {
+        return loginFeeType;
+    }
+
+    public void setLoginFeeType(int loginFeeType) {
+        this.loginFeeType = loginFeeType;
+    }
+
+    /**
+     * 共用的平台信息不对外暴露，首次取出时换成副本，之后正常编码
+     */
     public Platform getPlatform() {
+        if (platformSnapshot != null) {
+            platform = platform.copy();
+            platformSnapshot = null;
+        }
         return platform;
     }
 
     public void setPlatform(Platform platform) {
         this.platform = platform;
+        this.platformSnapshot = null;
+    }
+
+    /**
+     * 内部使用：平台信息仍为共用实例时返回其快照，否则返回null
+     */
+    public PlatformSnapshot getPlatformSnapshot() {
+        return platformSnapshot;
     }
 
     @Override
@@ -45,6 +45,33 @@ public class Platform {
     public Platform() {
     }
 
+    /**
+     * 副本：请求取出共用的平台信息时使用
+     */
+    Platform copy() {
+        final Platform copy = new Platform();
+        copy.fid = fid;
+        copy.baseProduct = baseProduct;
+        copy.product = product;
+        copy.packageName = packageName;
+        copy.version = version;
+        copy.versionCode = versionCode;
+        copy.release = release;
+        copy.pid = pid;
+        copy.imsi = imsi;
+        copy.platform = platform;
+        copy.systemVersion = systemVersion;
+        copy.w = w;
+        copy.h = h;
+        copy.netType = netType;
+        copy.country = country;
+        copy.language = language;
+        copy.phonetype = phonetype;
+        copy.operator = operator;
+        copy.oaid = oaid;
+        return copy;
+    }
+
     public long getFid() {
         return fid;
     }
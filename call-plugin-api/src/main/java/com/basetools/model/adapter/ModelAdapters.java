@@ -0,0 +1,832 @@
+package com.basetools.model.adapter;
+
+import com.basetools.model.CreateChannelRequest;
+import com.basetools.model.CreateChannelResult;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListRequest;
+import com.basetools.model.GiftListResult;
+import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.GiveGiftRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.HeartbeatExt;
+import com.basetools.model.JoinChannelRequest;
+import com.basetools.model.JoinChannelResult;
+import com.basetools.model.LeaveChannelRequest;
+import com.basetools.model.Platform;
+import com.basetools.model.RandomRoomData;
+import com.basetools.model.RandomRoomRequest;
+import com.basetools.model.RandomRoomResult;
+import com.basetools.model.RefuseRequest;
+import com.basetools.model.UpdatePackageRequest;
+import com.basetools.model.UpdatePackageResult;
+import com.basetools.net.config.PlatformSnapshot;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * 各数据模型的序列化实现，字段名、字段顺序与反射方式保持一致
+ * </br>
+ * 请求只实现写，响应只实现读，另一方向由 {@link ModelTypeAdapterFactory} 交给反射实现；
+ * 读取时值为null的字段跳过（保留默认值），未知字段跳过，列表（礼物、批量心跳房间、字符串数组）中的null元素丢弃。
+ * </br>
+ * 模型增删字段时需同步修改这里。
+ */
+final class ModelAdapters {
+
+    private ModelAdapters() {
+    }
+
+    /**
+     * 只实现写
+     */
+    interface Writer<T> {
+        void write(JsonWriter out, T value) throws IOException;
+    }
+
+    /**
+     * 只实现读，reader已位于对象字段内，返回前无需endObject
+     */
+    interface Reader<T> {
+        T newInstance();
+
+        void readField(JsonReader in, String name, T value) throws IOException;
+    }
+
+    // ------------------------------ 公共对象 ------------------------------
+
+    static final Writer<Platform> PLATFORM_WRITER = (out, value) -> {
+        out.beginObject();
+        out.name("fid").value(value.getFid());
+        out.name("baseProduct").value(value.getBaseProduct());
+        out.name("product").value(value.getProduct());
+        out.name("packageName").value(value.getPackageName());
+        out.name("version").value(value.getVersion());
+        out.name("versionCode").value(value.getVersionCode());
+        out.name("release").value(value.getRelease());
+        out.name("pid").value(value.getPid());
+        out.name("imsi").value(value.getImsi());
+        out.name("platform").value(value.getPlatform());
+        out.name("systemVersion").value(value.getSystemVersion());
+        out.name("w").value(value.getW());
+        out.name("h").value(value.getH());
+        out.name("netType").value(value.getNetType());
+        out.name("country").value(value.getCountry());
+        out.name("language").value(value.getLanguage());
+        out.name("phonetype").value(value.getPhonetype());
+        out.name("operator").value(value.getOperator());
+        out.name("oaid").value(value.getOaid());
+        out.endObject();
+    };
+
+    static final Reader<Platform> PLATFORM_READER = new Reader<Platform>() {
+        @Override
+        public Platform newInstance() {
+            return new Platform();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, Platform value) throws IOException {
+            switch (name) {
+                case "fid":
+                    value.setFid(in.nextLong());
+                    break;
+                case "baseProduct":
+                    value.setBaseProduct(in.nextInt());
+                    break;
+                case "product":
+                    value.setProduct(in.nextInt());
+                    break;
+                case "packageName":
+                    value.setPackageName(nextString(in));
+                    break;
+                case "version":
+                    value.setVersion(nextString(in));
+                    break;
+                case "versionCode":
+                    value.setVersionCode(in.nextInt());
+                    break;
+                case "release":
+                    value.setRelease(nextString(in));
+                    break;
+                case "pid":
+                    value.setPid(nextString(in));
+                    break;
+                case "imsi":
+                    value.setImsi(nextString(in));
+                    break;
+                case "platform":
+                    value.setPlatform(in.nextInt());
+                    break;
+                case "systemVersion":
+                    value.setSystemVersion(nextString(in));
+                    break;
+                case "w":
+                    value.setW(in.nextInt());
+                    break;
+                case "h":
+                    value.setH(in.nextInt());
+                    break;
+                case "netType":
+                    value.setNetType(in.nextInt());
+                    break;
+                case "country":
+                    value.setCountry(nextString(in));
+                    break;
+                case "language":
+                    value.setLanguage(nextString(in));
+                    break;
+                case "phonetype":
+                    value.setPhonetype(nextString(in));
+                    break;
+                case "operator":
+                    value.setOperator(nextString(in));
+                    break;
+                case "oaid":
+                    value.setOaid(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Writer<Gift> GIFT_WRITER = (out, value) -> {
+        out.beginObject();
+        out.name("giftId").value(value.getGiftId());
+        out.name("giftName").value(value.getGiftName());
+        out.name("giftDesc").value(value.getGiftDesc());
+        out.name("giftType").value(value.getGiftType());
+        out.name("price").value(value.getPrice());
+        out.name("giftUrl").value(value.getGiftUrl());
+        out.name("english").value(value.getEnglish());
+        out.name("taditional").value(value.getTaditional());
+        out.name("svgaUrl").value(value.getSvgaUrl());
+        out.name("selected").value(value.isSelected());
+        out.endObject();
+    };
+
+    static final Reader<Gift> GIFT_READER = new Reader<Gift>() {
+        @Override
+        public Gift newInstance() {
+            return new Gift();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, Gift value) throws IOException {
+            switch (name) {
+                case "giftId":
+                    value.setGiftId(nextString(in));
+                    break;
+                case "giftName":
+                    value.setGiftName(nextString(in));
+                    break;
+                case "giftDesc":
+                    value.setGiftDesc(nextString(in));
+                    break;
+                case "giftType":
+                    value.setGiftType(in.nextInt());
+                    break;
+                case "price":
+                    value.setPrice(in.nextInt());
+                    break;
+                case "giftUrl":
+                    value.setGiftUrl(nextString(in));
+                    break;
+                case "english":
+                    value.setEnglish(nextString(in));
+                    break;
+                case "taditional":
+                    value.setTaditional(nextString(in));
+                    break;
+                case "svgaUrl":
+                    value.setSvgaUrl(nextString(in));
+                    break;
+                case "selected":
+                    value.setSelected(nextBoolean(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<HeartbeatExt> HEARTBEAT_EXT_READER = new Reader<HeartbeatExt>() {
+        @Override
+        public HeartbeatExt newInstance() {
+            return new HeartbeatExt();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartbeatExt value) throws IOException {
+            switch (name) {
+                case "location":
+                    value.setLocation(nextString(in));
+                    break;
+                case "accountDia":
+                    value.setAccountDia(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    // ------------------------------ 请求 ------------------------------
+
+    static final Writer<CreateChannelRequest> CREATE_CHANNEL_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("type").value(value.getType());
+        out.name("remoteUserId").value(value.getRemoteUserId());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<JoinChannelRequest> JOIN_CHANNEL_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("roomId").value(value.getRoomId());
+        out.name("loginFeeType").value(value.getLoginFeeType());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<HeartBeatRequest> HEART_BEAT_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("roomId").value(value.getRoomId());
+        out.name("chatId").value(value.getChatId());
+        out.name("loginFeeType").value(value.getLoginFeeType());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<HeartBeatBatchRequest> HEART_BEAT_BATCH_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("rooms");
+        if (value.getRooms() == null) {
+            out.nullValue();
+        } else {
+            out.beginArray();
+            for (HeartBeatBatchRequest.Room room : value.getRooms()) {
+                out.beginObject();
+                out.name("roomId").value(room.getRoomId());
+                out.name("chatId").value(room.getChatId());
+                out.name("loginFeeType").value(room.getLoginFeeType());
+                out.endObject();
+            }
+            out.endArray();
+        }
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<LeaveChannelRequest> LEAVE_CHANNEL_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("roomId").value(value.getRoomId());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<RefuseRequest> REFUSE_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("userId").value(value.getUserId());
+        out.name("refuseType").value(value.getRefuseType());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<RandomRoomRequest> RANDOM_ROOM_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("type").value(value.getType());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<GiftListRequest> GIFT_LIST_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("lastTime").value(value.getLastTime());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.name("isNewApp").value(value.getIsNewApp());
+        out.endObject();
+    };
+
+    static final Writer<GiveGiftRequest> GIVE_GIFT_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("userId").value(value.getUserId());
+        out.name("giftId").value(value.getGiftId());
+        out.name("count").value(value.getCount());
+        out.name("roomId").value(value.getRoomId());
+        out.name("type").value(value.getType());
+        out.name("isNewApp").value(value.getIsNewApp());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<GiveGiftMsgRequest> GIVE_GIFT_MSG_REQUEST = (out, value) -> {
+        out.beginObject();
+        out.name("userId").value(value.getUserId());
+        out.name("giftId").value(value.getGiftId());
+        out.name("count").value(value.getCount());
+        out.name("type").value(value.getType());
+        out.name("isNewApp").value(value.getIsNewApp());
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    static final Writer<UpdatePackageRequest> UPDATE_PACKAGE_REQUEST = (out, value) -> {
+        out.beginObject();
+        if (!writeSharedPlatform(out, value.getPlatformSnapshot())) {
+            writePlatform(out, value.getPlatform());
+        }
+        out.endObject();
+    };
+
+    // ------------------------------ 响应 ------------------------------
+
+    static final Reader<CreateChannelResult> CREATE_CHANNEL_RESULT = new Reader<CreateChannelResult>() {
+        @Override
+        public CreateChannelResult newInstance() {
+            return new CreateChannelResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, CreateChannelResult value) throws IOException {
+            switch (name) {
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "data":
+                    value.setData(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<JoinChannelResult.Token> JOIN_CHANNEL_TOKEN = new Reader<JoinChannelResult.Token>() {
+        @Override
+        public JoinChannelResult.Token newInstance() {
+            return new JoinChannelResult.Token();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, JoinChannelResult.Token value) throws IOException {
+            if ("token".equals(name)) {
+                value.setToken(nextString(in));
+            } else {
+                in.skipValue();
+            }
+        }
+    };
+
+    static final Reader<JoinChannelResult> JOIN_CHANNEL_RESULT = new Reader<JoinChannelResult>() {
+        @Override
+        public JoinChannelResult newInstance() {
+            return new JoinChannelResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, JoinChannelResult value) throws IOException {
+            switch (name) {
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "data":
+                    value.setData(read(in, JOIN_CHANNEL_TOKEN));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<HeartBeatResult> HEART_BEAT_RESULT = new Reader<HeartBeatResult>() {
+        @Override
+        public HeartBeatResult newInstance() {
+            return new HeartBeatResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartBeatResult value) throws IOException {
+            switch (name) {
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "data":
+                    value.setData(in.nextInt());
+                    break;
+                case "ext":
+                    value.setExt(read(in, HEARTBEAT_EXT_READER));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<HeartBeatResult2.Data> HEART_BEAT_DATA = new Reader<HeartBeatResult2.Data>() {
+        @Override
+        public HeartBeatResult2.Data newInstance() {
+            return new HeartBeatResult2.Data();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartBeatResult2.Data value) throws IOException {
+            if ("diamondNum".equals(name)) {
+                value.setDiamondNum(in.nextInt());
+            } else if ("nextInterval".equals(name)) {
+                value.setNextInterval(in.nextInt());
+            } else {
+                in.skipValue();
+            }
+        }
+    };
+
+    static final Reader<HeartBeatResult2> HEART_BEAT_RESULT2 = new Reader<HeartBeatResult2>() {
+        @Override
+        public HeartBeatResult2 newInstance() {
+            return new HeartBeatResult2();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartBeatResult2 value) throws IOException {
+            switch (name) {
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "data":
+                    value.setData(read(in, HEART_BEAT_DATA));
+                    break;
+                case "ext":
+                    value.setExt(read(in, HEARTBEAT_EXT_READER));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<HeartBeatBatchResult.Room> HEART_BEAT_BATCH_ROOM = new Reader<HeartBeatBatchResult.Room>() {
+        @Override
+        public HeartBeatBatchResult.Room newInstance() {
+            return new HeartBeatBatchResult.Room();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartBeatBatchResult.Room value) throws IOException {
+            switch (name) {
+                case "roomId":
+                    value.setRoomId(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "diamondNum":
+                    value.setDiamondNum(in.nextInt());
+                    break;
+                case "nextInterval":
+                    value.setNextInterval(in.nextInt());
+                    break;
+                case "ext":
+                    value.setExt(read(in, HEARTBEAT_EXT_READER));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<HeartBeatBatchResult> HEART_BEAT_BATCH_RESULT = new Reader<HeartBeatBatchResult>() {
+        @Override
+        public HeartBeatBatchResult newInstance() {
+            return new HeartBeatBatchResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, HeartBeatBatchResult value) throws IOException {
+            switch (name) {
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "data":
+                    ArrayList<HeartBeatBatchResult.Room> rooms = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        HeartBeatBatchResult.Room room = read(in, HEART_BEAT_BATCH_ROOM);
+                        if (room != null) {
+                            rooms.add(room);
+                        }
+                    }
+                    in.endArray();
+                    value.setData(rooms);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<RandomRoomData> RANDOM_ROOM_DATA = new Reader<RandomRoomData>() {
+        @Override
+        public RandomRoomData newInstance() {
+            return new RandomRoomData();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, RandomRoomData value) throws IOException {
+            switch (name) {
+                case "roomId":
+                    value.setRoomId(in.nextLong());
+                    break;
+                case "token":
+                    value.setToken(nextString(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<RandomRoomResult> RANDOM_ROOM_RESULT = new Reader<RandomRoomResult>() {
+        @Override
+        public RandomRoomResult newInstance() {
+            return new RandomRoomResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, RandomRoomResult value) throws IOException {
+            switch (name) {
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "data":
+                    value.setData(read(in, RANDOM_ROOM_DATA));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<GiftListResult.GiftData> GIFT_DATA = new Reader<GiftListResult.GiftData>() {
+        @Override
+        public GiftListResult.GiftData newInstance() {
+            return new GiftListResult.GiftData();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, GiftListResult.GiftData value) throws IOException {
+            switch (name) {
+                case "lastTime":
+                    value.setLastTime(in.nextLong());
+                    break;
+                case "gifts":
+                    ArrayList<Gift> gifts = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) {
+                        Gift gift = read(in, GIFT_READER);
+                        if (gift != null) {
+                            gifts.add(gift);
+                        }
+                    }
+                    in.endArray();
+                    value.setGifts(gifts);
+                    break;
+                case "deletedIds":
+                    value.setDeletedIds(readStrings(in));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<GiftListResult> GIFT_LIST_RESULT = new Reader<GiftListResult>() {
+        @Override
+        public GiftListResult newInstance() {
+            return new GiftListResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, GiftListResult value) throws IOException {
+            switch (name) {
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "data":
+                    value.setData(read(in, GIFT_DATA));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<UpdatePackageResult.CallPluginInfo> CALL_PLUGIN_INFO =
+            new Reader<UpdatePackageResult.CallPluginInfo>() {
+        @Override
+        public UpdatePackageResult.CallPluginInfo newInstance() {
+            return new UpdatePackageResult.CallPluginInfo();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, UpdatePackageResult.CallPluginInfo value) throws IOException {
+            switch (name) {
+                case "oneToOneUrl":
+                    value.setOneToOneUrl(nextString(in));
+                    break;
+                case "oneToOneVer":
+                    value.setOneToOneVer(in.nextInt());
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    static final Reader<UpdatePackageResult> UPDATE_PACKAGE_RESULT = new Reader<UpdatePackageResult>() {
+        @Override
+        public UpdatePackageResult newInstance() {
+            return new UpdatePackageResult();
+        }
+
+        @Override
+        public void readField(JsonReader in, String name, UpdatePackageResult value) throws IOException {
+            switch (name) {
+                case "msg":
+                    value.setMsg(nextString(in));
+                    break;
+                case "code":
+                    value.setCode(in.nextInt());
+                    break;
+                case "data":
+                    value.setData(read(in, CALL_PLUGIN_INFO));
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+    };
+
+    // ------------------------------ 工具方法 ------------------------------
+
+    /**
+     * 读取一个对象，JSON null 返回null
+     */
+    static <T> T read(JsonReader in, Reader<T> reader) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        T value = reader.newInstance();
+        in.beginObject();
+        while (in.hasNext()) {
+            final String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                // 与反射方式一致：null不覆盖默认值
+                in.nextNull();
+            } else {
+                reader.readField(in, name, value);
+            }
+        }
+        in.endObject();
+        return value;
+    }
+
+    /**
+     * 写入一个对象，null 写 JSON null（是否输出由 JsonWriter#getSerializeNulls 决定）
+     */
+    static <T> void write(JsonWriter out, T value, Writer<T> writer) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else {
+            writer.write(out, value);
+        }
+    }
+
+    /**
+     * 写入请求共用的平台信息：不输出null时直接拼接预编码片段（片段不含null字段），否则逐字段编码
+     *
+     * @param shared 请求的平台信息快照
+     * @return 平台信息已取出或替换（快照为null）时返回false，由调用方正常编码
+     */
+    private static boolean writeSharedPlatform(JsonWriter out, PlatformSnapshot shared) throws IOException {
+        if (shared == null) {
+            return false;
+        }
+        out.name("platform");
+        if (out.getSerializeNulls()) {
+            write(out, shared.getPlatform(), PLATFORM_WRITER);
+        } else {
+            out.jsonValue(shared.getEncodedJson());
+        }
+        return true;
+    }
+
+    private static void writePlatform(JsonWriter out, Platform platform) throws IOException {
+        out.name("platform");
+        write(out, platform, PLATFORM_WRITER);
+    }
+
+    /**
+     * 读取字符串数组，null元素丢弃
+     */
+    static ArrayList<String> readStrings(JsonReader in) throws IOException {
+        ArrayList<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+            } else {
+                values.add(nextString(in));
+            }
+        }
+        in.endArray();
+        return values;
+    }
+
+    /**
+     * 与Gson内置String适配器一致：布尔值转为字符串
+     */
+    private static String nextString(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return Boolean.toString(in.nextBoolean());
+        }
+        return in.nextString();
+    }
+
+    /**
+     * 与Gson内置boolean适配器一致：兼容字符串
+     */
+    private static boolean nextBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+}
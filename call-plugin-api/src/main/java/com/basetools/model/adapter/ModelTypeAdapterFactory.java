@@ -0,0 +1,113 @@
+package com.basetools.model.adapter;
+
+import com.basetools.model.CreateChannelRequest;
+import com.basetools.model.CreateChannelResult;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListRequest;
+import com.basetools.model.GiftListResult;
+import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.GiveGiftRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.JoinChannelRequest;
+import com.basetools.model.JoinChannelResult;
+import com.basetools.model.LeaveChannelRequest;
+import com.basetools.model.Platform;
+import com.basetools.model.RandomRoomRequest;
+import com.basetools.model.RandomRoomResult;
+import com.basetools.model.RefuseRequest;
+import com.basetools.model.UpdatePackageRequest;
+import com.basetools.model.UpdatePackageResult;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 数据模型的非反射序列化：替代Gson的 ReflectiveTypeAdapterFactory，
+ * 避免首次使用时反射扫描字段（冷启动）及每次心跳的反射读写开销
+ * </br>
+ * 未登记的类型（如泛型 BaseResult）仍使用反射实现。
+ */
+public final class ModelTypeAdapterFactory implements TypeAdapterFactory {
+
+    private static final Map<Class<?>, ModelAdapters.Writer<?>> WRITERS = new HashMap<>();
+    private static final Map<Class<?>, ModelAdapters.Reader<?>> READERS = new HashMap<>();
+
+    static {
+        WRITERS.put(Platform.class, ModelAdapters.PLATFORM_WRITER);
+        WRITERS.put(Gift.class, ModelAdapters.GIFT_WRITER);
+        WRITERS.put(CreateChannelRequest.class, ModelAdapters.CREATE_CHANNEL_REQUEST);
+        WRITERS.put(JoinChannelRequest.class, ModelAdapters.JOIN_CHANNEL_REQUEST);
+        WRITERS.put(HeartBeatRequest.class, ModelAdapters.HEART_BEAT_REQUEST);
+        WRITERS.put(HeartBeatBatchRequest.class, ModelAdapters.HEART_BEAT_BATCH_REQUEST);
+        WRITERS.put(LeaveChannelRequest.class, ModelAdapters.LEAVE_CHANNEL_REQUEST);
+        WRITERS.put(RefuseRequest.class, ModelAdapters.REFUSE_REQUEST);
+        WRITERS.put(RandomRoomRequest.class, ModelAdapters.RANDOM_ROOM_REQUEST);
+        WRITERS.put(GiftListRequest.class, ModelAdapters.GIFT_LIST_REQUEST);
+        WRITERS.put(GiveGiftRequest.class, ModelAdapters.GIVE_GIFT_REQUEST);
+        WRITERS.put(GiveGiftMsgRequest.class, ModelAdapters.GIVE_GIFT_MSG_REQUEST);
+        WRITERS.put(UpdatePackageRequest.class, ModelAdapters.UPDATE_PACKAGE_REQUEST);
+
+        READERS.put(Platform.class, ModelAdapters.PLATFORM_READER);
+        READERS.put(Gift.class, ModelAdapters.GIFT_READER);
+        READERS.put(CreateChannelResult.class, ModelAdapters.CREATE_CHANNEL_RESULT);
+        READERS.put(JoinChannelResult.class, ModelAdapters.JOIN_CHANNEL_RESULT);
+        READERS.put(HeartBeatResult.class, ModelAdapters.HEART_BEAT_RESULT);
+        READERS.put(HeartBeatResult2.class, ModelAdapters.HEART_BEAT_RESULT2);
+        READERS.put(HeartBeatBatchResult.class, ModelAdapters.HEART_BEAT_BATCH_RESULT);
+        READERS.put(RandomRoomResult.class, ModelAdapters.RANDOM_ROOM_RESULT);
+        READERS.put(GiftListResult.class, ModelAdapters.GIFT_LIST_RESULT);
+        READERS.put(GiftListResult.GiftData.class, ModelAdapters.GIFT_DATA);
+        READERS.put(UpdatePackageResult.class, ModelAdapters.UPDATE_PACKAGE_RESULT);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+        final Class<? super T> rawType = type.getRawType();
+        final ModelAdapters.Writer<T> writer = (ModelAdapters.Writer<T>) WRITERS.get(rawType);
+        final ModelAdapters.Reader<T> reader = (ModelAdapters.Reader<T>) READERS.get(rawType);
+        if (writer == null && reader == null) {
+            return null;
+        }
+        return new TypeAdapter<T>() {
+            /**
+             * 未登记方向的反射实现，首次使用时才创建（避免冷启动时的反射字段扫描）
+             */
+            private volatile TypeAdapter<T> mDelegate;
+
+            @Override
+            public void write(JsonWriter out, T value) throws IOException {
+                if (writer != null) {
+                    ModelAdapters.write(out, value, writer);
+                } else {
+                    delegate().write(out, value);
+                }
+            }
+
+            @Override
+            public T read(JsonReader in) throws IOException {
+                return reader != null ? ModelAdapters.read(in, reader) : delegate().read(in);
+            }
+
+            private TypeAdapter<T> delegate() {
+                TypeAdapter<T> delegate = mDelegate;
+                if (delegate == null) {
+                    // Gson 自身缓存适配器，并发时重复获取无害
+                    delegate = gson.getDelegateAdapter(ModelTypeAdapterFactory.this, type);
+                    mDelegate = delegate;
+                }
+                return delegate;
+            }
+        };
+    }
+}
@@ -2,15 +2,28 @@ package com.basetools.net.config;
 
 import android.text.TextUtils;
 import androidx.annotation.NonNull;
+import com.basetools.util.Timber;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.HttpUrl;
 
 /**
  * 音视频通话初始化配置参数
  */
 public class CallConfig {
+    /**
+     * 礼物素材磁盘缓存的默认上限（字节）
+     */
+    public static final long DEFAULT_GIFT_ASSET_CACHE_BYTES = 64L * 1024 * 1024;
     /**
      * 主域名
      */
     private String baseUrl;
+    /**
+     * 全部域名：主域名在前，其后为备用域名
+     */
+    private List<String> baseUrls;
     /**
      * 是否开启debug
      */
@@ -31,17 +44,119 @@ public class CallConfig {
      * 用于兼容v2版本心跳
      */
     private boolean fixHeartbeatApi;
+    /**
+     * 自适应超时下限（毫秒）
+     */
+    private long minTimeoutMillis;
+    /**
+     * 自适应超时上限（毫秒）
+     */
+    private long maxTimeoutMillis;
+    /**
+     * 快速失败接口（心跳、拒绝、离开）的超时上限（毫秒）
+     */
+    private long fastMaxTimeoutMillis;
+    /**
+     * 大数据传输（文件下载）超时（毫秒）
+     */
+    private long bulkTimeoutMillis;
+    /**
+     * 是否开启网络异常自动重试
+     */
+    private boolean retryEnable;
+    /**
+     * 是否开启对冲请求（createChannel、joinChannel）
+     */
+    private boolean hedgeEnable;
+    /**
+     * 对冲预算：额外请求占原始请求的百分比
+     */
+    private int hedgeBudgetPercent;
+    /**
+     * 是否开启请求体gzip压缩（仅对服务端声明支持的域名、登记了压缩的接口生效）
+     */
+    private boolean compressEnable;
+    /**
+     * 请求体压缩阈值（字节），小于该值不压缩
+     */
+    private int compressMinBytes;
+    /**
+     * 是否开启二进制心跳（需服务端支持，不支持时自动退回Json）
+     */
+    private boolean binaryHeartbeatEnable;
+    /**
+     * 是否开启DNS缓存（后台刷新、IPv4/IPv6连接比较）
+     */
+    private boolean dnsCacheEnable;
+    /**
+     * 信令长连接地址，为空时只使用HTTP
+     */
+    private String signalingUrl;
+    /**
+     * 是否开启多房间心跳（需服务端支持）
+     */
+    private boolean multiRoomHeartbeatEnable;
+    /**
+     * 是否开启礼物素材预下载
+     */
+    private boolean giftPrefetchEnable;
+    /**
+     * 礼物素材磁盘缓存上限（字节）
+     */
+    private long giftAssetCacheBytes;
+    /**
+     * 平台信息快照，首次使用时解析
+     */
+    private volatile PlatformSnapshot platformSnapshot;
 
-    private CallConfig(String baseUrl, String token, String platformJson, boolean global, boolean debugEnable, boolean fixHeartbeatApi) {
-        this.baseUrl = baseUrl;
-        this.token = token;
-        this.platformJson = platformJson;
-        this.global = global;
-        this.debugEnable = debugEnable;
-        this.fixHeartbeatApi = fixHeartbeatApi;
+    private CallConfig(Builder builder) {
+        this.baseUrl = builder.baseUrl;
+        this.token = builder.token;
+        this.platformJson = builder.platformJson;
+        this.global = builder.global;
+        this.debugEnable = builder.debugEnable;
+        this.fixHeartbeatApi = builder.fixHeartbeatApi;
+        this.minTimeoutMillis = builder.minTimeoutMillis;
+        this.maxTimeoutMillis = Math.max(builder.maxTimeoutMillis, builder.minTimeoutMillis);
+        this.fastMaxTimeoutMillis = Math.max(Math.min(builder.fastMaxTimeoutMillis, maxTimeoutMillis), minTimeoutMillis);
+        this.bulkTimeoutMillis = builder.bulkTimeoutMillis;
+        this.retryEnable = builder.retryEnable;
+        this.hedgeEnable = builder.hedgeEnable;
+        this.hedgeBudgetPercent = builder.hedgeBudgetPercent;
+        this.compressEnable = builder.compressEnable;
+        this.compressMinBytes = builder.compressMinBytes;
+        this.binaryHeartbeatEnable = builder.binaryHeartbeatEnable;
+        this.dnsCacheEnable = builder.dnsCacheEnable;
+        this.signalingUrl = builder.signalingUrl;
+        this.multiRoomHeartbeatEnable = builder.multiRoomHeartbeatEnable;
+        this.giftPrefetchEnable = builder.giftPrefetchEnable;
+        this.giftAssetCacheBytes = builder.giftAssetCacheBytes;
+        List<String> baseUrls = new ArrayList<>();
+        baseUrls.add(getBaseUrl());
+        for (String backupBaseUrl : builder.backupBaseUrls) {
+            final String url = normalizeBaseUrl(backupBaseUrl);
+            if (HttpUrl.parse(url == null ? "" : url) == null) {
+                Timber.e("illegal backup baseUrl: " + backupBaseUrl);
+            } else if (!baseUrls.contains(url)) {
+                baseUrls.add(url);
+            }
+        }
+        this.baseUrls = Collections.unmodifiableList(baseUrls);
     }
 
     public String getBaseUrl() {
+        baseUrl = normalizeBaseUrl(baseUrl);
+        return baseUrl;
+    }
+
+    /**
+     * 全部域名，主域名在前，其后按配置顺序为备用域名
+     */
+    public List<String> getBaseUrls() {
+        return baseUrls;
+    }
+
+    private static String normalizeBaseUrl(String baseUrl) {
         if (!TextUtils.isEmpty(baseUrl)){
             // Retrofit$Builder java.lang.IllegalArgumentException: baseUrl must end in /
             if (!baseUrl.endsWith("/")){
@@ -66,6 +181,23 @@ public class CallConfig {
         return platformJson;
     }
 
+    /**
+     * 平台信息快照：每个配置只解析一次，配置更换后随之失效
+     */
+    PlatformSnapshot getPlatformSnapshot() {
+        PlatformSnapshot snapshot = platformSnapshot;
+        if (snapshot == null) {
+            synchronized (this) {
+                snapshot = platformSnapshot;
+                if (snapshot == null) {
+                    snapshot = PlatformSnapshot.parse(platformJson);
+                    platformSnapshot = snapshot;
+                }
+            }
+        }
+        return snapshot;
+    }
+
     public boolean isGlobal() {
         return global;
     }
@@ -74,11 +206,75 @@ public class CallConfig {
         return fixHeartbeatApi;
     }
 
+    public long getMinTimeoutMillis() {
+        return minTimeoutMillis;
+    }
+
+    public long getMaxTimeoutMillis() {
+        return maxTimeoutMillis;
+    }
+
+    public long getFastMaxTimeoutMillis() {
+        return fastMaxTimeoutMillis;
+    }
+
+    public long getBulkTimeoutMillis() {
+        return bulkTimeoutMillis;
+    }
+
+    public boolean isRetryEnable() {
+        return retryEnable;
+    }
+
+    public boolean isHedgeEnable() {
+        return hedgeEnable;
+    }
+
+    public int getHedgeBudgetPercent() {
+        return hedgeBudgetPercent;
+    }
+
+    public boolean isCompressEnable() {
+        return compressEnable;
+    }
+
+    public int getCompressMinBytes() {
+        return compressMinBytes;
+    }
+
+    public boolean isBinaryHeartbeatEnable() {
+        return binaryHeartbeatEnable;
+    }
+
+    public boolean isDnsCacheEnable() {
+        return dnsCacheEnable;
+    }
+
+    public String getSignalingUrl() {
+        return signalingUrl;
+    }
+
+    public boolean isMultiRoomHeartbeatEnable() {
+        return multiRoomHeartbeatEnable;
+    }
+
+    public boolean isGiftPrefetchEnable() {
+        return giftPrefetchEnable;
+    }
+
+    public long getGiftAssetCacheBytes() {
+        return giftAssetCacheBytes;
+    }
+
     public static class Builder{
         /**
          * 主域名
          */
         private String baseUrl;
+        /**
+         * 备用域名
+         */
+        private List<String> backupBaseUrls = Collections.emptyList();
         /**
          * 是否开启debug
          */
@@ -99,6 +295,66 @@ public class CallConfig {
          * 用于兼容v2版本心跳
          */
         private boolean fixHeartbeatApi;
+        /**
+         * 自适应超时下限（毫秒）
+         */
+        private long minTimeoutMillis = 2_000;
+        /**
+         * 自适应超时上限（毫秒）
+         */
+        private long maxTimeoutMillis = 20_000;
+        /**
+         * 快速失败接口的超时上限（毫秒）
+         */
+        private long fastMaxTimeoutMillis = 6_000;
+        /**
+         * 大数据传输超时（毫秒）
+         */
+        private long bulkTimeoutMillis = 60_000;
+        /**
+         * 是否开启网络异常自动重试
+         */
+        private boolean retryEnable = true;
+        /**
+         * 是否开启对冲请求
+         */
+        private boolean hedgeEnable;
+        /**
+         * 对冲预算百分比
+         */
+        private int hedgeBudgetPercent = 10;
+        /**
+         * 是否开启请求体压缩
+         */
+        private boolean compressEnable = true;
+        /**
+         * 请求体压缩阈值（字节）
+         */
+        private int compressMinBytes = 512;
+        /**
+         * 是否开启二进制心跳
+         */
+        private boolean binaryHeartbeatEnable;
+        /**
+         * 是否开启DNS缓存
+         */
+        private boolean dnsCacheEnable = true;
+        /**
+         * 信令长连接地址
+         */
+        private String signalingUrl;
+        /**
+         * 是否开启多房间心跳
+         */
+        private boolean multiRoomHeartbeatEnable;
+        /**
+         * 是否开启礼物素材预下载
+         */
+        private boolean giftPrefetchEnable;
+        /**
+         * 礼物素材磁盘缓存上限（字节）
+         */
+        private long giftAssetCacheBytes = DEFAULT_GIFT_ASSET_CACHE_BYTES;
 
         public Builder(@NonNull String baseUrl, @NonNull String token, @NonNull String platformJson, boolean global) {
             this.baseUrl = baseUrl;
@@ -137,8 +393,150 @@ public class CallConfig {
             return this;
         }
 
+        /**
+         * 设置自适应超时的上下限，接口超时时间根据历史耗时在该区间内动态调整
+         *
+         * @param minTimeoutMillis 下限（毫秒）
+         * @param maxTimeoutMillis 上限（毫秒）
+         */
+        public Builder setTimeoutBounds(long minTimeoutMillis, long maxTimeoutMillis) {
+            this.minTimeoutMillis = minTimeoutMillis;
+            this.maxTimeoutMillis = maxTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 设置快速失败接口（心跳、拒绝、离开）的超时上限
+         *
+         * @param fastMaxTimeoutMillis 上限（毫秒）
+         */
+        public Builder setFastMaxTimeout(long fastMaxTimeoutMillis) {
+            this.fastMaxTimeoutMillis = fastMaxTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 设置大数据传输（插件下载等）的超时时间
+         *
+         * @param bulkTimeoutMillis 超时（毫秒）
+         */
+        public Builder setBulkTimeout(long bulkTimeoutMillis) {
+            this.bulkTimeoutMillis = bulkTimeoutMillis;
+            return this;
+        }
+
+        /**
+         * 设置是否开启网络异常自动重试（默认开启），重试策略按接口配置
+         *
+         * @param retryEnable 是否开启
+         */
+        public Builder setRetryEnable(boolean retryEnable) {
+            this.retryEnable = retryEnable;
+            return this;
+        }
+
+        /**
+         * 设置是否开启对冲请求（默认关闭）：createChannel、joinChannel 在p90耗时内未返回时再发一次相同请求，先返回者胜出
+         *
+         * @param hedgeEnable        是否开启
+         * @param hedgeBudgetPercent 对冲预算，额外请求占原始请求的百分比，如10
+         */
+        public Builder setHedgeEnable(boolean hedgeEnable, int hedgeBudgetPercent) {
+            this.hedgeEnable = hedgeEnable;
+            this.hedgeBudgetPercent = hedgeBudgetPercent;
+            return this;
+        }
+
+        /**
+         * 设置是否开启请求体gzip压缩（默认开启）：仅对服务端通过 Accept-Encoding 声明支持的域名生效
+         *
+         * @param compressEnable   是否开启
+         * @param compressMinBytes 压缩阈值（字节），小于该值的请求体不压缩，如512
+         */
+        public Builder setCompressEnable(boolean compressEnable, int compressMinBytes) {
+            this.compressEnable = compressEnable;
+            this.compressMinBytes = compressMinBytes;
+            return this;
+        }
+
+        /**
+         * 设置是否开启二进制心跳（默认关闭，仅v2心跳）：请求体、响应体使用varint编码，服务端不支持时自动退回Json
+         *
+         * @param binaryHeartbeatEnable 是否开启
+         */
+        public Builder setBinaryHeartbeatEnable(boolean binaryHeartbeatEnable) {
+            this.binaryHeartbeatEnable = binaryHeartbeatEnable;
+            return this;
+        }
+
+        /**
+         * 设置是否开启DNS缓存（默认开启）：解析结果缓存5分钟，到期前后台刷新，刷新期间继续使用旧结果；
+         * 同时有IPv4、IPv6地址时优先使用先连上的协议族
+         *
+         * @param dnsCacheEnable 是否开启
+         */
+        public Builder setDnsCacheEnable(boolean dnsCacheEnable) {
+            this.dnsCacheEnable = dnsCacheEnable;
+            return this;
+        }
+
+        /**
+         * 设置备用域名（按优先级排列）：后台测量各域名延迟，请求发往最快的可用域名；
+         * 域名连接失败或超时后短时间内不再使用，可安全重试的请求立即改发下一个域名
+         *
+         * @param backupBaseUrls 备用域名，与主域名提供相同接口
+         */
+        public Builder setBackupBaseUrls(String... backupBaseUrls) {
+            this.backupBaseUrls = new ArrayList<>();
+            Collections.addAll(this.backupBaseUrls, backupBaseUrls);
+            return this;
+        }
+
+        /**
+         * 设置信令长连接地址（默认不使用）：心跳、离开、拒绝复用一条WebSocket发送，并接收余额变化、随机匹配结果推送；
+         * 未连接或连接异常时自动改用HTTP接口
+         *
+         * @param signalingUrl 信令地址，如 wss://host/rocket/ws，本地联调可指向本机的信令服务
+         */
+        public Builder setSignalingUrl(String signalingUrl) {
+            this.signalingUrl = signalingUrl;
+            return this;
+        }
+
+        /**
+         * 设置是否开启多房间心跳（默认关闭，需服务端支持）：同时持有多个房间（通话最小化后收到新邀请、随机匹配切换）时，
+         * {@link com.basetools.CallKit#startHeartBeat} 启动的各房间心跳合并为一次请求
+         *
+         * @param multiRoomHeartbeatEnable 是否开启
+         */
+        public Builder setMultiRoomHeartbeatEnable(boolean multiRoomHeartbeatEnable) {
+            this.multiRoomHeartbeatEnable = multiRoomHeartbeatEnable;
+            return this;
+        }
+
+        /**
+         * 设置是否开启礼物素材预下载（默认关闭）：礼物目录同步后在后台下载礼物图标和SVGA特效，通话期间暂停；
+         * 已下载的素材通过 {@link com.basetools.net.gift.GiftAssetPrefetcher#getSvgaPath} 等同步读取
+         *
+         * @param giftPrefetchEnable 是否开启
+         */
+        public Builder setGiftPrefetchEnable(boolean giftPrefetchEnable) {
+            this.giftPrefetchEnable = giftPrefetchEnable;
+            return this;
+        }
+
+        /**
+         * 设置礼物素材磁盘缓存上限（默认64MB），超出时淘汰最久未使用的素材
+         *
+         * @param giftAssetCacheBytes 上限（字节）
+         */
+        public Builder setGiftAssetCacheBytes(long giftAssetCacheBytes) {
+            this.giftAssetCacheBytes = giftAssetCacheBytes;
+            return this;
+        }
+
         public CallConfig build(){
-            return new CallConfig(baseUrl, token, platformJson, global, debugEnable, fixHeartbeatApi);
+            return new CallConfig(this);
         }
     }
 }
@@ -0,0 +1,76 @@
+package com.basetools.net.config;
+
+import android.text.TextUtils;
+import com.basetools.CallKit;
+import com.basetools.model.Platform;
+import com.basetools.util.GsonUtils;
+import com.basetools.util.Timber;
+
+/**
+ * 平台信息快照：每个 {@link CallConfig} 只解析一次平台信息Json，并预先编码为请求体使用的Json片段
+ * </br>
+ * 内部使用：请求创建时持有快照和其中共用的 {@link Platform} 实例，序列化时直接拼接预编码的片段，不再逐字段编码。
+ * 共用实例不对外暴露，请求的 getPlatform()/setPlatform() 被调用后改为持有副本（或新的实例）并正常编码。
+ */
+public final class PlatformSnapshot {
+
+    private static final PlatformSnapshot EMPTY = new PlatformSnapshot(null, null);
+
+    private final Platform platform;
+    /**
+     * 预编码的Json片段（不含null字段）
+     */
+    private final String encodedJson;
+
+    private PlatformSnapshot(Platform platform, String encodedJson) {
+        this.platform = platform;
+        this.encodedJson = encodedJson;
+    }
+
+    static PlatformSnapshot parse(String platformJson) {
+        if (TextUtils.isEmpty(platformJson)) {
+            Timber.e("platformJson is empty!");
+            return EMPTY;
+        }
+        try {
+            Platform platform = GsonUtils.fromJson(platformJson, Platform.class);
+            if (platform == null) {
+                Timber.e("platformJson is illegal: " + platformJson);
+                return EMPTY;
+            }
+            // 使用与Retrofit相同的Gson（不输出null字段）编码
+            return new PlatformSnapshot(platform, GsonUtils.getGson().toJson(platform));
+        } catch (RuntimeException e) {
+            Timber.e(e, "platformJson parse failure: " + platformJson);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * 当前配置的快照
+     *
+     * @return 未初始化或平台信息解析失败时返回null
+     */
+    public static PlatformSnapshot current() {
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        if (config == null) {
+            return null;
+        }
+        final PlatformSnapshot snapshot = config.getPlatformSnapshot();
+        return snapshot.platform != null ? snapshot : null;
+    }
+
+    /**
+     * 共用的平台信息，不可修改
+     */
+    public Platform getPlatform() {
+        return platform;
+    }
+
+    /**
+     * 预编码的Json片段（不含null字段）
+     */
+    public String getEncodedJson() {
+        return encodedJson;
+    }
+}
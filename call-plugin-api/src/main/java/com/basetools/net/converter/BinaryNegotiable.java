@@ -0,0 +1,16 @@
+package com.basetools.net.converter;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记接口可协商使用 {@link HeartbeatCodec} 二进制格式，未开启或服务端不支持时使用Json
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface BinaryNegotiable {
+}
@@ -0,0 +1,57 @@
+package com.basetools.net.converter;
+
+import com.basetools.net.core.ApiException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+
+/**
+ * 响应信封 {"code":1, "msg":"", "data":{}} 的流式读取工具
+ */
+final class Envelope {
+
+    static final String CODE = "code";
+    static final String MSG = "msg";
+    static final String DATA = "data";
+    static final int CODE_SUCCESS = 1;
+
+    private Envelope() {
+    }
+
+    /**
+     * 从头扫描顶层字段，只读取 code、msg，其余字段跳过不解析。
+     * code == 1 时立即返回；code != 1 时抛出 {@link ApiException}；没有 code 字段（非信封格式）时直接返回
+     *
+     * @param reader 位于文档起始处的reader
+     */
+    static void check(JsonReader reader) throws IOException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return;
+        }
+        reader.beginObject();
+        Integer code = null;
+        String msg = null;
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (CODE.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                code = reader.nextInt();
+                if (code == CODE_SUCCESS) {
+                    return;
+                }
+                if (msg != null) {
+                    break;
+                }
+            } else if (MSG.equals(name) && reader.peek() == JsonToken.STRING) {
+                msg = reader.nextString();
+                if (code != null) {
+                    break;
+                }
+            } else {
+                reader.skipValue();
+            }
+        }
+        if (code != null) {
+            throw new ApiException(code, msg);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.basetools.net.converter;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * 响应体转换：先在socket数据上预读 code、msg，code != 1 时直接抛出 {@link com.basetools.net.core.ApiException}，
+ * 不再解析 data；code == 1 时由Gson从同一数据流解析完整对象。
+ * </br>
+ * 服务端通常将 code 放在首位，预读只需消费十几个字节；预读使用 {@link okio.BufferedSource#peek()}，
+ * 不影响后续正式解析。只处理响应，请求体仍交由后面的 GsonConverterFactory。
+ */
+public final class EnvelopeConverterFactory extends Converter.Factory {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final Gson gson;
+
+    public static EnvelopeConverterFactory create(Gson gson) {
+        return new EnvelopeConverterFactory(gson);
+    }
+
+    private EnvelopeConverterFactory(Gson gson) {
+        this.gson = gson;
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        return new EnvelopeResponseBodyConverter<>(gson, gson.getAdapter(TypeToken.get(type)));
+    }
+
+    private static final class EnvelopeResponseBodyConverter<T> implements Converter<ResponseBody, T> {
+
+        private final Gson gson;
+        private final TypeAdapter<T> adapter;
+
+        EnvelopeResponseBodyConverter(Gson gson, TypeAdapter<T> adapter) {
+            this.gson = gson;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public T convert(ResponseBody value) throws IOException {
+            try {
+                Envelope.check(gson.newJsonReader(new InputStreamReader(value.source().peek().inputStream(), charset(value))));
+                JsonReader jsonReader = gson.newJsonReader(value.charStream());
+                T result = adapter.read(jsonReader);
+                if (jsonReader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonIOException("JSON document was not fully consumed.");
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        }
+
+        private static Charset charset(ResponseBody value) {
+            MediaType contentType = value.contentType();
+            return contentType != null ? contentType.charset(UTF_8) : UTF_8;
+        }
+    }
+}
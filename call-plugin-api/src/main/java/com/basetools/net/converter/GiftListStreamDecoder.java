@@ -0,0 +1,118 @@
+package com.basetools.net.converter;
+
+import com.basetools.listener.GiftSink;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListResult;
+import com.basetools.net.core.ApiException;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import okhttp3.ResponseBody;
+
+/**
+ * 礼物列表流式解析：边读socket边解析，每个礼物解析后直接交给 {@link GiftSink}
+ * </br>
+ * 返回的 {@link GiftListResult} 只包含 code、msg、lastTime 及 deletedIds，gifts 为null
+ */
+public final class GiftListStreamDecoder {
+
+    private static final String LAST_TIME = "lastTime";
+    private static final String GIFTS = "gifts";
+    private static final String DELETED_IDS = "deletedIds";
+
+    private final TypeAdapter<Gift> mGiftAdapter;
+    private final Gson mGson;
+
+    public GiftListStreamDecoder(Gson gson) {
+        this.mGson = gson;
+        this.mGiftAdapter = gson.getAdapter(Gift.class);
+    }
+
+    public GiftListResult decode(ResponseBody body, GiftSink sink) throws IOException {
+        try (JsonReader reader = mGson.newJsonReader(body.charStream())) {
+            final GiftListResult result = new GiftListResult();
+            final GiftListResult.GiftData data = new GiftListResult.GiftData();
+            boolean codeRead = false;
+            // data 先于 code 返回时暂存，确认 code == 1 后再下发
+            List<Gift> pending = null;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                final String name = reader.nextName();
+                if (Envelope.CODE.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                    result.setCode(reader.nextInt());
+                    codeRead = true;
+                } else if (Envelope.MSG.equals(name) && reader.peek() == JsonToken.STRING) {
+                    result.setMsg(reader.nextString());
+                } else if (Envelope.DATA.equals(name)
+                        && (!codeRead || result.getCode() == Envelope.CODE_SUCCESS)
+                        && reader.peek() == JsonToken.BEGIN_OBJECT) {
+                    pending = readData(reader, data, codeRead ? sink : null);
+                    result.setData(data);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (result.getCode() != Envelope.CODE_SUCCESS) {
+                throw new ApiException(result.getCode(), result.getMsg());
+            }
+            if (pending != null) {
+                for (Gift gift : pending) {
+                    sink.onGift(gift);
+                }
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 解析 data
+     *
+     * @param sink 为null时暂存到返回的列表
+     * @return 暂存的礼物
+     */
+    private List<Gift> readData(JsonReader reader, GiftListResult.GiftData data, GiftSink sink) throws IOException {
+        List<Gift> pending = sink == null ? new ArrayList<Gift>() : null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            final String name = reader.nextName();
+            if (LAST_TIME.equals(name) && reader.peek() == JsonToken.NUMBER) {
+                data.setLastTime(reader.nextLong());
+            } else if (GIFTS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    Gift gift = mGiftAdapter.read(reader);
+                    if (gift == null) {
+                        continue;
+                    }
+                    if (sink != null) {
+                        sink.onGift(gift);
+                    } else {
+                        pending.add(gift);
+                    }
+                }
+                reader.endArray();
+            } else if (DELETED_IDS.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                final ArrayList<String> deletedIds = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    if (reader.peek() == JsonToken.STRING) {
+                        deletedIds.add(reader.nextString());
+                    } else {
+                        reader.skipValue();
+                    }
+                }
+                reader.endArray();
+                data.setDeletedIds(deletedIds);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return pending;
+    }
+}
@@ -0,0 +1,333 @@
+package com.basetools.net.converter;
+
+import com.basetools.CallKit;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.HeartbeatExt;
+import com.basetools.model.Platform;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.config.PlatformSnapshot;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.ByteString;
+
+/**
+ * 心跳二进制编码（定长字段顺序 + varint）
+ * </br>
+ * 整数使用zigzag varint，字符串为 varint(字节长度 + 1) + UTF-8，0 表示null。
+ * <pre>
+ * 请求：version | roomId | chatId | loginFeeType | platform(fid, baseProduct, product, packageName, version,
+ *       versionCode, release, pid, imsi, platform, systemVersion, w, h, netType, country, language,
+ *       phonetype, operator, oaid)
+ * 响应：version | code | msg | flags(bit0 data, bit1 ext, bit2 nextInterval) | [diamondNum] | [nextInterval]
+ *       | [location | accountDia]
+ * </pre>
+ * 通过 Content-Type / Accept 协商：服务端以415拒绝时本进程内退回Json。
+ * 服务端解码、编码可直接参考 {@link #decodeRequest(BufferedSource)}、{@link #encodeResult(HeartBeatResult2)}。
+ */
+public final class HeartbeatCodec {
+
+    public static final MediaType MEDIA_TYPE = MediaType.parse("application/x-callkit-heartbeat");
+    public static final String ACCEPT = "application/x-callkit-heartbeat, application/json";
+
+    private static final int VERSION = 1;
+    private static final int FLAG_DATA = 1;
+    private static final int FLAG_EXT = 1 << 1;
+    private static final int FLAG_INTERVAL = 1 << 2;
+
+    /**
+     * 服务端不支持二进制格式
+     */
+    private static volatile boolean sRejected;
+    /**
+     * 共享平台信息的编码缓存
+     */
+    private static volatile EncodedPlatform sCachedPlatform;
+
+    private HeartbeatCodec() {
+    }
+
+    /**
+     * 是否使用二进制心跳：配置开启且服务端未拒绝
+     */
+    public static boolean isEnabled() {
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        return config != null && config.isBinaryHeartbeatEnable() && !sRejected;
+    }
+
+    /**
+     * 服务端返回415，本进程内不再使用二进制格式
+     */
+    public static void onRejected() {
+        sRejected = true;
+    }
+
+    public static boolean isBinary(MediaType contentType) {
+        return contentType != null
+                && MEDIA_TYPE.type().equals(contentType.type())
+                && MEDIA_TYPE.subtype().equals(contentType.subtype());
+    }
+
+    // ------------------------------ 请求 ------------------------------
+
+    public static ByteString encodeRequest(HeartBeatRequest request) {
+        Buffer buffer = new Buffer();
+        writeVarint(buffer, VERSION);
+        writeString(buffer, request.getRoomId());
+        writeString(buffer, request.getChatId());
+        writeInt(buffer, request.getLoginFeeType());
+        final PlatformSnapshot shared = request.getPlatformSnapshot();
+        buffer.write(shared != null ? encodeSharedPlatform(shared) : encodePlatform(request.getPlatform()));
+        return buffer.readByteString();
+    }
+
+    public static HeartBeatRequest decodeRequest(BufferedSource source) throws IOException {
+        checkVersion(source);
+        HeartBeatRequest request = new HeartBeatRequest(readString(source), readString(source), readInt(source));
+        request.setPlatform(decodePlatform(source));
+        return request;
+    }
+
+    /**
+     * 共用的平台信息每个快照只编码一次
+     */
+    private static ByteString encodeSharedPlatform(PlatformSnapshot shared) {
+        final EncodedPlatform cached = sCachedPlatform;
+        if (cached != null && cached.snapshot == shared) {
+            return cached.bytes;
+        }
+        final ByteString bytes = encodePlatform(shared.getPlatform());
+        sCachedPlatform = new EncodedPlatform(shared, bytes);
+        return bytes;
+    }
+
+    private static ByteString encodePlatform(Platform platform) {
+        Buffer buffer = new Buffer();
+        if (platform == null) {
+            buffer.writeByte(0);
+            return buffer.readByteString();
+        }
+        buffer.writeByte(1);
+        writeLong(buffer, platform.getFid());
+        writeInt(buffer, platform.getBaseProduct());
+        writeInt(buffer, platform.getProduct());
+        writeString(buffer, platform.getPackageName());
+        writeString(buffer, platform.getVersion());
+        writeInt(buffer, platform.getVersionCode());
+        writeString(buffer, platform.getRelease());
+        writeString(buffer, platform.getPid());
+        writeString(buffer, platform.getImsi());
+        writeInt(buffer, platform.getPlatform());
+        writeString(buffer, platform.getSystemVersion());
+        writeInt(buffer, platform.getW());
+        writeInt(buffer, platform.getH());
+        writeInt(buffer, platform.getNetType());
+        writeString(buffer, platform.getCountry());
+        writeString(buffer, platform.getLanguage());
+        writeString(buffer, platform.getPhonetype());
+        writeString(buffer, platform.getOperator());
+        writeString(buffer, platform.getOaid());
+        return buffer.readByteString();
+    }
+
+    private static Platform decodePlatform(BufferedSource source) throws IOException {
+        if (readByte(source) == 0) {
+            return null;
+        }
+        Platform platform = new Platform();
+        platform.setFid(readLong(source));
+        platform.setBaseProduct(readInt(source));
+        platform.setProduct(readInt(source));
+        platform.setPackageName(readString(source));
+        platform.setVersion(readString(source));
+        platform.setVersionCode(readInt(source));
+        platform.setRelease(readString(source));
+        platform.setPid(readString(source));
+        platform.setImsi(readString(source));
+        platform.setPlatform(readInt(source));
+        platform.setSystemVersion(readString(source));
+        platform.setW(readInt(source));
+        platform.setH(readInt(source));
+        platform.setNetType(readInt(source));
+        platform.setCountry(readString(source));
+        platform.setLanguage(readString(source));
+        platform.setPhonetype(readString(source));
+        platform.setOperator(readString(source));
+        platform.setOaid(readString(source));
+        return platform;
+    }
+
+    // ------------------------------ 响应 ------------------------------
+
+    public static ByteString encodeResult(HeartBeatResult2 result) {
+        Buffer buffer = new Buffer();
+        writeVarint(buffer, VERSION);
+        writeInt(buffer, result.getCode());
+        writeString(buffer, result.getMsg());
+        final HeartBeatResult2.Data data = result.getData();
+        final HeartbeatExt ext = result.getExt();
+        final boolean hasInterval = data != null && data.getNextInterval() != 0;
+        writeVarint(buffer, (data != null ? FLAG_DATA : 0) | (ext != null ? FLAG_EXT : 0)
+                | (hasInterval ? FLAG_INTERVAL : 0));
+        if (data != null) {
+            writeInt(buffer, data.getDiamondNum());
+        }
+        if (hasInterval) {
+            writeInt(buffer, data.getNextInterval());
+        }
+        if (ext != null) {
+            writeString(buffer, ext.getLocation());
+            writeString(buffer, ext.getAccountDia());
+        }
+        return buffer.readByteString();
+    }
+
+    public static HeartBeatResult2 decodeResult(BufferedSource source) throws IOException {
+        checkVersion(source);
+        HeartBeatResult2 result = new HeartBeatResult2();
+        result.setCode(readInt(source));
+        result.setMsg(readString(source));
+        final long flags = readVarint(source);
+        if ((flags & FLAG_DATA) != 0) {
+            HeartBeatResult2.Data data = new HeartBeatResult2.Data();
+            data.setDiamondNum(readInt(source));
+            if ((flags & FLAG_INTERVAL) != 0) {
+                data.setNextInterval(readInt(source));
+            }
+            result.setData(data);
+        }
+        if ((flags & FLAG_EXT) != 0) {
+            HeartbeatExt ext = new HeartbeatExt();
+            ext.setLocation(readString(source));
+            ext.setAccountDia(readString(source));
+            result.setExt(ext);
+        }
+        return result;
+    }
+
+    /**
+     * 二进制心跳请求体，保留原始请求以便服务端拒绝时改用Json重发
+     */
+    public static final class BinaryRequestBody extends RequestBody {
+
+        private final HeartBeatRequest request;
+        private final ByteString bytes;
+
+        BinaryRequestBody(HeartBeatRequest request) {
+            this.request = request;
+            this.bytes = encodeRequest(request);
+        }
+
+        public HeartBeatRequest getRequest() {
+            return request;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return bytes.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            sink.write(bytes);
+        }
+    }
+
+    private static final class EncodedPlatform {
+        final PlatformSnapshot snapshot;
+        final ByteString bytes;
+
+        EncodedPlatform(PlatformSnapshot snapshot, ByteString bytes) {
+            this.snapshot = snapshot;
+            this.bytes = bytes;
+        }
+    }
+
+    // ------------------------------ varint ------------------------------
+
+    private static void checkVersion(BufferedSource source) throws IOException {
+        final long version = readVarint(source);
+        if (version != VERSION) {
+            throw new ProtocolException("unsupported heartbeat codec version: " + version);
+        }
+    }
+
+    private static void writeVarint(Buffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.writeByte((int) value);
+    }
+
+    private static long readVarint(BufferedSource source) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final byte b = readByte(source);
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new ProtocolException("malformed varint");
+    }
+
+    /**
+     * 输入不完整时抛出 {@link EOFException}：{@link Buffer} 直接读取时抛出的是 IllegalStateException，先 require 统一行为
+     */
+    private static byte readByte(BufferedSource source) throws IOException {
+        source.require(1);
+        return source.readByte();
+    }
+
+    private static void writeInt(Buffer buffer, int value) {
+        writeVarint(buffer, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+    }
+
+    private static int readInt(BufferedSource source) throws IOException {
+        final int value = (int) readVarint(source);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeLong(Buffer buffer, long value) {
+        writeVarint(buffer, (value << 1) ^ (value >> 63));
+    }
+
+    private static long readLong(BufferedSource source) throws IOException {
+        final long value = readVarint(source);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(Buffer buffer, String value) {
+        if (value == null) {
+            writeVarint(buffer, 0);
+            return;
+        }
+        final ByteString utf8 = ByteString.encodeUtf8(value);
+        writeVarint(buffer, utf8.size() + 1L);
+        buffer.write(utf8);
+    }
+
+    private static String readString(BufferedSource source) throws IOException {
+        final long length = readVarint(source);
+        if (length == 0) {
+            return null;
+        }
+        if (length - 1 > Integer.MAX_VALUE) {
+            throw new EOFException("string too long: " + length);
+        }
+        source.require(length - 1);
+        return source.readUtf8(length - 1);
+    }
+}
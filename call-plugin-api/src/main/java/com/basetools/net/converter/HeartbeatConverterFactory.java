@@ -0,0 +1,70 @@
+package com.basetools.net.converter;
+
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.net.core.ApiException;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * 心跳二进制格式转换：标记了 {@link BinaryNegotiable} 的接口在开启时以二进制发送请求，
+ * 服务端返回二进制响应时按二进制解析，否则交给后续的Json转换
+ */
+public final class HeartbeatConverterFactory extends Converter.Factory {
+
+    public static HeartbeatConverterFactory create() {
+        return new HeartbeatConverterFactory();
+    }
+
+    private HeartbeatConverterFactory() {
+    }
+
+    @Override
+    public Converter<?, RequestBody> requestBodyConverter(Type type, Annotation[] parameterAnnotations,
+                                                          Annotation[] methodAnnotations, Retrofit retrofit) {
+        if (type != HeartBeatRequest.class || !isBinaryNegotiable(methodAnnotations)) {
+            return null;
+        }
+        final Converter<HeartBeatRequest, RequestBody> json =
+                retrofit.nextRequestBodyConverter(this, type, parameterAnnotations, methodAnnotations);
+        return (Converter<HeartBeatRequest, RequestBody>) value -> HeartbeatCodec.isEnabled()
+                ? new HeartbeatCodec.BinaryRequestBody(value)
+                : json.convert(value);
+    }
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        if (type != HeartBeatResult2.class) {
+            return null;
+        }
+        final Converter<ResponseBody, HeartBeatResult2> json = retrofit.nextResponseBodyConverter(this, type, annotations);
+        return (Converter<ResponseBody, HeartBeatResult2>) value -> {
+            if (!HeartbeatCodec.isBinary(value.contentType())) {
+                return json.convert(value);
+            }
+            try {
+                HeartBeatResult2 result = HeartbeatCodec.decodeResult(value.source());
+                if (result.getCode() != Envelope.CODE_SUCCESS) {
+                    throw new ApiException(result.getCode(), result.getMsg());
+                }
+                return result;
+            } finally {
+                value.close();
+            }
+        };
+    }
+
+    private static boolean isBinaryNegotiable(Annotation[] methodAnnotations) {
+        for (Annotation annotation : methodAnnotations) {
+            if (annotation instanceof BinaryNegotiable) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
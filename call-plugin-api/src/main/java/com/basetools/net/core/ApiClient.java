@@ -1,79 +1,224 @@
 package com.basetools.net.core;
 
 import com.basetools.CallKit;
+import com.basetools.net.converter.EnvelopeConverterFactory;
+import com.basetools.net.converter.HeartbeatConverterFactory;
+import com.basetools.net.dns.CachingDns;
+import com.basetools.net.interceptor.AdaptiveTimeoutInterceptor;
+import com.basetools.net.interceptor.FailoverInterceptor;
+import com.basetools.net.interceptor.GzipRequestInterceptor;
 import com.basetools.net.interceptor.HeaderInterceptor;
+import com.basetools.net.interceptor.HeartbeatCodecInterceptor;
 import com.basetools.net.interceptor.NetworkLogInterceptor;
 import com.basetools.util.GsonUtils;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import com.basetools.util.Timber;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
 import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 import retrofit2.converter.gson.GsonConverterFactory;
 
+/**
+ * 网络请求客户端
+ * </br>
+ * OkHttpClient（连接池、Dispatcher）全局只构建一次，Retrofit实例按baseUrl缓存，接口代理按(baseUrl, Class)缓存，
+ * 避免每次请求都重新握手及创建对象。
+ * 请求、OkHttp异步调用及回调的线程均由进程内唯一的 {@link NetworkExecutors} 提供。
+ */
 public class ApiClient {
 
-    private Retrofit.Builder mRetrofitBuilder;
-    private OkHttpClient.Builder mOkHttpClientBuilder;
     private static final int DEFAULT_TIMEOUT = 60;
-    private static ApiClient apiClient;
+    private static volatile ApiClient apiClient;
+
+    private final boolean mAddCallAdapterFactory;
+    private final OkHttpClient mOkHttpClient;
+    /**
+     * baseUrl -> Retrofit
+     */
+    private final ConcurrentHashMap<String, Retrofit> mRetrofitCache = new ConcurrentHashMap<>();
+    /**
+     * baseUrl#className -> 接口代理
+     */
+    private final ConcurrentHashMap<String, Object> mApiCache = new ConcurrentHashMap<>();
+
+    private static class ExecutorsHolder {
+        private static final NetworkExecutors sExecutors = new NetworkExecutors();
+    }
+
+    /**
+     * 网络层线程池，所有ApiClient实例共用
+     */
+    public static NetworkExecutors getExecutors() {
+        return ExecutorsHolder.sExecutors;
+    }
+
+    private static class DnsHolder {
+        private static final CachingDns sDns = new CachingDns(Dns.SYSTEM,
+                getExecutors().getExecutor(NetworkExecutors.Pool.DNS));
+    }
+
+    /**
+     * DNS缓存，所有ApiClient实例共用
+     */
+    public static CachingDns getDns() {
+        return DnsHolder.sDns;
+    }
+
+    private static class RouterHolder {
+        private static final BaseUrlRouter sRouter = new BaseUrlRouter();
+    }
+
+    /**
+     * 多域名路由，所有ApiClient实例共用
+     */
+    public static BaseUrlRouter getRouter() {
+        return RouterHolder.sRouter;
+    }
 
     public static ApiClient getInstance() {
         return getInstance(true);
     }
 
-    public synchronized static ApiClient getInstance(boolean isAddCallAdapterFactory) {
-        if (apiClient == null) {
-            apiClient = new ApiClient(isAddCallAdapterFactory);
+    /**
+     * 首次调用时初始化，之后无锁读取
+     *
+     * @param isAddCallAdapterFactory 是否添加RxJava2 CallAdapter（仅首次初始化时生效）
+     * @return ApiClient
+     */
+    public static ApiClient getInstance(boolean isAddCallAdapterFactory) {
+        ApiClient client = apiClient;
+        if (client == null) {
+            synchronized (ApiClient.class) {
+                client = apiClient;
+                if (client == null) {
+                    client = new ApiClient(isAddCallAdapterFactory);
+                    apiClient = client;
+                }
+            }
         }
-        return apiClient;
+        return client;
     }
 
     public ApiClient() {
-        initApiClient(true);
+        this(true);
     }
 
     public ApiClient(boolean isAddCallAdapterFactory) {
-        initApiClient(isAddCallAdapterFactory);
-    }
-
-    private void initApiClient(boolean isAddCallAdapterFactory) {
-        mRetrofitBuilder = new Retrofit.Builder();
-        // String replace = baseHost.replace("https", "http");
-        if (isAddCallAdapterFactory) {
-            mRetrofitBuilder.addCallAdapterFactory(RxJava2CallAdapterFactory.create());
-        }
-        mRetrofitBuilder.baseUrl(CallKit.getInstance().getBaseUrl())
-                .addConverterFactory(GsonConverterFactory.create(GsonUtils.getGson()))
-                .callbackExecutor(new ThreadPoolExecutor(2, 50, 20L,
-                        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(64),
-                        new ThreadPoolExecutor.DiscardOldestPolicy()));
+        mAddCallAdapterFactory = isAddCallAdapterFactory;
+        // 异步调用使用有界线程池，并发数不超过线程数
+        final Dispatcher dispatcher = new Dispatcher(getExecutors().getExecutor(NetworkExecutors.Pool.ASYNC));
+        dispatcher.setMaxRequests(NetworkExecutors.ASYNC_THREADS);
+        dispatcher.setMaxRequestsPerHost(NetworkExecutors.ASYNC_THREADS);
 
-        mOkHttpClientBuilder = new OkHttpClient.Builder();
+        OkHttpClient.Builder okHttpClientBuilder = new OkHttpClient.Builder();
+        okHttpClientBuilder.dispatcher(dispatcher)
+                .dns(getDns());
         // 添加日志
-        mOkHttpClientBuilder.connectTimeout(DEFAULT_TIMEOUT, TimeUnit.SECONDS)
+        okHttpClientBuilder.connectTimeout(DEFAULT_TIMEOUT, TimeUnit.SECONDS)
                 .readTimeout(DEFAULT_TIMEOUT, TimeUnit.SECONDS)
                 .writeTimeout(DEFAULT_TIMEOUT, TimeUnit.SECONDS)
-                .addInterceptor(new HeaderInterceptor());
+                // 需在最前，改发其他域名时重新经过下面的拦截器
+                .addInterceptor(new FailoverInterceptor())
+                .addInterceptor(new HeaderInterceptor())
+                // 按接口自适应超时，覆盖上面的默认值
+                .addInterceptor(new AdaptiveTimeoutInterceptor())
+                .addInterceptor(new HeartbeatCodecInterceptor())
+                // 需在HeaderInterceptor之后
+                .addInterceptor(new GzipRequestInterceptor());
         if (CallKit.getInstance().isDebugEnable()) {
-            mOkHttpClientBuilder.addNetworkInterceptor(new NetworkLogInterceptor());
+            okHttpClientBuilder.addNetworkInterceptor(new NetworkLogInterceptor());
         }
+        mOkHttpClient = okHttpClientBuilder.build();
     }
 
-    public OkHttpClient getOkHttpClient(){
-        return mOkHttpClientBuilder.build();
+    public OkHttpClient getOkHttpClient() {
+        return mOkHttpClient;
     }
 
-    public <S> S createApi(String baseUrl, Class<S> ApiClass) {
-        mRetrofitBuilder.baseUrl(baseUrl);
-        return createApi(ApiClass);
+    /**
+     * 预连接：后台向目标域名发起一次HEAD请求，完成DNS、TCP、TLS握手后将连接留在连接池中，同时预解析域名，
+     * 后续createChannel、joinChannel等请求可直接复用；耗时作为 {@link BaseUrlRouter} 选择域名的依据
+     *
+     * @param baseUrl 目标域名
+     */
+    public void preconnect(final String baseUrl) {
+        final HttpUrl url = baseUrl == null ? null : HttpUrl.parse(baseUrl);
+        if (url == null) {
+            Timber.e("preconnect failure, illegal baseUrl: " + baseUrl);
+            return;
+        }
+        getDns().prefetch(url);
+        final Request request = new Request.Builder().url(url).head().build();
+        final long start = System.nanoTime();
+        mOkHttpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                getRouter().recordFailure(baseUrl);
+                Timber.d("preconnect failure >>> " + url.host() + " | " + e.getMessage());
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                // 只需要连接，丢弃响应内容，连接归还连接池
+                response.close();
+                if (response.code() >= 500) {
+                    getRouter().recordFailure(baseUrl);
+                } else {
+                    getRouter().recordLatency(baseUrl, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                Timber.d("preconnect success >>> " + url.host() + " | " + response.code());
+            }
+        });
     }
 
     public <S> S createApi(Class<S> ApiClass) {
-        return mRetrofitBuilder
-                .client(mOkHttpClientBuilder.build())
-                .build()
-                .create(ApiClass);
+        return createApi(CallKit.getInstance().getBaseUrl(), ApiClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <S> S createApi(String baseUrl, Class<S> ApiClass) {
+        final String key = baseUrl + "#" + ApiClass.getName();
+        Object api = mApiCache.get(key);
+        if (api == null) {
+            api = getRetrofit(baseUrl).create(ApiClass);
+            Object previous = mApiCache.putIfAbsent(key, api);
+            if (previous != null) {
+                api = previous;
+            }
+        }
+        return (S) api;
+    }
+
+    private Retrofit getRetrofit(String baseUrl) {
+        Retrofit retrofit = mRetrofitCache.get(baseUrl);
+        if (retrofit == null) {
+            Retrofit.Builder builder = new Retrofit.Builder();
+            if (mAddCallAdapterFactory) {
+                builder.addCallAdapterFactory(RxJava2CallAdapterFactory.create());
+            }
+            retrofit = builder.baseUrl(baseUrl)
+                    .client(mOkHttpClient)
+                    // 心跳可协商二进制格式
+                    .addConverterFactory(HeartbeatConverterFactory.create())
+                    // 响应先校验code再解析，请求体仍由Gson转换
+                    .addConverterFactory(EnvelopeConverterFactory.create(GsonUtils.getGson()))
+                    .addConverterFactory(GsonConverterFactory.create(GsonUtils.getGson()))
+                    .callbackExecutor(getExecutors().getExecutor(NetworkExecutors.Pool.CALLBACK))
+                    .build();
+            Retrofit previous = mRetrofitCache.putIfAbsent(baseUrl, retrofit);
+            if (previous != null) {
+                retrofit = previous;
+            }
+        }
+        return retrofit;
     }
 }
@@ -6,6 +6,8 @@ public class ApiException extends RuntimeException {
     public static final int CODE_SUCCEED = 1;
     public static final int CODE_EMPTY = -1;
     public static final int CODE_MSG_INTERREPT = 1300;
+    // 熔断中，请求未发出直接失败
+    public static final int CODE_CIRCUIT_OPEN = -2;
     // token失效
     public static final int BUSINESS_CODE_TOKEN_INVALID = 1000;
     // 用户不存在
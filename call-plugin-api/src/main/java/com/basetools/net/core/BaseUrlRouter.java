@@ -0,0 +1,144 @@
+package com.basetools.net.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 多域名路由：按延迟选择最快的可用域名
+ * </br>
+ * 延迟只来自预连接探测（{@link ApiClient#preconnect(String)}），按指数加权平均；实际请求耗时包含服务端处理时间，
+ * 各域名不可比，只用于判断成功或失败。连接失败、超时或网关错误后该域名 {@link #COOLDOWN_MILLIS} 内排在最后。
+ * 尚无延迟数据的域名保持配置顺序，排在有数据的域名之后。前台时由 {@link LatencyProber} 定期重新探测。
+ */
+public final class BaseUrlRouter {
+
+    private static final long COOLDOWN_MILLIS = 30_000;
+    /**
+     * 新样本权重 1/EWMA_DIVISOR
+     */
+    private static final int EWMA_DIVISOR = 4;
+
+    private final ConcurrentHashMap<String, State> mStates = new ConcurrentHashMap<>();
+
+    BaseUrlRouter() {
+    }
+
+    /**
+     * 按优先级排列域名
+     *
+     * @param baseUrls 配置的域名，主域名在前
+     * @return 可用域名按延迟从低到高，其后为尚无数据的域名，最后为失败冷却中的域名
+     */
+    public List<String> order(List<String> baseUrls) {
+        final List<String> measured = new ArrayList<>(baseUrls.size());
+        final List<Long> latencies = new ArrayList<>(baseUrls.size());
+        final List<String> unmeasured = new ArrayList<>();
+        final List<String> coolingDown = new ArrayList<>();
+        for (String baseUrl : baseUrls) {
+            final State state = mStates.get(baseUrl);
+            final long latency = state != null ? state.latency() : -1;
+            if (state != null && state.isCoolingDown()) {
+                coolingDown.add(baseUrl);
+            } else if (latency < 0) {
+                unmeasured.add(baseUrl);
+            } else {
+                // 插入排序，延迟相同时保持配置顺序
+                int index = 0;
+                while (index < latencies.size() && latencies.get(index) <= latency) {
+                    index++;
+                }
+                measured.add(index, baseUrl);
+                latencies.add(index, latency);
+            }
+        }
+        measured.addAll(unmeasured);
+        measured.addAll(coolingDown);
+        return measured;
+    }
+
+    /**
+     * 记录一次探测耗时
+     *
+     * @param baseUrl 域名
+     * @param millis  耗时（毫秒）
+     */
+    public void recordLatency(String baseUrl, long millis) {
+        stateOf(baseUrl).onLatency(millis);
+    }
+
+    /**
+     * 记录一次成功的请求，结束冷却
+     *
+     * @param baseUrl 域名
+     */
+    public void recordSuccess(String baseUrl) {
+        final State state = mStates.get(baseUrl);
+        if (state != null) {
+            state.onSuccess();
+        }
+    }
+
+    /**
+     * 记录一次失败（连接失败、超时、网关错误）
+     *
+     * @param baseUrl 域名
+     */
+    public void recordFailure(String baseUrl) {
+        stateOf(baseUrl).onFailure();
+    }
+
+    private State stateOf(String baseUrl) {
+        State state = mStates.get(baseUrl);
+        if (state == null) {
+            state = new State();
+            final State previous = mStates.putIfAbsent(baseUrl, state);
+            if (previous != null) {
+                state = previous;
+            }
+        }
+        return state;
+    }
+
+    @Override
+    public String toString() {
+        return "BaseUrlRouter" + mStates;
+    }
+
+    private static final class State {
+        /**
+         * 平均延迟（毫秒），-1 表示尚无数据
+         */
+        private long latency = -1;
+        private long failedAt;
+        private boolean failed;
+
+        synchronized void onLatency(long millis) {
+            latency = latency < 0 ? millis : latency + (millis - latency) / EWMA_DIVISOR;
+            failed = false;
+        }
+
+        synchronized void onSuccess() {
+            failed = false;
+        }
+
+        synchronized void onFailure() {
+            failed = true;
+            failedAt = System.nanoTime();
+        }
+
+        synchronized long latency() {
+            return latency;
+        }
+
+        synchronized boolean isCoolingDown() {
+            return failed && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - failedAt) < COOLDOWN_MILLIS;
+        }
+
+        @Override
+        public synchronized String toString() {
+            return "{latency=" + latency + ", coolingDown=" + isCoolingDown() + '}';
+        }
+    }
+}
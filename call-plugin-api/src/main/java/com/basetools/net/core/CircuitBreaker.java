@@ -0,0 +1,175 @@
+package com.basetools.net.core;
+
+import com.basetools.util.Timber;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.Observable;
+import retrofit2.HttpException;
+
+/**
+ * 熔断器（按接口）
+ * </br>
+ * CLOSED：正常放行，统计最近 {@link #WINDOW_SIZE} 次请求的失败率及慢请求率，超过阈值后进入OPEN；</br>
+ * OPEN：直接失败（{@link ApiException#CODE_CIRCUIT_OPEN}），不再请求服务端，{@link #OPEN_DURATION_MILLIS} 后进入HALF_OPEN；</br>
+ * HALF_OPEN：只放行一个探测请求，成功则恢复CLOSED，失败则重新OPEN。
+ */
+public class CircuitBreaker {
+
+    private static final int STATE_CLOSED = 0;
+    private static final int STATE_OPEN = 1;
+    private static final int STATE_HALF_OPEN = 2;
+
+    private static final int WINDOW_SIZE = 20;
+    static final int MIN_CALLS = 10;
+    private static final int FAILURE_RATE_THRESHOLD = 50;
+    private static final int SLOW_CALL_RATE_THRESHOLD = 80;
+    static final long SLOW_CALL_MILLIS = 5_000;
+    static final long OPEN_DURATION_MILLIS = 15_000;
+    private static final String MSG_CIRCUIT_OPEN = "service busy, please try again later";
+
+    private final String name;
+    private final Ticker ticker;
+    /**
+     * 最近请求结果环形窗口：0 成功 1 失败 2 慢请求
+     */
+    private final byte[] window = new byte[WINDOW_SIZE];
+    private int windowIndex;
+    private int windowCount;
+    private int state = STATE_CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name) {
+        this(name, System::nanoTime);
+    }
+
+    /**
+     * @param ticker 计算请求耗时及熔断时长使用的时钟，测试时替换
+     */
+    CircuitBreaker(String name, Ticker ticker) {
+        this.name = name;
+        this.ticker = ticker;
+    }
+
+    /**
+     * 为单次请求加上熔断保护
+     *
+     * @param attempt 单次请求
+     * @return 受保护的请求
+     */
+    public <T> Observable<T> protect(Observable<T> attempt) {
+        return Observable.defer(() -> {
+            if (!tryAcquirePermission()) {
+                NetworkMetrics.getInstance().onCircuitRejected();
+                return Observable.<T>error(new ApiException(ApiException.CODE_CIRCUIT_OPEN, MSG_CIRCUIT_OPEN));
+            }
+            final long start = ticker.nanoTime();
+            final boolean[] done = new boolean[1];
+            return attempt.doOnNext(t -> {
+                done[0] = true;
+                onResult(false, elapsedMillis(start));
+            }).doOnError(e -> {
+                done[0] = true;
+                onResult(isFailure(e), elapsedMillis(start));
+            }).doOnDispose(() -> {
+                if (!done[0]) {
+                    onCancelled();
+                }
+            });
+        });
+    }
+
+    private long elapsedMillis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(ticker.nanoTime() - start);
+    }
+
+    /**
+     * 网络异常及5xx计为失败，其他（如4xx）说明服务端可正常响应
+     */
+    private static boolean isFailure(Throwable e) {
+        if (e instanceof IOException) {
+            return true;
+        }
+        return e instanceof HttpException && ((HttpException) e).code() >= 500;
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        if (state == STATE_OPEN) {
+            if (elapsedMillis(openedAt) < OPEN_DURATION_MILLIS) {
+                return false;
+            }
+            state = STATE_HALF_OPEN;
+            Timber.w("circuit half-open >>> " + name);
+        }
+        if (state == STATE_HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    private synchronized void onResult(boolean failure, long latencyMillis) {
+        final boolean slow = latencyMillis > SLOW_CALL_MILLIS;
+        if (state == STATE_HALF_OPEN) {
+            probeInFlight = false;
+            if (failure || slow) {
+                open();
+            } else {
+                Timber.w("circuit closed >>> " + name);
+                state = STATE_CLOSED;
+                windowCount = 0;
+                windowIndex = 0;
+            }
+            return;
+        }
+        if (state != STATE_CLOSED) {
+            return;
+        }
+        window[windowIndex] = (byte) (failure ? 1 : slow ? 2 : 0);
+        windowIndex = (windowIndex + 1) % WINDOW_SIZE;
+        if (windowCount < WINDOW_SIZE) {
+            windowCount++;
+        }
+        if (windowCount < MIN_CALLS) {
+            return;
+        }
+        int failures = 0;
+        int slowCalls = 0;
+        for (int i = 0; i < windowCount; i++) {
+            if (window[i] == 1) {
+                failures++;
+            } else if (window[i] == 2) {
+                slowCalls++;
+            }
+        }
+        if (failures * 100 >= FAILURE_RATE_THRESHOLD * windowCount
+                || slowCalls * 100 >= SLOW_CALL_RATE_THRESHOLD * windowCount) {
+            open();
+        }
+    }
+
+    private synchronized void onCancelled() {
+        // 探测请求被取消，允许下一个请求继续探测
+        if (state == STATE_HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private void open() {
+        Timber.w("circuit open >>> " + name);
+        state = STATE_OPEN;
+        openedAt = ticker.nanoTime();
+        probeInFlight = false;
+        windowCount = 0;
+        windowIndex = 0;
+    }
+
+    /**
+     * 单调时钟，单位纳秒
+     */
+    interface Ticker {
+        long nanoTime();
+    }
+}
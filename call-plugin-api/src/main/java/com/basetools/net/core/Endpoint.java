@@ -0,0 +1,228 @@
+package com.basetools.net.core;
+
+import androidx.annotation.IntDef;
+import com.basetools.constant.RequestPriority;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.service.CallService;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import okhttp3.HttpUrl;
+
+/**
+ * 接口策略：每个 {@link CallService} 接口的超时等级、优先级、重试策略、是否可对冲、是否压缩请求体、熔断器及耗时统计
+ */
+public final class Endpoint {
+
+    /**
+     * 超时等级
+     */
+    @IntDef({TimeoutLevel.FAST, TimeoutLevel.NORMAL, TimeoutLevel.BULK})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface TimeoutLevel {
+        /** 快速失败：心跳、拒绝、离开 */
+        int FAST = 0;
+        /** 普通业务接口 */
+        int NORMAL = 1;
+        /** 大数据传输：插件下载等 */
+        int BULK = 2;
+    }
+
+    /**
+     * 计算分位耗时前需要的最少样本数，不足时使用上限
+     */
+    private static final int MIN_SAMPLES = 8;
+
+    private static final List<Endpoint> ENDPOINTS = new ArrayList<>();
+    private static final ConcurrentHashMap<String, Endpoint> PATH_CACHE = new ConcurrentHashMap<>();
+
+    public static final Endpoint UPDATE_PACKAGE = register(CallService.UPDATE_PACKAGE, TimeoutLevel.NORMAL,
+            RequestPriority.BACKGROUND, new RetryPolicy(2, 500, 4_000)).enableCompression();
+    public static final Endpoint CREATE_CHANNEL = register(CallService.CREATE_CHANNEL, TimeoutLevel.NORMAL,
+            RequestPriority.INTERACTIVE, new RetryPolicy(2, 300, 2_000)).enableHedging();
+    public static final Endpoint JOIN_CHANNEL = register(CallService.JOIN_CHANNEL, TimeoutLevel.NORMAL,
+            RequestPriority.CRITICAL, new RetryPolicy(2, 300, 2_000)).enableHedging();
+    /** 随机匹配由调用方轮询，不重试 */
+    public static final Endpoint RANDOM_ROOM = register(CallService.RANDOM_ROOM, TimeoutLevel.NORMAL,
+            RequestPriority.INTERACTIVE, RetryPolicy.NONE).enableCompression();
+    /** 心跳周期性上传完整平台信息，压缩收益最大 */
+    public static final Endpoint HEART_BEAT = register(CallService.HEART_BEAT, TimeoutLevel.FAST,
+            RequestPriority.CRITICAL, new RetryPolicy(1, 500, 1_000)).enableCompression();
+    /** 多房间心跳，房间数不固定，同样压缩 */
+    public static final Endpoint HEART_BEAT_BATCH = register(CallService.HEART_BEAT_BATCH, TimeoutLevel.FAST,
+            RequestPriority.CRITICAL, new RetryPolicy(1, 500, 1_000)).enableCompression();
+    public static final Endpoint REFUSE = register(CallService.REFUSE, TimeoutLevel.FAST,
+            RequestPriority.INTERACTIVE, new RetryPolicy(3, 500, 4_000));
+    public static final Endpoint LEAVE_CHANNEL = register(CallService.LEAVE_CHANNEL, TimeoutLevel.FAST,
+            RequestPriority.CRITICAL, new RetryPolicy(3, 500, 4_000));
+    public static final Endpoint GIFT_LIST = register(CallService.GIFT_LIST, TimeoutLevel.NORMAL,
+            RequestPriority.BACKGROUND, new RetryPolicy(2, 1_000, 8_000)).enableCompression();
+    public static final Endpoint GIFT_SEND = register(CallService.GIFT_SEND, TimeoutLevel.NORMAL,
+            RequestPriority.INTERACTIVE, new RetryPolicy(2, 300, 2_000));
+    public static final Endpoint MESSAGE_SEND_GIFT = register(CallService.MESSAGE_SEND_GIFT, TimeoutLevel.NORMAL,
+            RequestPriority.INTERACTIVE, new RetryPolicy(2, 300, 2_000));
+    /**
+     * 未登记的请求（如插件下载）
+     */
+    public static final Endpoint OTHER = new Endpoint("", TimeoutLevel.BULK,
+            RequestPriority.BACKGROUND, RetryPolicy.NONE);
+
+    private final String mPath;
+    @TimeoutLevel
+    private final int mTimeoutLevel;
+    @RequestPriority
+    private final int mPriority;
+    private final RetryPolicy mRetryPolicy;
+    /**
+     * 是否允许对冲请求（仅通话建立关键路径）
+     */
+    private boolean mHedgeable;
+    /**
+     * 是否允许gzip压缩请求体
+     */
+    private boolean mCompressible;
+    /**
+     * 压缩前、后的请求体累计字节数
+     */
+    private final AtomicLong mRequestBytesPlain = new AtomicLong();
+    private final AtomicLong mRequestBytesWire = new AtomicLong();
+    private final LatencyTracker mLatencyTracker = new LatencyTracker();
+    private final CircuitBreaker mCircuitBreaker;
+
+    private Endpoint(String path, @TimeoutLevel int timeoutLevel, @RequestPriority int priority,
+                     RetryPolicy retryPolicy) {
+        this.mPath = path;
+        this.mTimeoutLevel = timeoutLevel;
+        this.mPriority = priority;
+        this.mRetryPolicy = retryPolicy;
+        this.mCircuitBreaker = new CircuitBreaker(path);
+    }
+
+    private Endpoint enableHedging() {
+        mHedgeable = true;
+        return this;
+    }
+
+    private Endpoint enableCompression() {
+        mCompressible = true;
+        return this;
+    }
+
+    private static Endpoint register(String path, @TimeoutLevel int timeoutLevel, @RequestPriority int priority,
+                                     RetryPolicy retryPolicy) {
+        Endpoint endpoint = new Endpoint(path, timeoutLevel, priority, retryPolicy);
+        ENDPOINTS.add(endpoint);
+        return endpoint;
+    }
+
+    /**
+     * 全部已登记的接口
+     */
+    static List<Endpoint> all() {
+        return ENDPOINTS;
+    }
+
+    /**
+     * 根据请求地址查找接口策略
+     *
+     * @param url 请求地址
+     * @return 接口策略，未登记的返回 {@link #OTHER}
+     */
+    public static Endpoint of(HttpUrl url) {
+        final String encodedPath = url.encodedPath();
+        Endpoint endpoint = PATH_CACHE.get(encodedPath);
+        if (endpoint == null) {
+            endpoint = OTHER;
+            for (Endpoint e : ENDPOINTS) {
+                if (encodedPath.endsWith("/" + e.mPath)) {
+                    endpoint = e;
+                    break;
+                }
+            }
+            PATH_CACHE.put(encodedPath, endpoint);
+        }
+        return endpoint;
+    }
+
+    public String getPath() {
+        return mPath;
+    }
+
+    @TimeoutLevel
+    public int getTimeoutLevel() {
+        return mTimeoutLevel;
+    }
+
+    @RequestPriority
+    public int getPriority() {
+        return mPriority;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return mRetryPolicy;
+    }
+
+    public boolean isHedgeable() {
+        return mHedgeable;
+    }
+
+    public boolean isCompressible() {
+        return mCompressible;
+    }
+
+    /**
+     * 记录一次请求体发送，未压缩的请求两者相同
+     *
+     * @param plainBytes 压缩前字节数
+     * @param wireBytes  实际发送字节数
+     */
+    public void recordRequestBody(long plainBytes, long wireBytes) {
+        mRequestBytesPlain.addAndGet(plainBytes);
+        mRequestBytesWire.addAndGet(wireBytes);
+    }
+
+    public long getRequestBytesPlain() {
+        return mRequestBytesPlain.get();
+    }
+
+    public long getRequestBytesWire() {
+        return mRequestBytesWire.get();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return mCircuitBreaker;
+    }
+
+    public LatencyTracker getLatencyTracker() {
+        return mLatencyTracker;
+    }
+
+    /**
+     * 计算本次请求的超时时间：取最近耗时的p95并放大，限制在配置的上下限之间
+     *
+     * @param config 配置
+     * @return 超时（毫秒）
+     */
+    public long timeoutMillis(CallConfig config) {
+        if (mTimeoutLevel == TimeoutLevel.BULK) {
+            return config.getBulkTimeoutMillis();
+        }
+        final long ceiling = mTimeoutLevel == TimeoutLevel.FAST
+                ? config.getFastMaxTimeoutMillis()
+                : config.getMaxTimeoutMillis();
+        if (mLatencyTracker.count() < MIN_SAMPLES) {
+            return ceiling;
+        }
+        final int factor = mTimeoutLevel == TimeoutLevel.FAST ? 2 : 3;
+        final long timeout = mLatencyTracker.percentile(95) * factor;
+        return Math.max(config.getMinTimeoutMillis(), Math.min(timeout, ceiling));
+    }
+
+    @Override
+    public String toString() {
+        return "Endpoint{" + mPath + '}';
+    }
+}
@@ -0,0 +1,32 @@
+package com.basetools.net.core;
+
+/**
+ * 对冲请求预算（令牌桶）：每个原始请求存入 ratio 个令牌，每次对冲消耗1个令牌，
+ * 保证对冲带来的额外请求不超过原始请求数的 ratio 倍。
+ */
+class HedgeBudget {
+
+    /**
+     * 令牌上限，允许短时间内少量集中对冲
+     */
+    private static final double MAX_TOKENS = 10;
+
+    private final double ratio;
+    private double tokens;
+
+    HedgeBudget(double ratio) {
+        this.ratio = ratio;
+    }
+
+    synchronized void onRequest() {
+        tokens = Math.min(MAX_TOKENS, tokens + ratio);
+    }
+
+    synchronized boolean tryAcquire() {
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+}
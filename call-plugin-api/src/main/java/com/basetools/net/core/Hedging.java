@@ -0,0 +1,79 @@
+package com.basetools.net.core;
+
+import com.basetools.util.Timber;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import io.reactivex.Observable;
+import io.reactivex.functions.Function;
+
+/**
+ * 对冲请求：原请求在该接口滚动p90耗时内未返回时，再发出一个相同请求（携带相同幂等键），
+ * 先成功返回者胜出，另一个请求被取消。对冲次数受 {@link HedgeBudget} 限制并计入 {@link NetworkMetrics}。
+ * </br>
+ * 一个请求失败不影响另一个：原请求很快失败或超时时，对冲请求照常发出，两个都失败才返回失败（先发生的错误）。
+ */
+public final class Hedging {
+
+    /**
+     * 计算p90前需要的最少样本数
+     */
+    private static final int MIN_SAMPLES = 20;
+
+    private static volatile HedgeBudget sBudget;
+
+    private Hedging() {
+    }
+
+    /**
+     * @param budgetPercent 对冲预算，额外请求占原始请求的百分比
+     */
+    public static void setBudgetPercent(int budgetPercent) {
+        sBudget = new HedgeBudget(budgetPercent / 100d);
+    }
+
+    /**
+     * 为请求加上对冲
+     *
+     * @param endpoint 接口策略
+     * @param attempt  单次请求（每次订阅都会发起新的网络请求）
+     * @return 对冲后的请求
+     */
+    public static <T> Observable<T> hedge(Endpoint endpoint, Observable<T> attempt) {
+        final HedgeBudget budget = sBudget;
+        final LatencyTracker tracker = endpoint.getLatencyTracker();
+        if (budget == null || tracker.count() < MIN_SAMPLES) {
+            return attempt;
+        }
+        final long delay = tracker.percentile(90);
+        if (delay <= 0) {
+            return attempt;
+        }
+        final NetworkMetrics metrics = NetworkMetrics.getInstance();
+        Observable<T> hedged = Observable.defer(() -> {
+            if (!budget.tryAcquire()) {
+                metrics.onHedgeDenied();
+                // 直接结束，原请求失败时不再等待
+                return Observable.<T>empty();
+            }
+            metrics.onHedgeSent();
+            Timber.d("hedge request >>> " + endpoint.getPath() + " | after " + delay + "ms");
+            return attempt.doOnNext(t -> metrics.onHedgeWon());
+        }).delaySubscription(delay, TimeUnit.MILLISECONDS);
+        return Observable.defer(() -> {
+            budget.onRequest();
+            // 失败的请求记下错误后直接结束，不影响另一个；先返回结果的胜出，另一个被dispose（取消对应的OkHttp Call）
+            final AtomicReference<Throwable> firstError = new AtomicReference<>();
+            final Function<Throwable, Observable<T>> recordError = e -> {
+                firstError.compareAndSet(null, e);
+                return Observable.empty();
+            };
+            return Observable.merge(attempt.onErrorResumeNext(recordError), hedged.onErrorResumeNext(recordError))
+                    .take(1)
+                    .switchIfEmpty(Observable.defer(() -> {
+                        // 两个都失败时返回先发生的错误，便于按异常类型判断是否重试、熔断
+                        final Throwable e = firstError.get();
+                        return e == null ? Observable.<T>empty() : Observable.<T>error(e);
+                    }));
+        });
+    }
+}
@@ -0,0 +1,115 @@
+package com.basetools.net.core;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Bundle;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定期重新探测各域名延迟，使 {@link BaseUrlRouter} 的排序跟随网络变化；只在应用处于前台时探测
+ * </br>
+ * 探测在共用的定时线程上发起，探测任务只能发起异步请求（如 {@link ApiClient#preconnect(String)}），不可阻塞。
+ * 回到前台时距上次探测已超过间隔则立即探测，否则等到间隔期满。
+ */
+public final class LatencyProber {
+
+    /**
+     * 默认探测间隔
+     */
+    public static final long DEFAULT_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ScheduledExecutorService mTimer;
+    private final long mIntervalMillis;
+    private final Runnable mProbe;
+    /**
+     * 处于 started 状态的Activity数量，大于0即在前台
+     */
+    private int mStartedActivities;
+    private long mLastProbeAt;
+    private ScheduledFuture<?> mFuture;
+    private boolean mRegistered;
+
+    /**
+     * @param timer          定时线程
+     * @param intervalMillis 探测间隔（毫秒）
+     * @param probe          探测任务，创建时视为刚探测过（初始化时已预连接）
+     */
+    public LatencyProber(ScheduledExecutorService timer, long intervalMillis, Runnable probe) {
+        this.mTimer = timer;
+        this.mIntervalMillis = intervalMillis;
+        this.mProbe = probe;
+        this.mLastProbeAt = System.nanoTime();
+    }
+
+    /**
+     * 监听Activity生命周期，前台时定期探测，进入后台后停止。只注册一次
+     *
+     * @param application 应用实例
+     */
+    public synchronized void register(Application application) {
+        if (mRegistered) {
+            return;
+        }
+        mRegistered = true;
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityStarted(Activity activity) {
+                onForeground();
+            }
+
+            @Override
+            public void onActivityStopped(Activity activity) {
+                onBackground();
+            }
+
+            @Override
+            public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
+            }
+
+            @Override
+            public void onActivityResumed(Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(Activity activity, Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(Activity activity) {
+            }
+        });
+    }
+
+    synchronized void onForeground() {
+        if (mStartedActivities++ > 0) {
+            return;
+        }
+        final long sinceLastProbe = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - mLastProbeAt);
+        final long delay = Math.max(0, mIntervalMillis - sinceLastProbe);
+        mFuture = mTimer.scheduleWithFixedDelay(this::probe, delay, mIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    synchronized void onBackground() {
+        // 在注册前已启动的Activity（插件方式初始化时）不计数
+        if (mStartedActivities == 0 || --mStartedActivities > 0) {
+            return;
+        }
+        if (mFuture != null) {
+            mFuture.cancel(false);
+            mFuture = null;
+        }
+    }
+
+    private void probe() {
+        synchronized (this) {
+            mLastProbeAt = System.nanoTime();
+        }
+        mProbe.run();
+    }
+}
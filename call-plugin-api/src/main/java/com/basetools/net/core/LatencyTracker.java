@@ -0,0 +1,62 @@
+package com.basetools.net.core;
+
+import java.util.Arrays;
+
+/**
+ * 接口耗时统计：保存最近N次请求耗时，用于计算滚动分位数
+ */
+public class LatencyTracker {
+
+    private static final int DEFAULT_WINDOW = 64;
+
+    private final long[] mSamples;
+    private int mIndex;
+    private int mCount;
+
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW);
+    }
+
+    public LatencyTracker(int window) {
+        mSamples = new long[window];
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param latencyMillis 耗时（毫秒）
+     */
+    public synchronized void record(long latencyMillis) {
+        mSamples[mIndex] = latencyMillis;
+        mIndex = (mIndex + 1) % mSamples.length;
+        if (mCount < mSamples.length) {
+            mCount++;
+        }
+    }
+
+    /**
+     * @return 当前窗口内样本数
+     */
+    public synchronized int count() {
+        return mCount;
+    }
+
+    /**
+     * 计算滚动分位数
+     *
+     * @param percentile 分位 0~100
+     * @return 分位耗时（毫秒），无样本时返回 -1
+     */
+    public long percentile(int percentile) {
+        final long[] sorted;
+        synchronized (this) {
+            if (mCount == 0) {
+                return -1;
+            }
+            sorted = Arrays.copyOf(mSamples, mCount);
+        }
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100d * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
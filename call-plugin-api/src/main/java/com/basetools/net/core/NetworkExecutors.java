@@ -0,0 +1,194 @@
+package com.basetools.net.core;
+
+import android.os.Process;
+import androidx.annotation.IntDef;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 网络层线程池：所有线程均有上限、带名称，并以低于音视频线程的优先级运行
+ * <ul>
+ * <li>{@link Pool#NETWORK}：Retrofit同步请求，由 {@link RequestDispatcher} 按优先级分道提交</li>
+ * <li>{@link Pool#ASYNC}：只用于OkHttp Dispatcher的异步请求（预连接等），并发数由Dispatcher限制</li>
+ * <li>{@link Pool#CALLBACK}：Retrofit Call回调</li>
+ * <li>{@link Pool#SIGNALING}：信令长连接的读取线程，连接期间一直占用</li>
+ * <li>{@link Pool#TIMER}：共用的定时线程（心跳等），任务只做调度，不执行阻塞操作</li>
+ * <li>{@link Pool#PREFETCH}：礼物素材预下载，使用单独的OkHttp Dispatcher，不占用异步请求名额</li>
+ * <li>{@link Pool#WORKER}：Rx订阅及请求前后的轻量工作（合并请求、写发件箱、礼物目录合并），有界队列</li>
+ * <li>{@link Pool#DNS}：DNS后台刷新及IPv4/IPv6连接比较，单线程，阻塞的解析不占用其他线程池</li>
+ * </ul>
+ * 队列满时由提交线程直接执行并计数，不丢弃任务。
+ */
+public final class NetworkExecutors {
+
+    @IntDef({Pool.NETWORK, Pool.ASYNC, Pool.CALLBACK, Pool.SIGNALING, Pool.TIMER, Pool.PREFETCH, Pool.WORKER, Pool.DNS})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface Pool {
+        int NETWORK = 0;
+        int ASYNC = 1;
+        int CALLBACK = 2;
+        int SIGNALING = 3;
+        int TIMER = 4;
+        int PREFETCH = 5;
+        int WORKER = 6;
+        int DNS = 7;
+    }
+
+    /**
+     * 同步请求线程数，即同时执行的请求数上限
+     */
+    static final int NETWORK_THREADS = 6;
+    /**
+     * 异步请求线程数，同时作为OkHttp Dispatcher的并发上限
+     */
+    static final int ASYNC_THREADS = 3;
+    /**
+     * 预下载线程数，同时下载的素材数不超过该值
+     */
+    public static final int PREFETCH_THREADS = 2;
+    private static final int WORKER_THREADS = 2;
+    private static final int WORKER_QUEUE_SIZE = 128;
+    private static final int CALLBACK_THREADS = 1;
+    private static final int CALLBACK_QUEUE_SIZE = 128;
+    private static final long KEEP_ALIVE_SECONDS = 30L;
+
+    private static final String[] POOL_NAMES = {"net", "async", "callback", "signaling", "timer", "prefetch", "worker",
+            "dns"};
+
+    private final ThreadPoolExecutor[] mExecutors = new ThreadPoolExecutor[POOL_NAMES.length];
+    private final AtomicLong[] mRejected = new AtomicLong[POOL_NAMES.length];
+    private final ScheduledExecutorService mTimer;
+    private final Scheduler mWorkerScheduler;
+    private final RequestDispatcher mRequestDispatcher;
+
+    NetworkExecutors() {
+        for (int pool = 0; pool < POOL_NAMES.length; pool++) {
+            mRejected[pool] = new AtomicLong();
+        }
+        // 提交数量由RequestDispatcher控制，不超过线程数
+        mExecutors[Pool.NETWORK] = newExecutor(Pool.NETWORK, "CallKit-net-", NETWORK_THREADS,
+                new LinkedBlockingQueue<Runnable>());
+        // 只由OkHttp Dispatcher提交，各Dispatcher的并发数不超过线程数；不能由提交线程（可能是主线程）执行请求，队列不设上限
+        mExecutors[Pool.ASYNC] = newExecutor(Pool.ASYNC, "CallKit-async-", ASYNC_THREADS,
+                new LinkedBlockingQueue<Runnable>());
+        mExecutors[Pool.CALLBACK] = newExecutor(Pool.CALLBACK, "CallKit-callback-", CALLBACK_THREADS,
+                new ArrayBlockingQueue<Runnable>(CALLBACK_QUEUE_SIZE));
+        // 同一时间只有一条长连接，重连时新连接等待旧连接的读取线程退出
+        mExecutors[Pool.SIGNALING] = newExecutor(Pool.SIGNALING, "CallKit-signaling-", 1,
+                new LinkedBlockingQueue<Runnable>());
+        final ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(1,
+                newThreadFactory("CallKit-timer-"), newRejectedHandler(Pool.TIMER));
+        mExecutors[Pool.TIMER] = timer;
+        // 提交数量由预下载的OkHttp Dispatcher控制，不超过线程数
+        mExecutors[Pool.PREFETCH] = newExecutor(Pool.PREFETCH, "CallKit-prefetch-", PREFETCH_THREADS,
+                new LinkedBlockingQueue<Runnable>());
+        mTimer = timer;
+        // 其他异步工作单独使用有界队列，不与Dispatcher的请求排在同一个队列
+        mExecutors[Pool.WORKER] = newExecutor(Pool.WORKER, "CallKit-worker-", WORKER_THREADS,
+                new ArrayBlockingQueue<Runnable>(WORKER_QUEUE_SIZE));
+        mWorkerScheduler = Schedulers.from(mExecutors[Pool.WORKER]);
+        // 刷新按域名去重，任务数不超过域名数
+        mExecutors[Pool.DNS] = newExecutor(Pool.DNS, "CallKit-dns-", 1, new LinkedBlockingQueue<Runnable>());
+        mRequestDispatcher = new RequestDispatcher(mExecutors[Pool.NETWORK]);
+    }
+
+    public ThreadPoolExecutor getExecutor(@Pool int pool) {
+        return mExecutors[pool];
+    }
+
+    /**
+     * 轻量工作使用的Rx调度器（{@link Pool#WORKER}），替代 Schedulers.io()
+     */
+    public Scheduler getWorkerScheduler() {
+        return mWorkerScheduler;
+    }
+
+    /**
+     * 共用的定时器，只有一个线程
+     */
+    public ScheduledExecutorService getTimer() {
+        return mTimer;
+    }
+
+    public RequestDispatcher getRequestDispatcher() {
+        return mRequestDispatcher;
+    }
+
+    /**
+     * 排队中的任务数，{@link Pool#NETWORK} 为各优先级队列之和
+     */
+    public int getQueueDepth(@Pool int pool) {
+        if (pool == Pool.NETWORK) {
+            return mRequestDispatcher.queuedCount() + mExecutors[pool].getQueue().size();
+        }
+        return mExecutors[pool].getQueue().size();
+    }
+
+    /**
+     * 执行中的任务数
+     */
+    public int getActiveCount(@Pool int pool) {
+        return mExecutors[pool].getActiveCount();
+    }
+
+    /**
+     * 因队列已满改由提交线程执行的次数
+     */
+    public long getRejectedCount(@Pool int pool) {
+        return mRejected[pool].get();
+    }
+
+    private ThreadPoolExecutor newExecutor(int pool, String name, int threads, BlockingQueue<Runnable> queue) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                queue, newThreadFactory(name), newRejectedHandler(pool));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private static ThreadFactory newThreadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> new Thread(() -> {
+            // 低于音视频线程，避免与声网媒体线程争抢CPU
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            r.run();
+        }, name + count.incrementAndGet());
+    }
+
+    private RejectedExecutionHandler newRejectedHandler(final int pool) {
+        return (r, executor) -> {
+            mRejected[pool].incrementAndGet();
+            if (!executor.isShutdown()) {
+                r.run();
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("NetworkExecutors{");
+        for (int pool = 0; pool < POOL_NAMES.length; pool++) {
+            if (pool > 0) {
+                builder.append(", ");
+            }
+            builder.append(POOL_NAMES[pool])
+                    .append("[queued=").append(getQueueDepth(pool))
+                    .append(", active=").append(getActiveCount(pool))
+                    .append(", rejected=").append(getRejectedCount(pool))
+                    .append(']');
+        }
+        return builder.append('}').toString();
+    }
+}
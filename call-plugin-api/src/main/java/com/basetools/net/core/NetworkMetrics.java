@@ -0,0 +1,100 @@
+package com.basetools.net.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 网络层统计指标
+ */
+public final class NetworkMetrics {
+
+    private static final NetworkMetrics INSTANCE = new NetworkMetrics();
+
+    /**
+     * 发出的对冲请求数
+     */
+    private final AtomicLong hedgeSent = new AtomicLong();
+    /**
+     * 对冲请求先于原请求返回的次数
+     */
+    private final AtomicLong hedgeWon = new AtomicLong();
+    /**
+     * 因超出对冲预算而放弃的对冲次数
+     */
+    private final AtomicLong hedgeDenied = new AtomicLong();
+    /**
+     * 熔断期间被直接拒绝的请求数
+     */
+    private final AtomicLong circuitRejected = new AtomicLong();
+
+    private NetworkMetrics() {
+    }
+
+    public static NetworkMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    void onHedgeSent() {
+        hedgeSent.incrementAndGet();
+    }
+
+    void onHedgeWon() {
+        hedgeWon.incrementAndGet();
+    }
+
+    void onHedgeDenied() {
+        hedgeDenied.incrementAndGet();
+    }
+
+    void onCircuitRejected() {
+        circuitRejected.incrementAndGet();
+    }
+
+    public long getHedgeSent() {
+        return hedgeSent.get();
+    }
+
+    public long getHedgeWon() {
+        return hedgeWon.get();
+    }
+
+    public long getHedgeDenied() {
+        return hedgeDenied.get();
+    }
+
+    public long getCircuitRejected() {
+        return circuitRejected.get();
+    }
+
+    /**
+     * 各接口请求体压缩前后的累计字节数，用于评估压缩收益
+     *
+     * @return 如 heartbeat: 51200 -> 9830 (19%)
+     */
+    public String getRequestBytesReport() {
+        StringBuilder builder = new StringBuilder();
+        for (Endpoint endpoint : Endpoint.all()) {
+            if (!endpoint.isCompressible()) {
+                continue;
+            }
+            final long plain = endpoint.getRequestBytesPlain();
+            final long wire = endpoint.getRequestBytesWire();
+            builder.append(endpoint.getPath()).append(": ").append(plain).append(" -> ").append(wire);
+            if (plain > 0) {
+                builder.append(" (").append(wire * 100 / plain).append("%)");
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "NetworkMetrics{" +
+                "hedgeSent=" + hedgeSent +
+                ", hedgeWon=" + hedgeWon +
+                ", hedgeDenied=" + hedgeDenied +
+                ", circuitRejected=" + circuitRejected +
+                ", " + ApiClient.getExecutors() +
+                '}';
+    }
+}
@@ -0,0 +1,151 @@
+package com.basetools.net.core;
+
+import com.basetools.constant.RequestPriority;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 按优先级分道的请求调度器
+ * </br>
+ * 每个优先级一个等待队列，并限制各自的并发数；有空闲名额时总是先执行高优先级队列中的请求，
+ * 低优先级请求不会排在已等待的高优先级请求之前。非关键请求合计最多占用 {@link #MAX_RUNNING} - {@link #CRITICAL_RESERVED}
+ * 个名额，保证心跳、加入频道等关键请求始终有空闲线程。
+ * 线程由 {@link NetworkExecutors} 统一管理，通过 {@link ApiClient#getExecutors()} 获取。
+ */
+public final class RequestDispatcher {
+
+    private static final int LANE_COUNT = 3;
+    /**
+     * 同时执行的请求总数，与线程数一致
+     */
+    private static final int MAX_RUNNING = NetworkExecutors.NETWORK_THREADS;
+    /**
+     * 为关键请求保留的名额
+     */
+    private static final int CRITICAL_RESERVED = 2;
+    /**
+     * 各优先级的并发上限，下标为 {@link RequestPriority}
+     */
+    private static final int[] LANE_LIMITS = {MAX_RUNNING, 4, 2};
+
+    private final List<ArrayDeque<Runnable>> mQueues = new ArrayList<>(LANE_COUNT);
+    private final int[] mRunning = new int[LANE_COUNT];
+    private int mTotalRunning;
+    private final Executor mExecutor;
+    private final Scheduler[] mSchedulers = new Scheduler[LANE_COUNT];
+
+    /**
+     * @param executor 执行请求的线程池，线程数不少于 {@link #MAX_RUNNING}
+     */
+    RequestDispatcher(Executor executor) {
+        mExecutor = executor;
+        for (int priority = 0; priority < LANE_COUNT; priority++) {
+            mQueues.add(new ArrayDeque<Runnable>());
+            mSchedulers[priority] = Schedulers.from(executor(priority));
+        }
+    }
+
+    /**
+     * 指定优先级的Rx调度器
+     */
+    public Scheduler scheduler(@RequestPriority int priority) {
+        return mSchedulers[priority];
+    }
+
+    /**
+     * 指定优先级的执行器
+     */
+    public Executor executor(@RequestPriority int priority) {
+        return task -> enqueue(priority, task);
+    }
+
+    /**
+     * 排队中的请求数
+     */
+    public synchronized int queuedCount(@RequestPriority int priority) {
+        return mQueues.get(priority).size();
+    }
+
+    /**
+     * 各优先级排队中的请求总数
+     */
+    public synchronized int queuedCount() {
+        int count = 0;
+        for (ArrayDeque<Runnable> queue : mQueues) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * 执行中的请求数
+     */
+    public synchronized int runningCount(@RequestPriority int priority) {
+        return mRunning[priority];
+    }
+
+    private void enqueue(int priority, Runnable task) {
+        synchronized (this) {
+            mQueues.get(priority).add(task);
+        }
+        promoteAndExecute();
+    }
+
+    private void finished(int priority) {
+        synchronized (this) {
+            mRunning[priority]--;
+            mTotalRunning--;
+        }
+        promoteAndExecute();
+    }
+
+    /**
+     * 按优先级从高到低取出可执行的请求
+     */
+    private void promoteAndExecute() {
+        final List<Runnable> executable = new ArrayList<>();
+        synchronized (this) {
+            for (int priority = 0; priority < LANE_COUNT; priority++) {
+                final ArrayDeque<Runnable> queue = mQueues.get(priority);
+                final int maxRunning = priority == RequestPriority.CRITICAL
+                        ? MAX_RUNNING
+                        : MAX_RUNNING - CRITICAL_RESERVED;
+                while (!queue.isEmpty()
+                        && mTotalRunning < maxRunning
+                        && mRunning[priority] < LANE_LIMITS[priority]) {
+                    final Runnable task = queue.poll();
+                    mRunning[priority]++;
+                    mTotalRunning++;
+                    executable.add(new LaneTask(priority, task));
+                }
+            }
+        }
+        for (Runnable task : executable) {
+            mExecutor.execute(task);
+        }
+    }
+
+    private final class LaneTask implements Runnable {
+
+        private final int priority;
+        private final Runnable task;
+
+        LaneTask(int priority, Runnable task) {
+            this.priority = priority;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                finished(priority);
+            }
+        }
+    }
+}
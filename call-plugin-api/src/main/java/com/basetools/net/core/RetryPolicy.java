@@ -0,0 +1,94 @@
+package com.basetools.net.core;
+
+import java.io.IOException;
+import java.util.Random;
+import retrofit2.HttpException;
+
+/**
+ * 重试策略：指数退避（上限封顶）+ 全抖动
+ * </br>
+ * 第n次重试的等待时间在 [0, min(maxDelay, baseDelay * 2^(n-1))] 内随机取值，
+ * 避免服务恢复后所有客户端同时重试。
+ */
+public class RetryPolicy {
+
+    /**
+     * 不重试
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0);
+
+    private static final Random RANDOM = new Random();
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    public RetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * 计算第 retryCount 次重试前的等待时间
+     *
+     * @param retryCount 第几次重试，从1开始
+     * @return 等待时间（毫秒）
+     */
+    public long delayMillis(int retryCount) {
+        final int shift = Math.min(retryCount - 1, 16);
+        final long ceiling = Math.min(maxDelayMillis, baseDelayMillis << shift);
+        if (ceiling <= 0) {
+            return 0;
+        }
+        return (long) (RANDOM.nextDouble() * ceiling);
+    }
+
+    /**
+     * 是否为可重试的异常：网络异常、请求超时及网关类错误。业务异常 {@link ApiException} 不重试
+     *
+     * @param e 异常
+     * @return 可重试 true
+     */
+    public boolean isRetryable(Throwable e) {
+        if (e instanceof IOException) {
+            return true;
+        }
+        if (e instanceof HttpException) {
+            final int code = ((HttpException) e).code();
+            return code == 408 || code == 502 || code == 503 || code == 504;
+        }
+        return false;
+    }
+
+    /**
+     * 是否为暂时性失败（稍后再发可能成功）：网络异常、超时、408及5xx，以及熔断中未发出的请求；
+     * 其他 {@link ApiException}、4xx 说明服务端已明确拒绝，再发结果相同
+     *
+     * @param e 异常
+     * @return 暂时性失败 true
+     */
+    public static boolean isTransient(Throwable e) {
+        if (e instanceof IOException) {
+            return true;
+        }
+        if (e instanceof HttpException) {
+            final int code = ((HttpException) e).code();
+            return code == 408 || code >= 500;
+        }
+        return e instanceof ApiException && ((ApiException) e).getCode() == ApiException.CODE_CIRCUIT_OPEN;
+    }
+
+    @Override
+    public String toString() {
+        return "RetryPolicy{" +
+                "maxRetries=" + maxRetries +
+                ", baseDelayMillis=" + baseDelayMillis +
+                ", maxDelayMillis=" + maxDelayMillis +
+                '}';
+    }
+}
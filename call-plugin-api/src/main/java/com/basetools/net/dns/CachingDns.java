@@ -0,0 +1,305 @@
+package com.basetools.net.dns;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import com.basetools.CallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.util.Timber;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+
+/**
+ * 带缓存的DNS解析
+ * </br>
+ * 解析结果缓存 {@link #TTL_MILLIS}，超过 {@link #REFRESH_AFTER_MILLIS} 后后台刷新，刷新完成前继续使用旧结果；
+ * 超过 {@link #MAX_STALE_MILLIS} 或刷新一直失败时才同步解析。</br>
+ * 同时解析出IPv4、IPv6地址时，后台对两者各发起一次TCP连接，先连上的协议族排在前面，
+ * 之后两种地址交替排列，OkHttp按顺序建连，某条路由不通时可尽快切换到另一协议族。
+ * 尚未比较出结果时IPv4优先（部分运营商IPv6路由不可用）。
+ */
+public final class CachingDns implements Dns {
+
+    private static final long TTL_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    /**
+     * 超过该时长后，命中缓存时后台刷新
+     */
+    static final long REFRESH_AFTER_MILLIS = TTL_MILLIS * 4 / 5;
+    /**
+     * 旧结果最长使用时长，超过后同步解析
+     */
+    static final long MAX_STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    private static final long RACE_TIMEOUT_MILLIS = 1_500;
+    private static final int DEFAULT_PORT = 443;
+
+    private final Dns mUpstream;
+    private final Executor mExecutor;
+    private final Ticker mTicker;
+    private final ConcurrentHashMap<String, Entry> mCache = new ConcurrentHashMap<>();
+    private final Set<String> mRefreshing = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    /**
+     * host -> 连接比较使用的端口
+     */
+    private final ConcurrentHashMap<String, Integer> mPorts = new ConcurrentHashMap<>();
+    /**
+     * host -> 是否IPv6先连上
+     */
+    private final ConcurrentHashMap<String, Boolean> mPreferIpv6 = new ConcurrentHashMap<>();
+    private final AtomicBoolean mNetworkReceiverRegistered = new AtomicBoolean();
+
+    /**
+     * @param upstream 实际解析，如 {@link Dns#SYSTEM}
+     * @param executor 后台刷新、连接比较使用的线程；解析和连接会阻塞，ApiClient 为此使用单独的DNS线程
+     */
+    public CachingDns(Dns upstream, Executor executor) {
+        this(upstream, executor, System::nanoTime);
+    }
+
+    /**
+     * @param ticker 计算缓存时长使用的时钟，测试时替换
+     */
+    CachingDns(Dns upstream, Executor executor, Ticker ticker) {
+        this.mUpstream = upstream;
+        this.mExecutor = executor;
+        this.mTicker = ticker;
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        if (config != null && !config.isDnsCacheEnable()) {
+            return mUpstream.lookup(hostname);
+        }
+        final Entry entry = mCache.get(hostname);
+        if (entry != null) {
+            final long age = age(entry);
+            if (age < MAX_STALE_MILLIS) {
+                if (age >= REFRESH_AFTER_MILLIS) {
+                    refreshAsync(hostname);
+                }
+                return entry.addresses;
+            }
+        }
+        return resolve(hostname);
+    }
+
+    /**
+     * 预解析：后台解析域名并比较IPv4、IPv6连接速度
+     *
+     * @param url 目标地址
+     */
+    public void prefetch(HttpUrl url) {
+        mPorts.put(url.host(), url.port());
+        final Entry entry = mCache.get(url.host());
+        if (entry == null || age(entry) >= REFRESH_AFTER_MILLIS) {
+            refreshAsync(url.host());
+        }
+    }
+
+    /**
+     * 清空缓存，网络切换后调用
+     */
+    public void clear() {
+        mCache.clear();
+        mPreferIpv6.clear();
+    }
+
+    /**
+     * 监听网络切换并清空缓存：切换后旧的解析结果、协议族偏好可能不再适用。每个进程只注册一次
+     *
+     * @param context 上下文对象
+     */
+    public void registerNetworkReceiver(Context context) {
+        if (!mNetworkReceiverRegistered.compareAndSet(false, true)) {
+            return;
+        }
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                // 注册时收到的粘性广播不是网络切换，保留启动时预解析的结果
+                if (!isInitialStickyBroadcast()) {
+                    clear();
+                }
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+    }
+
+    private long age(Entry entry) {
+        return TimeUnit.NANOSECONDS.toMillis(mTicker.nanoTime() - entry.resolvedAt);
+    }
+
+    private List<InetAddress> resolve(String hostname) throws UnknownHostException {
+        final List<InetAddress> addresses = mUpstream.lookup(hostname);
+        final Entry entry = new Entry(sort(hostname, addresses), mTicker.nanoTime());
+        mCache.put(hostname, entry);
+        if (!mPreferIpv6.containsKey(hostname) && hasBothFamilies(addresses)) {
+            mExecutor.execute(() -> race(hostname, entry));
+        }
+        return entry.addresses;
+    }
+
+    private void refreshAsync(final String hostname) {
+        if (!mRefreshing.add(hostname)) {
+            return;
+        }
+        mExecutor.execute(() -> {
+            try {
+                final Entry entry = new Entry(sort(hostname, mUpstream.lookup(hostname)), mTicker.nanoTime());
+                mCache.put(hostname, entry);
+                if (hasBothFamilies(entry.addresses)) {
+                    race(hostname, entry);
+                }
+            } catch (UnknownHostException e) {
+                // 保留旧结果，下次命中时再刷新
+                Timber.d("dns refresh failure >>> " + hostname + " | " + e.getMessage());
+            } finally {
+                mRefreshing.remove(hostname);
+            }
+        });
+    }
+
+    /**
+     * 同时连接第一个IPv4、IPv6地址，记录先连上的协议族并重新排序缓存
+     */
+    private void race(String hostname, Entry entry) {
+        final Integer port = mPorts.get(hostname);
+        final InetAddress winner = firstConnected(entry.addresses, port != null ? port : DEFAULT_PORT);
+        if (winner == null) {
+            return;
+        }
+        final boolean preferIpv6 = winner instanceof Inet6Address;
+        mPreferIpv6.put(hostname, preferIpv6);
+        mCache.replace(hostname, entry, new Entry(sort(hostname, entry.addresses), entry.resolvedAt));
+        Timber.d("dns race >>> " + hostname + " | " + (preferIpv6 ? "IPv6" : "IPv4") + " first");
+    }
+
+    private static InetAddress firstConnected(List<InetAddress> addresses, int port) {
+        Selector selector = null;
+        final List<SocketChannel> channels = new ArrayList<>(2);
+        try {
+            selector = Selector.open();
+            for (InetAddress address : new InetAddress[]{firstOf(addresses, false), firstOf(addresses, true)}) {
+                final SocketChannel channel = SocketChannel.open();
+                channels.add(channel);
+                channel.configureBlocking(false);
+                if (channel.connect(new InetSocketAddress(address, port))) {
+                    return address;
+                }
+                channel.register(selector, SelectionKey.OP_CONNECT, address);
+            }
+            final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(RACE_TIMEOUT_MILLIS);
+            int pending = channels.size();
+            while (pending > 0) {
+                final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0 || selector.select(remaining) == 0) {
+                    return null;
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    try {
+                        if (((SocketChannel) key.channel()).finishConnect()) {
+                            return (InetAddress) key.attachment();
+                        }
+                    } catch (IOException e) {
+                        // 该地址不可达，等待另一个
+                        key.cancel();
+                        pending--;
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+            return null;
+        } catch (IOException e) {
+            Timber.d("dns race failure >>> " + e.getMessage());
+            return null;
+        } finally {
+            for (SocketChannel channel : channels) {
+                closeQuietly(channel);
+            }
+            if (selector != null) {
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * 先连上的协议族在前，两种地址交替排列
+     */
+    private List<InetAddress> sort(String hostname, List<InetAddress> addresses) {
+        final Boolean preferIpv6 = mPreferIpv6.get(hostname);
+        final boolean ipv6First = preferIpv6 != null && preferIpv6;
+        final List<InetAddress> first = new ArrayList<>();
+        final List<InetAddress> second = new ArrayList<>();
+        for (InetAddress address : addresses) {
+            ((address instanceof Inet6Address) == ipv6First ? first : second).add(address);
+        }
+        final List<InetAddress> sorted = new ArrayList<>(addresses.size());
+        for (int i = 0; i < Math.max(first.size(), second.size()); i++) {
+            if (i < first.size()) {
+                sorted.add(first.get(i));
+            }
+            if (i < second.size()) {
+                sorted.add(second.get(i));
+            }
+        }
+        return Collections.unmodifiableList(sorted);
+    }
+
+    private static boolean hasBothFamilies(List<InetAddress> addresses) {
+        return firstOf(addresses, false) != null && firstOf(addresses, true) != null;
+    }
+
+    private static InetAddress firstOf(List<InetAddress> addresses, boolean ipv6) {
+        for (InetAddress address : addresses) {
+            if ((address instanceof Inet6Address) == ipv6) {
+                return address;
+            }
+        }
+        return null;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    private static final class Entry {
+        final List<InetAddress> addresses;
+        final long resolvedAt;
+
+        Entry(List<InetAddress> addresses, long resolvedAt) {
+            this.addresses = addresses;
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    /**
+     * 单调时钟，单位纳秒
+     */
+    interface Ticker {
+        long nanoTime();
+    }
+}
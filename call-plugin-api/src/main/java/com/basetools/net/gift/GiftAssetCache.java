@@ -0,0 +1,168 @@
+package com.basetools.net.gift;
+
+import com.basetools.util.Timber;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import okhttp3.HttpUrl;
+import okio.ByteString;
+
+/**
+ * 礼物素材（SVGA动画、图标）磁盘缓存，总大小超过上限时按最近最少使用淘汰
+ * </br>
+ * 文件名为URL的MD5加原扩展名；下载先写入 {@link #newTempFile} 再由 {@link #commit} 重命名，
+ * 未完成的下载不会被当作缓存读取。读取时更新文件修改时间，进程重启后按修改时间恢复访问顺序。
+ */
+final class GiftAssetCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAX_EXTENSION_LENGTH = 5;
+
+    private final File mDir;
+    private final long mMaxBytes;
+    /**
+     * 文件名 -> 文件大小，按访问顺序排列，最早的在前
+     */
+    private final LinkedHashMap<String, Long> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mSize;
+    private boolean mLoaded;
+
+    GiftAssetCache(File dir, long maxBytes) {
+        this.mDir = dir;
+        this.mMaxBytes = maxBytes;
+    }
+
+    long getMaxBytes() {
+        return mMaxBytes;
+    }
+
+    /**
+     * 已缓存的文件
+     *
+     * @param url 素材地址
+     * @return 文件，未缓存时为null
+     */
+    synchronized File get(String url) {
+        ensureLoaded();
+        final String name = fileName(url);
+        if (name == null || mEntries.get(name) == null) {
+            return null;
+        }
+        final File file = new File(mDir, name);
+        if (!file.exists()) {
+            // 被系统清理了缓存目录
+            mSize -= mEntries.remove(name);
+            return null;
+        }
+        // 记录访问时间，进程重启后据此恢复访问顺序
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * 下载用的临时文件
+     *
+     * @return 临时文件，地址无效或目录无法创建时为null
+     */
+    synchronized File newTempFile(String url) {
+        ensureLoaded();
+        final String name = fileName(url);
+        if (name == null || (!mDir.exists() && !mDir.mkdirs())) {
+            return null;
+        }
+        return new File(mDir, name + TEMP_SUFFIX);
+    }
+
+    /**
+     * 下载完成，临时文件转为缓存，超出上限时淘汰最久未使用的文件
+     *
+     * @return 缓存文件，文件超过上限或重命名失败时为null
+     */
+    synchronized File commit(String url, File temp) {
+        final String name = fileName(url);
+        final long length = temp.length();
+        final File file = new File(mDir, name);
+        if (length > mMaxBytes || !temp.renameTo(file)) {
+            delete(temp);
+            return null;
+        }
+        final Long old = mEntries.put(name, length);
+        mSize += length - (old == null ? 0 : old);
+        trim();
+        return file;
+    }
+
+    private void trim() {
+        final Iterator<Map.Entry<String, Long>> iterator = mEntries.entrySet().iterator();
+        while (mSize > mMaxBytes && iterator.hasNext()) {
+            final Map.Entry<String, Long> eldest = iterator.next();
+            iterator.remove();
+            mSize -= eldest.getValue();
+            delete(new File(mDir, eldest.getKey()));
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        final File[] files = mDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final long[] modified = new long[files.length];
+        final Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+        for (Integer i : order) {
+            final File file = files[i];
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                // 上次进程退出时未完成的下载
+                delete(file);
+            } else if (file.isFile()) {
+                mEntries.put(file.getName(), file.length());
+                mSize += file.length();
+            }
+        }
+        trim();
+        Timber.d("gift asset cache loaded >>> files:" + mEntries.size() + " | bytes:" + mSize);
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            Timber.w("gift asset cache delete failure >>> " + file);
+        }
+    }
+
+    private static String fileName(String url) {
+        final HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+        if (httpUrl == null) {
+            return null;
+        }
+        final String name = ByteString.encodeUtf8(url).md5().hex();
+        final String segment = httpUrl.pathSegments().get(httpUrl.pathSize() - 1);
+        final int dot = segment.lastIndexOf('.');
+        final String extension = dot < 0 ? "" : segment.substring(dot + 1);
+        // 保留扩展名，便于按扩展名识别格式的加载库
+        if (extension.isEmpty() || extension.length() > MAX_EXTENSION_LENGTH || !isAlphanumeric(extension)) {
+            return name;
+        }
+        return name + "." + extension;
+    }
+
+    private static boolean isAlphanumeric(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,299 @@
+package com.basetools.net.gift;
+
+import android.text.TextUtils;
+import com.basetools.CallKit;
+import com.basetools.listener.GiftCatalogListener;
+import com.basetools.model.Gift;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.NetworkExecutors;
+import com.basetools.util.Timber;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+
+/**
+ * 礼物素材预下载：礼物目录同步后在后台下载图标（giftUrl）和特效动画（svgaUrl）到 {@link GiftAssetCache}，
+ * 送礼时可直接从本地读取，避免通话中首次播放特效时卡顿
+ * </br>
+ * 先下载全部图标（礼物面板展示），再按价格从低到高下载动画（低价礼物赠送最频繁）。下载及扫描缓存使用单独的
+ * {@link NetworkExecutors.Pool#PREFETCH} 线程池和OkHttp Dispatcher（与信令长连接相同的做法），同时下载数不超过
+ * {@link #MAX_CONCURRENT_DOWNLOADS}，不占用业务请求的异步线程和Dispatcher名额。
+ * </br>
+ * 通话期间（加入频道成功到离开、拒绝、停止心跳或心跳最终失败）暂停：取消进行中的下载并放回队首，带宽留给音视频，通话全部结束后继续。
+ * 已缓存的素材可随时通过 {@link #getSvgaPath}、{@link #getIconPath} 同步读取。
+ */
+public final class GiftAssetPrefetcher implements GiftCatalogListener {
+
+    private static final String DIR_NAME = "callkit/gift_assets";
+    static final int MAX_CONCURRENT_DOWNLOADS = NetworkExecutors.PREFETCH_THREADS;
+
+    private static volatile GiftAssetPrefetcher sInstance;
+
+    private final GiftAssetCache mCache;
+    private final ArrayDeque<String> mPending = new ArrayDeque<>();
+    /**
+     * 已排队或正在下载的地址，避免重复下载
+     */
+    private final Set<String> mQueued = new HashSet<>();
+    private final Map<String, Call> mRunning = new HashMap<>();
+    private final Set<String> mActiveCalls = new HashSet<>();
+    private boolean mStarted;
+    private OkHttpClient mClient;
+
+    public static GiftAssetPrefetcher getInstance() {
+        GiftAssetPrefetcher prefetcher = sInstance;
+        if (prefetcher == null) {
+            synchronized (GiftAssetPrefetcher.class) {
+                prefetcher = sInstance;
+                if (prefetcher == null) {
+                    final CallKit callKit = CallKit.getInstance();
+                    // 未初始化时只能读取已缓存的素材，init 由 CallKit 在开启预下载时调用
+                    final CallConfig config = callKit.getCallConfig();
+                    final long maxBytes = config != null
+                            ? config.getGiftAssetCacheBytes()
+                            : CallConfig.DEFAULT_GIFT_ASSET_CACHE_BYTES;
+                    prefetcher = new GiftAssetPrefetcher(new GiftAssetCache(
+                            new File(callKit.getContext().getCacheDir(), DIR_NAME), maxBytes));
+                    sInstance = prefetcher;
+                }
+            }
+        }
+        return prefetcher;
+    }
+
+    private GiftAssetPrefetcher(GiftAssetCache cache) {
+        this.mCache = cache;
+    }
+
+    /**
+     * 开始预下载：监听礼物目录变化，并在后台检查当前目录中未缓存的素材
+     */
+    public void init() {
+        synchronized (this) {
+            if (mStarted) {
+                return;
+            }
+            mStarted = true;
+        }
+        final GiftCatalog catalog = GiftCatalog.getInstance();
+        catalog.addListener(this);
+        ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.PREFETCH).execute(() -> enqueue(catalog.gifts()));
+    }
+
+    @Override
+    public void onGiftCatalogChanged(List<Gift> gifts) {
+        ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.PREFETCH).execute(() -> enqueue(gifts));
+    }
+
+    /**
+     * 礼物特效动画的本地路径
+     *
+     * @param giftId 礼物ID
+     * @return 路径，未缓存时为null（预下载开启时排到队首，稍后下载）
+     */
+    public String getSvgaPath(String giftId) {
+        final Gift gift = GiftCatalog.getInstance().gift(giftId);
+        return gift == null ? null : getCachedPath(gift.getSvgaUrl());
+    }
+
+    /**
+     * 礼物图标的本地路径
+     *
+     * @param giftId 礼物ID
+     * @return 路径，未缓存时为null（预下载开启时排到队首，稍后下载）
+     */
+    public String getIconPath(String giftId) {
+        final Gift gift = GiftCatalog.getInstance().gift(giftId);
+        return gift == null ? null : getCachedPath(gift.getGiftUrl());
+    }
+
+    /**
+     * 素材的本地路径
+     *
+     * @param url 素材地址
+     * @return 路径，未缓存时为null
+     */
+    public String getCachedPath(String url) {
+        if (TextUtils.isEmpty(url)) {
+            return null;
+        }
+        final File file = mCache.get(url);
+        if (file != null) {
+            return file.getPath();
+        }
+        synchronized (this) {
+            if (mStarted && mQueued.add(url)) {
+                mPending.addFirst(url);
+                schedule();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 通话开始，暂停预下载
+     *
+     * @param channelId 频道ID
+     */
+    public synchronized void onCallStarted(String channelId) {
+        if (channelId == null || !mActiveCalls.add(channelId) || mActiveCalls.size() > 1) {
+            return;
+        }
+        if (!mRunning.isEmpty()) {
+            Timber.d("gift asset prefetch paused >>> cancel:" + mRunning.size() + " | pending:" + mPending.size());
+        }
+        for (Map.Entry<String, Call> entry : mRunning.entrySet()) {
+            entry.getValue().cancel();
+            mPending.addFirst(entry.getKey());
+        }
+        mRunning.clear();
+    }
+
+    /**
+     * 通话结束，所有通话都结束后继续预下载
+     *
+     * @param channelId 频道ID
+     */
+    public synchronized void onCallEnded(String channelId) {
+        if (channelId != null && mActiveCalls.remove(channelId) && mActiveCalls.isEmpty()) {
+            schedule();
+        }
+    }
+
+    private void enqueue(List<Gift> gifts) {
+        final List<Gift> byPrice = new ArrayList<>(gifts);
+        Collections.sort(byPrice, (a, b) -> Integer.compare(a.getPrice(), b.getPrice()));
+        final LinkedHashSet<String> urls = new LinkedHashSet<>();
+        for (Gift gift : byPrice) {
+            addUrl(urls, gift.getGiftUrl());
+        }
+        for (Gift gift : byPrice) {
+            addUrl(urls, gift.getSvgaUrl());
+        }
+        synchronized (this) {
+            int added = 0;
+            for (String url : urls) {
+                if (mQueued.add(url)) {
+                    mPending.addLast(url);
+                    added++;
+                }
+            }
+            if (added > 0) {
+                Timber.d("gift asset prefetch enqueue >>> " + added + " | calls:" + mActiveCalls.size());
+                schedule();
+            }
+        }
+    }
+
+    private void addUrl(Set<String> urls, String url) {
+        // 读取缓存需要扫描目录，在后台线程完成
+        if (!TextUtils.isEmpty(url) && mCache.get(url) == null) {
+            urls.add(url);
+        }
+    }
+
+    private synchronized void schedule() {
+        while (mActiveCalls.isEmpty() && mRunning.size() < MAX_CONCURRENT_DOWNLOADS && !mPending.isEmpty()) {
+            final String url = mPending.pollFirst();
+            if (mCache.get(url) != null) {
+                // 取消前已下载完成
+                mQueued.remove(url);
+                continue;
+            }
+            final Request request;
+            try {
+                request = new Request.Builder().url(url).build();
+            } catch (IllegalArgumentException e) {
+                mQueued.remove(url);
+                Timber.w("gift asset illegal url >>> " + url);
+                continue;
+            }
+            final Call call = client().newCall(request);
+            mRunning.put(url, call);
+            call.enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    onDownloaded(url, call, e.toString());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    String error = null;
+                    try (ResponseBody body = response.body()) {
+                        if (!response.isSuccessful() || body == null) {
+                            error = "http " + response.code();
+                        } else if (body.contentLength() > mCache.getMaxBytes()) {
+                            error = "too large " + body.contentLength();
+                        } else {
+                            save(url, body);
+                        }
+                    } catch (IOException e) {
+                        error = e.toString();
+                    }
+                    onDownloaded(url, call, error);
+                }
+            });
+        }
+    }
+
+    private synchronized OkHttpClient client() {
+        if (mClient == null) {
+            // 共用连接池、拦截器，下载使用单独的线程池和Dispatcher
+            final Dispatcher dispatcher = new Dispatcher(
+                    ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.PREFETCH));
+            dispatcher.setMaxRequests(MAX_CONCURRENT_DOWNLOADS);
+            mClient = ApiClient.getInstance().getOkHttpClient().newBuilder()
+                    .dispatcher(dispatcher)
+                    .build();
+        }
+        return mClient;
+    }
+
+    private void save(String url, ResponseBody body) throws IOException {
+        final File temp = mCache.newTempFile(url);
+        if (temp == null) {
+            throw new IOException("create temp file failure");
+        }
+        try (BufferedSink sink = Okio.buffer(Okio.sink(temp))) {
+            sink.writeAll(body.source());
+        }
+        if (mCache.commit(url, temp) == null) {
+            throw new IOException("commit failure");
+        }
+    }
+
+    /**
+     * @param error 失败原因，成功时为null
+     */
+    private synchronized void onDownloaded(String url, Call call, String error) {
+        if (mRunning.get(url) != call) {
+            // 通话开始时已取消并放回队列
+            return;
+        }
+        mRunning.remove(url);
+        mQueued.remove(url);
+        if (error != null) {
+            // 本轮不再重试，下次目录同步或启动时重新下载
+            Timber.w("gift asset prefetch failure >>> " + url + " | " + error);
+        }
+        schedule();
+    }
+}
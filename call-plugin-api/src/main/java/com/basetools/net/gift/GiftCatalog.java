@@ -0,0 +1,322 @@
+package com.basetools.net.gift;
+
+import android.text.TextUtils;
+import com.basetools.CallKit;
+import com.basetools.listener.GiftCatalogListener;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListRequest;
+import com.basetools.model.GiftListResult;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.ApiObserver;
+import com.basetools.net.core.NetworkExecutors;
+import com.basetools.net.repository.CallRepository;
+import com.basetools.util.Timber;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
+/**
+ * 礼物目录：本地保存上次的礼物列表及 lastTime，启动后直接从内存读取，后台只拉取增量
+ * </br>
+ * 增量同步：以保存的 lastTime 请求，返回的礼物按 giftId 新增或覆盖，deletedIds 中的礼物删除；
+ * lastTime 为 0（首次或本地文件损坏）时返回的即为全部礼物。同步成功后整体写入快照文件（先写临时文件再重命名），
+ * 进程在写入过程中被杀不会损坏上次的快照。
+ * </br>
+ * 快照为内存映射的二进制文件（{@link GiftSnapshotFile}），启动时打开快照不解析礼物，礼物在访问时才创建。
+ * 目录以不可修改的快照发布，读取无需加锁；价格、类型等查询见 {@link #getIndex()}。
+ * 快照中的礼物为内部共用，对外（查询结果及 {@link GiftCatalogListener}）只提供副本。
+ */
+public final class GiftCatalog {
+
+    private static final String DIR_NAME = "callkit";
+    private static final String FILE_NAME = "gift_catalog.bin";
+
+    private static volatile GiftCatalog sInstance;
+
+    private final File mSnapshotFile;
+    private final Object mLoadLock = new Object();
+    private final AtomicBoolean mSyncing = new AtomicBoolean();
+    private final CopyOnWriteArrayList<GiftCatalogListener> mListeners = new CopyOnWriteArrayList<>();
+    private volatile Snapshot mSnapshot;
+
+    public static GiftCatalog getInstance() {
+        GiftCatalog catalog = sInstance;
+        if (catalog == null) {
+            synchronized (GiftCatalog.class) {
+                catalog = sInstance;
+                if (catalog == null) {
+                    File dir = new File(CallKit.getInstance().getContext().getFilesDir(), DIR_NAME);
+                    catalog = new GiftCatalog(new File(dir, FILE_NAME));
+                    sInstance = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    private GiftCatalog(File snapshotFile) {
+        this.mSnapshotFile = snapshotFile;
+    }
+
+    /**
+     * 后台加载本地快照并增量同步
+     */
+    public void init() {
+        ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.WORKER).execute(() -> {
+            ensureLoaded();
+            sync();
+        });
+    }
+
+    /**
+     * 全部礼物，本地快照尚未加载时同步加载
+     *
+     * @return 礼物副本
+     */
+    public List<Gift> getGifts() {
+        return GiftIndex.copyOf(gifts());
+    }
+
+    /**
+     * 按ID查找礼物
+     *
+     * @param giftId 礼物ID
+     * @return 礼物副本，不存在时为null
+     */
+    public Gift getGift(String giftId) {
+        final Gift gift = gift(giftId);
+        return gift == null ? null : GiftIndex.copyOf(gift);
+    }
+
+    /**
+     * 快照中共用的礼物，仅供内部读取
+     *
+     * @return 不可修改的列表
+     */
+    List<Gift> gifts() {
+        return ensureLoaded().gifts;
+    }
+
+    /**
+     * 按ID查找快照中共用的礼物，仅供内部读取
+     */
+    Gift gift(String giftId) {
+        return giftId == null ? null : ensureLoaded().find(giftId);
+    }
+
+    /**
+     * 当前礼物目录的索引，用于按价格、类型及名称查询
+     * </br>
+     * 返回的索引不会随同步改变，多次查询需要一致的结果时持有同一个索引即可
+     */
+    public GiftIndex getIndex() {
+        return ensureLoaded().index();
+    }
+
+    /**
+     * 上次同步的服务端时间，0 表示尚未同步
+     */
+    public long getLastTime() {
+        return ensureLoaded().lastTime;
+    }
+
+    public void addListener(GiftCatalogListener listener) {
+        mListeners.addIfAbsent(listener);
+    }
+
+    public void removeListener(GiftCatalogListener listener) {
+        mListeners.remove(listener);
+    }
+
+    /**
+     * 增量同步，同步中重复调用忽略
+     */
+    public void sync() {
+        if (!mSyncing.compareAndSet(false, true)) {
+            return;
+        }
+        final Snapshot base = ensureLoaded();
+        final LinkedHashMap<String, Gift> upserts = new LinkedHashMap<>();
+        CallRepository.getInstance().giftList(new GiftListRequest(base.lastTime), gift -> {
+            if (!TextUtils.isEmpty(gift.getGiftId())) {
+                // 网络异常重试时从头下发，按ID覆盖即可
+                synchronized (upserts) {
+                    upserts.put(gift.getGiftId(), gift);
+                }
+            }
+        }, new ApiObserver<GiftListResult>() {
+            @Override
+            public void onNext(GiftListResult result) {
+                final GiftListResult.GiftData data = result.getData();
+                if (data == null) {
+                    mSyncing.set(false);
+                    return;
+                }
+                ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.WORKER).execute(() -> {
+                    try {
+                        synchronized (upserts) {
+                            apply(base, data.getLastTime(), upserts, data.getDeletedIds());
+                        }
+                    } finally {
+                        mSyncing.set(false);
+                    }
+                });
+            }
+
+            @Override
+            protected void onErrorResolved(Throwable e, String msg) {
+                mSyncing.set(false);
+                Timber.w("gift catalog sync failure >>> " + e);
+            }
+        });
+    }
+
+    /**
+     * 合并增量并保存
+     */
+    private void apply(Snapshot base, long lastTime, Map<String, Gift> upserts, List<String> deletedIds) {
+        final boolean full = base.lastTime == 0;
+        final boolean deleted = deletedIds != null && !deletedIds.isEmpty();
+        if (!full && upserts.isEmpty() && !deleted) {
+            if (lastTime != base.lastTime) {
+                mSnapshot = new Snapshot(lastTime, base.gifts, base);
+                saveLastTime(base.lastTime, mSnapshot);
+            }
+            return;
+        }
+        final LinkedHashMap<String, Gift> merged = new LinkedHashMap<>();
+        if (!full) {
+            for (Gift gift : base.gifts) {
+                merged.put(gift.getGiftId(), gift);
+            }
+        }
+        // 已有的礼物原位覆盖，新礼物追加在后
+        merged.putAll(upserts);
+        if (deleted) {
+            for (String giftId : deletedIds) {
+                merged.remove(giftId);
+            }
+        }
+        Timber.d("gift catalog synced >>> full:" + full + " | upserts:" + upserts.size()
+                + " | deleted:" + (deleted ? deletedIds.size() : 0) + " | total:" + merged.size());
+        publish(new Snapshot(lastTime, new ArrayList<>(merged.values())), true);
+    }
+
+    private void publish(Snapshot snapshot, boolean changed) {
+        mSnapshot = snapshot;
+        save(snapshot);
+        if (changed && !mListeners.isEmpty()) {
+            AndroidSchedulers.mainThread().scheduleDirect(() -> {
+                for (GiftCatalogListener listener : mListeners) {
+                    listener.onGiftCatalogChanged(Collections.unmodifiableList(GiftIndex.copyOf(snapshot.gifts)));
+                }
+            });
+        }
+    }
+
+    private Snapshot ensureLoaded() {
+        Snapshot snapshot = mSnapshot;
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (mLoadLock) {
+            snapshot = mSnapshot;
+            if (snapshot == null) {
+                snapshot = load();
+                mSnapshot = snapshot;
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot load() {
+        if (mSnapshotFile.exists()) {
+            try {
+                final GiftSnapshotFile.Mapped mapped = GiftSnapshotFile.open(mSnapshotFile);
+                Timber.d("gift catalog loaded >>> lastTime:" + mapped.getLastTime() + " | total:" + mapped.size());
+                return new Snapshot(mapped.getLastTime(), mapped);
+            } catch (IOException e) {
+                // 文件损坏时重新全量同步
+                Timber.e("gift catalog load failure >>> " + e.getMessage());
+            }
+        }
+        return new Snapshot(0, Collections.<Gift>emptyList());
+    }
+
+    /**
+     * 礼物没有变化，只更新快照文件头的 lastTime
+     */
+    private void saveLastTime(long expected, Snapshot snapshot) {
+        try {
+            if (GiftSnapshotFile.patchLastTime(mSnapshotFile, expected, snapshot.lastTime)) {
+                return;
+            }
+        } catch (IOException e) {
+            Timber.e("gift catalog patch lastTime failure >>> " + e.getMessage());
+        }
+        save(snapshot);
+    }
+
+    private void save(Snapshot snapshot) {
+        final File dir = mSnapshotFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            Timber.e("gift catalog mkdirs failure >>> " + dir);
+            return;
+        }
+        try {
+            GiftSnapshotFile.write(mSnapshotFile, snapshot.lastTime, snapshot.gifts);
+        } catch (IOException e) {
+            Timber.e("gift catalog save failure >>> " + e.getMessage());
+        }
+    }
+
+    /**
+     * 不可修改的礼物目录，同步后整体替换
+     */
+    private static final class Snapshot {
+        final long lastTime;
+        final List<Gift> gifts;
+        private volatile GiftIndex mIndex;
+
+        Snapshot(long lastTime, List<Gift> gifts) {
+            this.lastTime = lastTime;
+            this.gifts = gifts instanceof GiftSnapshotFile.Mapped ? gifts : Collections.unmodifiableList(gifts);
+        }
+
+        /**
+         * 礼物不变，沿用 base 已建立的索引
+         */
+        Snapshot(long lastTime, List<Gift> gifts, Snapshot base) {
+            this.lastTime = lastTime;
+            this.gifts = gifts;
+            this.mIndex = base.mIndex;
+        }
+
+        Gift find(String giftId) {
+            if (mIndex == null && gifts instanceof GiftSnapshotFile.Mapped) {
+                // 只读取giftId，不创建其他礼物
+                return ((GiftSnapshotFile.Mapped) gifts).find(giftId);
+            }
+            return index().find(giftId);
+        }
+
+        /**
+         * 首次查询时建立，并发时可能重复建立，结果相同
+         */
+        GiftIndex index() {
+            GiftIndex index = mIndex;
+            if (index == null) {
+                index = gifts.isEmpty() ? GiftIndex.EMPTY : new GiftIndex(gifts);
+                mIndex = index;
+            }
+            return index;
+        }
+    }
+}
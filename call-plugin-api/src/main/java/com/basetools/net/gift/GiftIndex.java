@@ -0,0 +1,329 @@
+package com.basetools.net.gift;
+
+import android.text.TextUtils;
+import com.basetools.model.Gift;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 礼物目录索引：按ID、价格、类型及名称前缀查询
+ * </br>
+ * 索引随礼物列表一次建立后不再修改，目录同步时整体替换为新的索引（写时复制），读取方无需加锁，
+ * 持有的索引在整个查询过程中保持一致。
+ * </br>
+ * 目录中的礼物由所有查询共用，查询返回的是副本，调用方可以自由修改（如 {@link Gift#setSelected}）。
+ */
+public final class GiftIndex {
+
+    static final GiftIndex EMPTY = new GiftIndex(Collections.<Gift>emptyList());
+
+    private final List<Gift> mGifts;
+    private final HashMap<String, Integer> mById;
+    /**
+     * 按价格升序排列的礼物下标及对应价格，价格相同时保持目录顺序
+     */
+    private final int[] mPriceOrder;
+    private final int[] mPrices;
+    /**
+     * 类型 -> 礼物下标（目录顺序）
+     */
+    private final HashMap<Integer, int[]> mByType;
+    /**
+     * 小写名称（giftName/english/taditional）升序排列，mNameGifts 为对应的礼物下标
+     */
+    private final String[] mNames;
+    private final int[] mNameGifts;
+
+    /**
+     * @param gifts 礼物，之后不可修改；实现了 {@link Records} 时（映射的快照）直接读取记录，不创建礼物
+     */
+    GiftIndex(List<Gift> gifts) {
+        this(gifts, gifts instanceof Records ? (Records) gifts : new GiftRecords(gifts));
+    }
+
+    private GiftIndex(List<Gift> gifts, Records records) {
+        final int size = records.size();
+        this.mGifts = gifts;
+        this.mById = new HashMap<>(size * 2);
+        this.mPrices = new int[size];
+        final int[] types = new int[size];
+        final HashMap<Integer, Integer> typeCounts = new HashMap<>();
+        final Integer[] order = new Integer[size];
+        final List<NameEntry> names = new ArrayList<>(size * 3);
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            mById.put(records.giftId(i), i);
+            mPrices[i] = records.price(i);
+            types[i] = records.giftType(i);
+            final Integer count = typeCounts.get(types[i]);
+            typeCounts.put(types[i], count == null ? 1 : count + 1);
+            addName(names, records.giftName(i), i);
+            addName(names, records.english(i), i);
+            addName(names, records.taditional(i), i);
+        }
+        // 归并排序是稳定的，价格相同时保持目录顺序
+        final int[] prices = mPrices.clone();
+        Arrays.sort(order, (a, b) -> Integer.compare(prices[a], prices[b]));
+        this.mPriceOrder = new int[size];
+        for (int i = 0; i < size; i++) {
+            mPriceOrder[i] = order[i];
+            mPrices[i] = prices[order[i]];
+        }
+        this.mByType = new HashMap<>(typeCounts.size() * 2);
+        for (Map.Entry<Integer, Integer> entry : typeCounts.entrySet()) {
+            mByType.put(entry.getKey(), new int[entry.getValue()]);
+            entry.setValue(0);
+        }
+        for (int i = 0; i < size; i++) {
+            final int filled = typeCounts.get(types[i]);
+            mByType.get(types[i])[filled] = i;
+            typeCounts.put(types[i], filled + 1);
+        }
+        Collections.sort(names, NameEntry.COMPARATOR);
+        this.mNames = new String[names.size()];
+        this.mNameGifts = new int[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            mNames[i] = names.get(i).name;
+            mNameGifts[i] = names.get(i).gift;
+        }
+    }
+
+    private static void addName(List<NameEntry> names, String name, int gift) {
+        if (!TextUtils.isEmpty(name)) {
+            names.add(new NameEntry(normalize(name), gift));
+        }
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 全部礼物，按目录顺序
+     *
+     * @return 礼物副本
+     */
+    public List<Gift> getGifts() {
+        return copyOf(mGifts);
+    }
+
+    public int size() {
+        return mGifts.size();
+    }
+
+    /**
+     * 按ID查找
+     *
+     * @param giftId 礼物ID
+     * @return 礼物副本，不存在时为null
+     */
+    public Gift get(String giftId) {
+        final Gift gift = find(giftId);
+        return gift == null ? null : copyOf(gift);
+    }
+
+    /**
+     * 按ID查找目录中共用的礼物，仅供内部读取
+     */
+    Gift find(String giftId) {
+        final Integer index = giftId == null ? null : mById.get(giftId);
+        return index == null ? null : mGifts.get(index);
+    }
+
+    /**
+     * 价格在 [minPrice, maxPrice] 区间内的礼物
+     *
+     * @return 礼物副本，按价格升序，价格相同时按目录顺序
+     */
+    public List<Gift> getByPrice(int minPrice, int maxPrice) {
+        if (minPrice > maxPrice) {
+            return Collections.emptyList();
+        }
+        final int from = lowerBound(mPrices, minPrice);
+        final int to = maxPrice == Integer.MAX_VALUE ? mPrices.length : lowerBound(mPrices, maxPrice + 1);
+        final List<Gift> result = new ArrayList<>(Math.max(to - from, 0));
+        for (int i = from; i < to; i++) {
+            result.add(copyOf(mGifts.get(mPriceOrder[i])));
+        }
+        return result;
+    }
+
+    /**
+     * 余额足够赠送的礼物
+     *
+     * @param balance 余额
+     * @return 礼物副本，按价格升序
+     */
+    public List<Gift> getAffordable(int balance) {
+        return getByPrice(Integer.MIN_VALUE, balance);
+    }
+
+    /**
+     * 指定类型的礼物
+     *
+     * @return 礼物副本，按目录顺序
+     */
+    public List<Gift> getByType(int giftType) {
+        final int[] gifts = mByType.get(giftType);
+        if (gifts == null) {
+            return Collections.emptyList();
+        }
+        final List<Gift> result = new ArrayList<>(gifts.length);
+        for (int gift : gifts) {
+            result.add(copyOf(mGifts.get(gift)));
+        }
+        return result;
+    }
+
+    /**
+     * 按名称前缀搜索，同时匹配 giftName、english、taditional，忽略大小写
+     *
+     * @param prefix 前缀，为空时返回空列表
+     * @return 礼物副本，按目录顺序，每个礼物最多出现一次
+     */
+    public List<Gift> search(String prefix) {
+        if (TextUtils.isEmpty(prefix) || TextUtils.isEmpty(prefix.trim())) {
+            return Collections.emptyList();
+        }
+        final String key = normalize(prefix);
+        final BitSet matched = new BitSet(mGifts.size());
+        int i = Arrays.binarySearch(mNames, key);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        for (; i < mNames.length && mNames[i].startsWith(key); i++) {
+            matched.set(mNameGifts[i]);
+        }
+        final List<Gift> result = new ArrayList<>(matched.cardinality());
+        for (int gift = matched.nextSetBit(0); gift >= 0; gift = matched.nextSetBit(gift + 1)) {
+            result.add(copyOf(mGifts.get(gift)));
+        }
+        return result;
+    }
+
+    /**
+     * 礼物副本，目录中共用的礼物不对外提供
+     */
+    static Gift copyOf(Gift gift) {
+        final Gift copy = new Gift(gift.getGiftId());
+        copy.setGiftName(gift.getGiftName());
+        copy.setGiftDesc(gift.getGiftDesc());
+        copy.setGiftType(gift.getGiftType());
+        copy.setPrice(gift.getPrice());
+        copy.setGiftUrl(gift.getGiftUrl());
+        copy.setEnglish(gift.getEnglish());
+        copy.setTaditional(gift.getTaditional());
+        copy.setSvgaUrl(gift.getSvgaUrl());
+        copy.setSelected(gift.isSelected());
+        return copy;
+    }
+
+    static List<Gift> copyOf(List<Gift> gifts) {
+        final List<Gift> copies = new ArrayList<>(gifts.size());
+        for (Gift gift : gifts) {
+            copies.add(copyOf(gift));
+        }
+        return copies;
+    }
+
+    /**
+     * 第一个不小于 value 的位置
+     */
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 建立索引时读取的字段
+     */
+    interface Records {
+        int size();
+
+        String giftId(int index);
+
+        int giftType(int index);
+
+        int price(int index);
+
+        String giftName(int index);
+
+        String english(int index);
+
+        String taditional(int index);
+    }
+
+    /**
+     * 内存中的礼物列表
+     */
+    private static final class GiftRecords implements Records {
+        private final List<Gift> mGifts;
+
+        GiftRecords(List<Gift> gifts) {
+            this.mGifts = gifts;
+        }
+
+        @Override
+        public int size() {
+            return mGifts.size();
+        }
+
+        @Override
+        public String giftId(int index) {
+            return mGifts.get(index).getGiftId();
+        }
+
+        @Override
+        public int giftType(int index) {
+            return mGifts.get(index).getGiftType();
+        }
+
+        @Override
+        public int price(int index) {
+            return mGifts.get(index).getPrice();
+        }
+
+        @Override
+        public String giftName(int index) {
+            return mGifts.get(index).getGiftName();
+        }
+
+        @Override
+        public String english(int index) {
+            return mGifts.get(index).getEnglish();
+        }
+
+        @Override
+        public String taditional(int index) {
+            return mGifts.get(index).getTaditional();
+        }
+    }
+
+    private static final class NameEntry {
+        static final Comparator<NameEntry> COMPARATOR = (a, b) -> a.name.compareTo(b.name);
+
+        final String name;
+        final int gift;
+
+        NameEntry(String name, int gift) {
+            this.name = name;
+            this.gift = gift;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.basetools.net.gift;
+
+import com.basetools.model.Gift;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 礼物目录二进制快照：定长记录 + 字符串表，通过 {@link FileChannel#map} 读取
+ * </br>
+ * 打开时校验文件头及各字符串的偏移和长度，不解码字符串；{@link Gift} 在首次访问时才从映射内存中创建，之后复用同一实例。
+ * 文件由 {@link #write} 整体写入临时文件后重命名，已映射的旧文件不受影响。
+ * <pre>
+ * 文件头：magic(int) version(int) lastTime(long) count(int) stringsOffset(int)
+ * 记录（每个 {@link #RECORD_SIZE} 字节）：giftId giftName giftDesc giftUrl english taditional svgaUrl（字符串偏移，int）
+ *                                        giftType(int) price(int)
+ * 字符串表：length(int) UTF-8字节，相同字符串只保存一次
+ * </pre>
+ * 字符串偏移相对字符串表起始位置，-1 表示null。整数均为大端。
+ */
+final class GiftSnapshotFile {
+
+    private static final int MAGIC = 0x434B4746;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int STRING_FIELDS = 7;
+    static final int RECORD_SIZE = STRING_FIELDS * 4 + 8;
+    private static final int NULL_STRING = -1;
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private GiftSnapshotFile() {
+    }
+
+    /**
+     * 写入快照
+     *
+     * @param file     快照文件
+     * @param lastTime 服务端同步时间
+     * @param gifts    礼物
+     */
+    static void write(File file, long lastTime, List<Gift> gifts) throws IOException {
+        final ByteArrayOutputStream strings = new ByteArrayOutputStream();
+        final DataOutputStream stringsOut = new DataOutputStream(strings);
+        final Map<String, Integer> stringOffsets = new HashMap<>();
+        final ByteArrayOutputStream records = new ByteArrayOutputStream(gifts.size() * RECORD_SIZE);
+        final DataOutputStream recordsOut = new DataOutputStream(records);
+        for (Gift gift : gifts) {
+            final String[] fields = {gift.getGiftId(), gift.getGiftName(), gift.getGiftDesc(), gift.getGiftUrl(),
+                    gift.getEnglish(), gift.getTaditional(), gift.getSvgaUrl()};
+            for (String field : fields) {
+                if (field == null) {
+                    recordsOut.writeInt(NULL_STRING);
+                    continue;
+                }
+                Integer offset = stringOffsets.get(field);
+                if (offset == null) {
+                    offset = stringsOut.size();
+                    stringOffsets.put(field, offset);
+                    final byte[] bytes = field.getBytes(UTF_8);
+                    stringsOut.writeInt(bytes.length);
+                    stringsOut.write(bytes);
+                }
+                recordsOut.writeInt(offset);
+            }
+            recordsOut.writeInt(gift.getGiftType());
+            recordsOut.writeInt(gift.getPrice());
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            final DataOutputStream header = new DataOutputStream(out);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeLong(lastTime);
+            header.writeInt(gifts.size());
+            header.writeInt(HEADER_SIZE + records.size());
+            records.writeTo(out);
+            strings.writeTo(out);
+            out.getFD().sync();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("rename failure: " + file);
+        }
+    }
+
+    /**
+     * 只更新文件头的 lastTime，礼物没有变化时使用，不重写整个文件
+     *
+     * @param file     快照文件
+     * @param expected 文件中当前的 lastTime
+     * @param lastTime 新的 lastTime
+     * @return 文件不存在、格式不符或 lastTime 与 expected 不同（快照未保存成功）时返回false，需整体写入
+     */
+    static boolean patchLastTime(File file, long expected, long lastTime) throws IOException {
+        if (!file.exists()) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < HEADER_SIZE || raf.readInt() != MAGIC || raf.readInt() != VERSION
+                    || raf.readLong() != expected) {
+                return false;
+            }
+            // 8字节位于同一页内，写入不会只完成一半
+            raf.seek(8);
+            raf.writeLong(lastTime);
+            raf.getFD().sync();
+        }
+        return true;
+    }
+
+    /**
+     * 映射快照文件
+     *
+     * @param file 快照文件
+     * @return 快照
+     * @throws IOException 文件不存在、格式或版本不符，或字符串超出文件范围
+     */
+    static Mapped open(File file) throws IOException {
+        final MappedByteBuffer buffer;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // 关闭文件后映射仍然有效
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("illegal gift snapshot");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("unsupported gift snapshot version: " + buffer.getInt(4));
+        }
+        final long lastTime = buffer.getLong(8);
+        final int count = buffer.getInt(16);
+        final int stringsOffset = buffer.getInt(20);
+        if (count < 0 || stringsOffset != HEADER_SIZE + (long) count * RECORD_SIZE || stringsOffset > buffer.capacity()) {
+            throw new IOException("truncated gift snapshot");
+        }
+        checkStrings(buffer, count, stringsOffset);
+        return new Mapped(buffer, lastTime, count, stringsOffset);
+    }
+
+    /**
+     * 校验每条记录的字符串偏移及长度都在字符串表内，之后读取时不再检查
+     */
+    private static void checkStrings(ByteBuffer buffer, int count, int stringsOffset) throws IOException {
+        final long end = buffer.capacity();
+        for (int i = 0; i < count; i++) {
+            final int record = HEADER_SIZE + i * RECORD_SIZE;
+            for (int field = 0; field < STRING_FIELDS; field++) {
+                final int ref = buffer.getInt(record + field * 4);
+                if (ref == NULL_STRING) {
+                    continue;
+                }
+                final long position = (long) stringsOffset + ref;
+                if (ref < 0 || position + 4 > end) {
+                    throw new IOException("illegal string offset in gift snapshot: " + ref);
+                }
+                final int length = buffer.getInt((int) position);
+                if (length < 0 || position + 4 + length > end) {
+                    throw new IOException("illegal string length in gift snapshot: " + length);
+                }
+            }
+        }
+    }
+
+    /**
+     * 映射的快照，礼物按需创建
+     */
+    static final class Mapped extends AbstractList<Gift> implements RandomAccess, GiftIndex.Records {
+
+        private final ByteBuffer mBuffer;
+        private final long mLastTime;
+        private final int mCount;
+        private final int mStringsOffset;
+        private final AtomicReferenceArray<Gift> mGifts;
+        /**
+         * giftId -> 下标，首次按ID查找时只读取各记录的giftId建立
+         */
+        private volatile Map<String, Integer> mIndexById;
+
+        private Mapped(ByteBuffer buffer, long lastTime, int count, int stringsOffset) {
+            this.mBuffer = buffer;
+            this.mLastTime = lastTime;
+            this.mCount = count;
+            this.mStringsOffset = stringsOffset;
+            this.mGifts = new AtomicReferenceArray<>(count);
+        }
+
+        long getLastTime() {
+            return mLastTime;
+        }
+
+        @Override
+        public int size() {
+            return mCount;
+        }
+
+        @Override
+        public Gift get(int index) {
+            Gift gift = mGifts.get(index);
+            if (gift == null) {
+                gift = read(index);
+                if (!mGifts.compareAndSet(index, null, gift)) {
+                    gift = mGifts.get(index);
+                }
+            }
+            return gift;
+        }
+
+        /**
+         * 按ID查找
+         *
+         * @return 礼物，不存在时为null
+         */
+        Gift find(String giftId) {
+            Map<String, Integer> index = mIndexById;
+            if (index == null) {
+                index = new HashMap<>(mCount * 2);
+                for (int i = 0; i < mCount; i++) {
+                    index.put(giftId(i), i);
+                }
+                mIndexById = index;
+            }
+            final Integer i = index.get(giftId);
+            return i == null ? null : get(i);
+        }
+
+        @Override
+        public String giftId(int index) {
+            return readString(recordOffset(index));
+        }
+
+        @Override
+        public int giftType(int index) {
+            return mBuffer.getInt(recordOffset(index) + STRING_FIELDS * 4);
+        }
+
+        @Override
+        public int price(int index) {
+            return mBuffer.getInt(recordOffset(index) + STRING_FIELDS * 4 + 4);
+        }
+
+        @Override
+        public String giftName(int index) {
+            return readString(recordOffset(index) + 4);
+        }
+
+        @Override
+        public String english(int index) {
+            return readString(recordOffset(index) + 16);
+        }
+
+        @Override
+        public String taditional(int index) {
+            return readString(recordOffset(index) + 20);
+        }
+
+        private int recordOffset(int index) {
+            if (index < 0 || index >= mCount) {
+                throw new IndexOutOfBoundsException("index: " + index + ", size: " + mCount);
+            }
+            return HEADER_SIZE + index * RECORD_SIZE;
+        }
+
+        private Gift read(int index) {
+            final int offset = recordOffset(index);
+            final Gift gift = new Gift(readString(offset));
+            gift.setGiftName(readString(offset + 4));
+            gift.setGiftDesc(readString(offset + 8));
+            gift.setGiftUrl(readString(offset + 12));
+            gift.setEnglish(readString(offset + 16));
+            gift.setTaditional(readString(offset + 20));
+            gift.setSvgaUrl(readString(offset + 24));
+            gift.setGiftType(mBuffer.getInt(offset + STRING_FIELDS * 4));
+            gift.setPrice(mBuffer.getInt(offset + STRING_FIELDS * 4 + 4));
+            return gift;
+        }
+
+        /**
+         * @param fieldOffset 记录中字符串偏移所在的位置
+         */
+        private String readString(int fieldOffset) {
+            final int ref = mBuffer.getInt(fieldOffset);
+            if (ref == NULL_STRING) {
+                return null;
+            }
+            final int position = mStringsOffset + ref;
+            final int length = mBuffer.getInt(position);
+            final byte[] bytes = new byte[length];
+            // 各线程使用独立的position
+            final ByteBuffer view = mBuffer.duplicate();
+            view.position(position + 4);
+            view.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+    }
+}
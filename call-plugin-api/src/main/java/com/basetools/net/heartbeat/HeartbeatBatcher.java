@@ -0,0 +1,53 @@
+package com.basetools.net.heartbeat;
+
+import com.basetools.net.core.ApiClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 心跳合并：第一次提交后等待 windowMillis，期间提交的心跳一起交给 {@link Flusher}
+ * </br>
+ * 与 {@link HeartbeatEngine} 配合使用，引擎在多房间模式下会把即将到期的其他房间提前到同一时刻发出。
+ *
+ * @param <T> 心跳
+ */
+public final class HeartbeatBatcher<T> {
+
+    /**
+     * 发出合并后的心跳，在共用的定时线程执行，不可阻塞
+     */
+    public interface Flusher<T> {
+        void flush(List<T> items);
+    }
+
+    private final long mWindowMillis;
+    private final Flusher<T> mFlusher;
+    private List<T> mPending = new ArrayList<>();
+
+    public HeartbeatBatcher(long windowMillis, Flusher<T> flusher) {
+        this.mWindowMillis = windowMillis;
+        this.mFlusher = flusher;
+    }
+
+    public void add(T item) {
+        synchronized (this) {
+            mPending.add(item);
+            if (mPending.size() > 1) {
+                return;
+            }
+        }
+        ApiClient.getExecutors().getTimer().schedule(this::flush, mWindowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        final List<T> items;
+        synchronized (this) {
+            items = mPending;
+            mPending = new ArrayList<>();
+        }
+        if (!items.isEmpty()) {
+            mFlusher.flush(items);
+        }
+    }
+}
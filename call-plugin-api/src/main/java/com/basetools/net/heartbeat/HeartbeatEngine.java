@@ -0,0 +1,377 @@
+package com.basetools.net.heartbeat;
+
+import com.basetools.CallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.RetryPolicy;
+import com.basetools.util.Timber;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+
+/**
+ * 心跳引擎：按频道启动、停止，所有频道共用一个定时线程
+ * </br>
+ * <ul>
+ * <li>不漂移：下次心跳时间由计划时间推算，而不是上次请求完成的时间；启动时指定了间隔的按指定间隔，否则
+ * {@link Callback#onSuccess(long)} 给出间隔时（已按计费分钟对齐）以响应时间为准。请求耗时超过间隔时跳过错过的心跳，不补发。</li>
+ * <li>同一频道同一时间最多一个心跳请求：请求完成后才安排下一次；重复启动只替换请求内容，
+ * 上一次请求未完成时等其完成后立即发出。</li>
+ * <li>暂时性失败（{@link RetryPolicy#isTransient}：网络错误、服务端5xx、熔断中）时在 {@link #GRACE_MILLIS} 内快速重试，
+ * 仍失败才回调 {@link Beat#onGiveUp}（主线程）；服务端明确拒绝（业务错误码、4xx）时直接回调。
+ * {@link Beat#send} 同步抛出异常时同样按暂时性失败重试。</li>
+ * <li>多房间模式（{@link CallConfig#isMultiRoomHeartbeatEnable()}）下，一个房间到期时把 {@link #GROUP_WINDOW_MILLIS}
+ * 内到期的其他房间一起发出，便于合并为一次请求。</li>
+ * </ul>
+ */
+public final class HeartbeatEngine {
+
+    /**
+     * 未指定间隔时的心跳间隔
+     */
+    private static final long DEFAULT_INTERVAL_MILLIS = HeartbeatIntervalPolicy.BILLING_PERIOD_MILLIS;
+    /**
+     * 从应发出心跳的时间起，允许连续失败的时长
+     */
+    private static final long GRACE_MILLIS = 30_000;
+    private static final long MIN_RETRY_DELAY_MILLIS = 2_000;
+    private static final long MAX_RETRY_DELAY_MILLIS = 8_000;
+    /**
+     * 多房间模式下，一个房间发出心跳时，在此时间内到期的其他房间一起发出
+     */
+    private static final long GROUP_WINDOW_MILLIS = 10_000;
+
+    /**
+     * 共用的定时线程及单调时钟
+     */
+    private static final Clock DEFAULT_CLOCK = new Clock() {
+        @Override
+        public long elapsedMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime());
+        }
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayMillis) {
+            return ApiClient.getExecutors().getTimer().schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        }
+    };
+
+    private static class SingletonHolder {
+        private static final HeartbeatEngine sInstance = new HeartbeatEngine(DEFAULT_CLOCK);
+    }
+
+    public static HeartbeatEngine getInstance() {
+        return SingletonHolder.sInstance;
+    }
+
+    /**
+     * 频道ID -> 心跳；停止时请求未完成的保留到请求完成
+     */
+    private final HashMap<String, Session> mSessions = new HashMap<>();
+    private final Clock mClock;
+
+    /**
+     * @param clock 定时及计时，测试时替换
+     */
+    HeartbeatEngine(Clock clock) {
+        this.mClock = clock;
+    }
+
+    /**
+     * 启动频道心跳，间隔由每次心跳的结果决定（{@link Callback#onSuccess(long)}），未给出时为计费周期
+     *
+     * @param channelId 频道ID
+     * @param beat      心跳请求
+     */
+    public void start(String channelId, Beat beat) {
+        start(channelId, 0, beat);
+    }
+
+    /**
+     * 启动频道心跳，立即发出第一次；已启动时替换请求内容及间隔，不会产生第二个定时器
+     *
+     * @param channelId      频道ID
+     * @param intervalMillis 固定间隔（毫秒），0 表示由每次心跳的结果决定
+     * @param beat           心跳请求
+     */
+    public synchronized void start(String channelId, long intervalMillis, Beat beat) {
+        Session session = mSessions.get(channelId);
+        if (session == null) {
+            session = new Session(channelId);
+            mSessions.put(channelId, session);
+        }
+        session.beat = beat;
+        session.intervalMillis = Math.max(0, intervalMillis);
+        session.stopped = false;
+        session.failingSince = -1;
+        session.failures = 0;
+        session.cancelTimer();
+        if (session.inFlight) {
+            session.fireWhenIdle = true;
+        } else {
+            scheduleLocked(session, elapsedMillis());
+        }
+        Timber.d("heartbeat start >>> channelId:" + channelId + " | interval:" + intervalMillis);
+    }
+
+    /**
+     * 停止频道心跳，未完成的请求结果被忽略
+     *
+     * @param channelId 频道ID
+     */
+    public synchronized void stop(String channelId) {
+        final Session session = mSessions.get(channelId);
+        if (session == null || session.stopped) {
+            return;
+        }
+        stopLocked(session);
+        Timber.d("heartbeat stop >>> channelId:" + channelId);
+    }
+
+    public synchronized boolean isRunning(String channelId) {
+        final Session session = mSessions.get(channelId);
+        return session != null && !session.stopped;
+    }
+
+    private void stopLocked(Session session) {
+        session.stopped = true;
+        session.fireWhenIdle = false;
+        session.cancelTimer();
+        if (!session.inFlight) {
+            mSessions.remove(session.channelId);
+        }
+    }
+
+    private void scheduleLocked(final Session session, long atMillis) {
+        final int sequence = ++session.sequence;
+        session.plannedAt = atMillis;
+        session.future = mClock.schedule(() -> fire(session, sequence), Math.max(0, atMillis - elapsedMillis()));
+    }
+
+    private void fire(Session session, int sequence) {
+        final List<Session> sessions = new ArrayList<>();
+        final List<Beat> beats = new ArrayList<>();
+        final List<Callback> callbacks = new ArrayList<>();
+        synchronized (this) {
+            // 已取消的定时任务可能已开始执行
+            if (session.stopped || session.inFlight || sequence != session.sequence) {
+                return;
+            }
+            sessions.add(session);
+            final CallConfig config = CallKit.getInstance().getCallConfig();
+            if (config != null && config.isMultiRoomHeartbeatEnable()) {
+                // 即将到期的其他房间提前一起发出，由 HeartbeatBatcher 合并为一次请求
+                final long now = elapsedMillis();
+                for (Session other : mSessions.values()) {
+                    if (other != session && !other.stopped && !other.inFlight && other.future != null
+                            && other.plannedAt - now <= GROUP_WINDOW_MILLIS) {
+                        sessions.add(other);
+                    }
+                }
+            }
+            for (Session s : sessions) {
+                s.cancelTimer();
+                s.inFlight = true;
+                beats.add(s.beat);
+                callbacks.add(new Callback(s));
+            }
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            send(sessions.get(i).channelId, beats.get(i), callbacks.get(i));
+        }
+    }
+
+    private static void send(String channelId, Beat beat, Callback callback) {
+        try {
+            beat.send(callback);
+        } catch (RuntimeException e) {
+            // 请求未发出，不是服务端的结论，在宽限期内重试
+            Timber.e(e, "heartbeat send failure >>> channelId:" + channelId);
+            callback.fail(e, null, true);
+        }
+    }
+
+    private void onSuccess(Session session, long nextDelayMillis) {
+        synchronized (this) {
+            if (finishLocked(session)) {
+                return;
+            }
+            session.failingSince = -1;
+            session.failures = 0;
+            final long now = elapsedMillis();
+            long next;
+            if (session.intervalMillis <= 0 && nextDelayMillis > 0) {
+                next = now + nextDelayMillis;
+            } else {
+                final long interval = session.intervalMillis > 0 ? session.intervalMillis : DEFAULT_INTERVAL_MILLIS;
+                next = session.plannedAt + interval;
+                while (next <= now) {
+                    next += interval;
+                }
+            }
+            scheduleLocked(session, next);
+        }
+    }
+
+    private void onFailure(Session session, final Throwable e, final String msg, boolean retryable) {
+        final Beat beat;
+        synchronized (this) {
+            if (finishLocked(session)) {
+                return;
+            }
+            final long now = elapsedMillis();
+            if (session.failingSince < 0) {
+                session.failingSince = session.plannedAt;
+            }
+            if (retryable && now - session.failingSince < GRACE_MILLIS) {
+                final long delay = Math.min(MAX_RETRY_DELAY_MILLIS,
+                        MIN_RETRY_DELAY_MILLIS << Math.min(session.failures, 4));
+                session.failures++;
+                Timber.w("heartbeat retry >>> channelId:" + session.channelId + " | delay:" + delay + "ms | " + e);
+                scheduleLocked(session, now + delay);
+                return;
+            }
+            beat = session.beat;
+            stopLocked(session);
+        }
+        Timber.e("heartbeat give up >>> channelId:" + session.channelId + " | " + e);
+        // 结果可能在定时线程或网络线程回调，任务中通常需要操作界面
+        AndroidSchedulers.mainThread().scheduleDirect(() -> beat.onGiveUp(e, msg));
+    }
+
+    /**
+     * 请求完成后的公共处理
+     *
+     * @return 结果是否应忽略（已停止，或已重新启动需立即发出）
+     */
+    private boolean finishLocked(Session session) {
+        session.inFlight = false;
+        if (session.stopped) {
+            if (mSessions.get(session.channelId) == session) {
+                mSessions.remove(session.channelId);
+            }
+            return true;
+        }
+        if (session.fireWhenIdle) {
+            session.fireWhenIdle = false;
+            scheduleLocked(session, elapsedMillis());
+            return true;
+        }
+        return false;
+    }
+
+    private long elapsedMillis() {
+        return mClock.elapsedMillis();
+    }
+
+    /**
+     * 定时及单调时钟
+     */
+    interface Clock {
+        long elapsedMillis();
+
+        Future<?> schedule(Runnable task, long delayMillis);
+    }
+
+    /**
+     * 一次心跳请求
+     */
+    public interface Beat {
+
+        /**
+         * 发出心跳（定时线程调用，不可阻塞），完成后调用 callback 的其中一个方法
+         *
+         * @param callback 请求结果
+         */
+        void send(Callback callback);
+
+        /**
+         * 宽限期内重试仍失败，或服务端拒绝，心跳已停止；在主线程执行
+         *
+         * @param e   最后一次的错误
+         * @param msg 错误提示
+         */
+        void onGiveUp(Throwable e, String msg);
+    }
+
+    /**
+     * 心跳请求结果，只有第一次调用有效
+     */
+    public final class Callback {
+
+        private final Session mSession;
+        private boolean mDone;
+
+        private Callback(Session session) {
+            this.mSession = session;
+        }
+
+        /**
+         * @param nextDelayMillis 距下次心跳的时间（毫秒），0 表示按默认间隔
+         */
+        public void onSuccess(long nextDelayMillis) {
+            if (complete()) {
+                HeartbeatEngine.this.onSuccess(mSession, nextDelayMillis);
+            }
+        }
+
+        public void onFailure(Throwable e, String msg) {
+            fail(e, msg, RetryPolicy.isTransient(e));
+        }
+
+        private void fail(Throwable e, String msg, boolean retryable) {
+            if (complete()) {
+                HeartbeatEngine.this.onFailure(mSession, e, msg, retryable);
+            }
+        }
+
+        private synchronized boolean complete() {
+            if (mDone) {
+                return false;
+            }
+            mDone = true;
+            return true;
+        }
+    }
+
+    private static final class Session {
+        final String channelId;
+        Beat beat;
+        /**
+         * 启动时指定的固定间隔，0 表示由心跳结果决定
+         */
+        long intervalMillis;
+        Future<?> future;
+        /**
+         * 每次安排定时任务加一，用于识别已取消的任务
+         */
+        int sequence;
+        /**
+         * 本次心跳的计划发出时间（单调时钟，毫秒）
+         */
+        long plannedAt;
+        /**
+         * 连续失败开始时的计划时间，-1 表示上次成功
+         */
+        long failingSince = -1;
+        int failures;
+        boolean inFlight;
+        boolean fireWhenIdle;
+        boolean stopped;
+
+        Session(String channelId) {
+            this.channelId = channelId;
+        }
+
+        void cancelTimer() {
+            sequence++;
+            if (future != null) {
+                future.cancel(false);
+                future = null;
+            }
+        }
+    }
+}
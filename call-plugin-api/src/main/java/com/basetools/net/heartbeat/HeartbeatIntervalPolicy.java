@@ -0,0 +1,115 @@
+package com.basetools.net.heartbeat;
+
+import com.basetools.model.HeartBeatResult2;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 心跳间隔策略（每个通话一个实例）
+ * </br>
+ * 通话按分钟计费，心跳对齐到计费分钟边界：在边界前 {@link #GUARD_MILLIS} 再减去本通话固定的随机偏移时发出，
+ * 随机偏移使同时开始的通话错开请求时间。间隔优先使用服务端下发的 {@link HeartBeatResult2.Data#getNextInterval()}，
+ * 未下发时为 {@link #DEFAULT_INTERVAL_MILLIS}，长于一分钟的间隔按整分钟对齐。
+ * 间隔不超过余额降到 {@link #LOW_BALANCE_MINUTES} 分钟以内所需的时间；余额只够 {@link #LOW_BALANCE_MINUTES} 分钟以内时
+ * 改为每 {@link #LOW_BALANCE_INTERVAL_MILLIS} 一次，尽快发现余额耗尽。
+ * 每分钟价格未设置时，由相邻两次心跳的余额差估算。
+ */
+public final class HeartbeatIntervalPolicy {
+
+    public static final long BILLING_PERIOD_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long DEFAULT_INTERVAL_MILLIS = BILLING_PERIOD_MILLIS;
+    private static final long MIN_INTERVAL_MILLIS = 5_000;
+    private static final long LOW_BALANCE_INTERVAL_MILLIS = 10_000;
+    private static final int LOW_BALANCE_MINUTES = 2;
+    /**
+     * 心跳距计费边界的最小提前量
+     */
+    private static final long GUARD_MILLIS = 3_000;
+    /**
+     * 随机偏移上限
+     */
+    private static final long JITTER_MILLIS = 7_000;
+
+    private final long mBillingStartMillis;
+    private final long mJitterMillis;
+    private long mHintMillis;
+    private int mDiamondNum = -1;
+    private long mDiamondAtMillis;
+    private int mPricePerMinute;
+    private boolean mPriceFixed;
+
+    /**
+     * @param billingStartMillis 计费开始时间（单调时钟，毫秒）
+     * @param random             随机数，用于计算本通话的偏移
+     */
+    public HeartbeatIntervalPolicy(long billingStartMillis, Random random) {
+        this.mBillingStartMillis = billingStartMillis;
+        this.mJitterMillis = (long) (random.nextDouble() * JITTER_MILLIS);
+    }
+
+    /**
+     * 设置每分钟价格（钻石），不再根据余额变化估算
+     *
+     * @param pricePerMinute 每分钟价格
+     */
+    public synchronized void setPricePerMinute(int pricePerMinute) {
+        mPricePerMinute = pricePerMinute;
+        mPriceFixed = pricePerMinute > 0;
+    }
+
+    /**
+     * 记录一次心跳结果
+     *
+     * @param nowMillis           当前时间（单调时钟，毫秒）
+     * @param diamondNum          余额
+     * @param nextIntervalSeconds 服务端建议的间隔（秒），0 表示未指定
+     */
+    public synchronized void onHeartbeat(long nowMillis, int diamondNum, int nextIntervalSeconds) {
+        mHintMillis = TimeUnit.SECONDS.toMillis(Math.max(0, nextIntervalSeconds));
+        if (!mPriceFixed && mDiamondNum >= 0 && diamondNum < mDiamondNum) {
+            final long elapsed = nowMillis - mDiamondAtMillis;
+            if (elapsed > 0) {
+                // 按经过的计费分钟数估算，不足一分钟按一分钟
+                final long minutes = Math.max(1, Math.round((double) elapsed / BILLING_PERIOD_MILLIS));
+                mPricePerMinute = (int) Math.max(1, (mDiamondNum - diamondNum) / minutes);
+            }
+        }
+        mDiamondNum = diamondNum;
+        mDiamondAtMillis = nowMillis;
+    }
+
+    /**
+     * 计算距下次心跳的时间
+     *
+     * @param nowMillis 当前时间（单调时钟，毫秒）
+     * @return 延迟（毫秒）
+     */
+    public synchronized long nextDelayMillis(long nowMillis) {
+        if (isLowBalance()) {
+            return LOW_BALANCE_INTERVAL_MILLIS;
+        }
+        long interval = mHintMillis > 0 ? Math.max(MIN_INTERVAL_MILLIS, mHintMillis) : DEFAULT_INTERVAL_MILLIS;
+        if (mPricePerMinute > 0 && mDiamondNum >= 0) {
+            // 下次心跳前余额不能降到低余额线以下
+            final long minutesLeft = mDiamondNum / mPricePerMinute;
+            interval = Math.min(interval, (minutesLeft - LOW_BALANCE_MINUTES + 1) * BILLING_PERIOD_MILLIS);
+        }
+        if (interval < BILLING_PERIOD_MILLIS) {
+            // 服务端要求更密的心跳时不对齐
+            return interval;
+        }
+        final long lead = GUARD_MILLIS + mJitterMillis;
+        // 距目标时间最近的计费边界，且至少间隔 MIN_INTERVAL_MILLIS
+        final long periods = Math.round((double) (nowMillis + interval - mBillingStartMillis) / BILLING_PERIOD_MILLIS);
+        long delay = mBillingStartMillis + periods * BILLING_PERIOD_MILLIS - lead - nowMillis;
+        while (delay < MIN_INTERVAL_MILLIS) {
+            delay += BILLING_PERIOD_MILLIS;
+        }
+        return delay;
+    }
+
+    private boolean isLowBalance() {
+        return mPricePerMinute > 0 && mDiamondNum >= 0
+                && mDiamondNum < (long) mPricePerMinute * LOW_BALANCE_MINUTES;
+    }
+}
@@ -0,0 +1,42 @@
+package com.basetools.net.interceptor;
+
+import com.basetools.CallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.Endpoint;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 按接口设置超时：超时时间由该接口最近耗时的分位数动态计算，并记录本次耗时
+ */
+public class AdaptiveTimeoutInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        // 未初始化（或宿主自行使用ApiClient）时使用OkHttpClient的默认超时
+        if (config == null) {
+            return chain.proceed(request);
+        }
+        final Endpoint endpoint = Endpoint.of(request.url());
+        final int timeout = (int) endpoint.timeoutMillis(config);
+        final long start = System.nanoTime();
+        try {
+            Response response = chain.withConnectTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .withWriteTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .proceed(request);
+            endpoint.getLatencyTracker().record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return response;
+        } catch (InterruptedIOException e) {
+            // 超时按超时时长计入样本，避免超时后阈值继续收紧
+            endpoint.getLatencyTracker().record(timeout);
+            throw e;
+        }
+    }
+}
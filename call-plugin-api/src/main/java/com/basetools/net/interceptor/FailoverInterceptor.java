@@ -0,0 +1,98 @@
+package com.basetools.net.interceptor;
+
+import com.basetools.CallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.BaseUrlRouter;
+import com.basetools.net.core.Endpoint;
+import com.basetools.net.service.CallService;
+import com.basetools.util.Timber;
+import java.io.IOException;
+import java.util.List;
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 多域名故障转移：{@link CallService} 接口发往 {@link BaseUrlRouter} 选出的最快可用域名；
+ * 连接失败、超时或网关错误时记录该域名失败，可安全重试的请求立即改发下一个域名
+ * </br>
+ * 可安全重试：GET/HEAD、带 {@link CallService#IDEMPOTENCY_KEY} 的请求、或接口重试策略允许重试。
+ * 需添加在所有拦截器之前。
+ */
+public class FailoverInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        // 未初始化（或宿主自行使用ApiClient）时不改发
+        if (config == null) {
+            return chain.proceed(request);
+        }
+        final List<String> baseUrls = config.getBaseUrls();
+        final String url = request.url().toString();
+        final String baseUrl = matchBaseUrl(baseUrls, url);
+        final Endpoint endpoint = Endpoint.of(request.url());
+        // 预连接探测、插件下载等不改发
+        if (baseUrls.size() < 2 || baseUrl == null || endpoint == Endpoint.OTHER) {
+            return chain.proceed(request);
+        }
+        final String path = url.substring(baseUrl.length());
+        final BaseUrlRouter router = ApiClient.getRouter();
+        final List<String> targets = router.order(baseUrls);
+        final int attempts = isIdempotent(request, endpoint) ? targets.size() : 1;
+        for (int i = 0; ; i++) {
+            final String target = targets.get(i);
+            final HttpUrl targetUrl = HttpUrl.parse(target + path);
+            final boolean last = i == attempts - 1;
+            final Response response;
+            try {
+                response = chain.proceed(request.newBuilder().url(targetUrl).build());
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    throw e;
+                }
+                router.recordFailure(target);
+                if (last) {
+                    throw e;
+                }
+                Timber.w("failover >>> " + endpoint.getPath() + " | " + target + " -> " + targets.get(i + 1)
+                        + " | " + e);
+                continue;
+            }
+            if (!isGatewayError(response.code())) {
+                router.recordSuccess(target);
+                return response;
+            }
+            router.recordFailure(target);
+            if (last || chain.call().isCanceled()) {
+                return response;
+            }
+            response.close();
+            Timber.w("failover >>> " + endpoint.getPath() + " | " + target + " -> " + targets.get(i + 1)
+                    + " | code:" + response.code());
+        }
+    }
+
+    private static String matchBaseUrl(List<String> baseUrls, String url) {
+        for (String baseUrl : baseUrls) {
+            if (baseUrl != null && url.startsWith(baseUrl)) {
+                return baseUrl;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isIdempotent(Request request, Endpoint endpoint) {
+        return "GET".equals(request.method())
+                || "HEAD".equals(request.method())
+                || request.header(CallService.IDEMPOTENCY_KEY) != null
+                || endpoint.getRetryPolicy().getMaxRetries() > 0;
+    }
+
+    private static boolean isGatewayError(int code) {
+        return code == 502 || code == 503 || code == 504;
+    }
+}
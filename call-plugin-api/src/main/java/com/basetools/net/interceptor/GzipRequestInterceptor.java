@@ -0,0 +1,129 @@
+package com.basetools.net.interceptor;
+
+import com.basetools.CallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.Endpoint;
+import com.basetools.util.Timber;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * 请求体gzip压缩
+ * </br>
+ * 仅对登记了压缩的接口（{@link Endpoint#isCompressible()}）、且请求体不小于配置阈值时压缩；
+ * 服务端需先在任意响应中通过 Accept-Encoding 声明支持gzip（RFC 7694），未声明的域名不压缩。
+ * 压缩后的请求被服务端以415拒绝时，该域名不再压缩并以原文重发一次。
+ * </br>
+ * 登记了压缩的接口无论是否压缩都记录请求体字节数（{@link Endpoint#recordRequestBody}），
+ * {@link com.basetools.net.core.NetworkMetrics#getRequestBytesReport()} 中的比例即为整体收益。
+ * </br>
+ * 需添加在 {@link HeaderInterceptor} 之后，否则已设置 Content-Encoding 的请求不会追加公共header。
+ */
+public class GzipRequestInterceptor implements Interceptor {
+
+    private static final String HEADER_CONTENT_ENCODING = "Content-Encoding";
+    private static final String HEADER_ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String GZIP = "gzip";
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+
+    /**
+     * 已声明支持gzip请求体的域名
+     */
+    private final Set<String> mGzipHosts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        final RequestBody body = request.body();
+        final String host = request.url().host();
+        final Endpoint endpoint = Endpoint.of(request.url());
+        if (body == null || !endpoint.isCompressible()) {
+            return checkAcceptEncoding(host, chain.proceed(request));
+        }
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        final long contentLength = body.contentLength();
+        if (request.header(HEADER_CONTENT_ENCODING) != null
+                || config == null || !config.isCompressEnable()
+                || !mGzipHosts.contains(host)
+                || (contentLength >= 0 && contentLength < config.getCompressMinBytes())) {
+            // 未压缩的请求同样计入，统计的是该接口的全部请求体；长度未知时不读取请求体，不计入
+            if (contentLength >= 0) {
+                endpoint.recordRequestBody(contentLength, contentLength);
+            }
+            return checkAcceptEncoding(host, chain.proceed(request));
+        }
+
+        final Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        final ByteString plain = buffer.readByteString();
+        if (plain.size() < config.getCompressMinBytes()) {
+            endpoint.recordRequestBody(plain.size(), plain.size());
+            return checkAcceptEncoding(host, chain.proceed(request.newBuilder()
+                    .method(request.method(), RequestBody.create(body.contentType(), plain))
+                    .build()));
+        }
+        final ByteString compressed = gzip(plain);
+        endpoint.recordRequestBody(plain.size(), Math.min(plain.size(), compressed.size()));
+        if (compressed.size() >= plain.size()) {
+            // 压缩无收益，发送原文
+            return checkAcceptEncoding(host, chain.proceed(request.newBuilder()
+                    .method(request.method(), RequestBody.create(body.contentType(), plain))
+                    .build()));
+        }
+
+        final MediaType contentType = body.contentType();
+        final Response response = chain.proceed(request.newBuilder()
+                .header(HEADER_CONTENT_ENCODING, GZIP)
+                .method(request.method(), RequestBody.create(contentType, compressed))
+                .build());
+        if (response.code() != HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            return checkAcceptEncoding(host, response);
+        }
+        // 服务端不接受压缩请求体，该域名后续不再压缩，本次以原文重发
+        Timber.w("gzip request rejected >>> " + host + " | " + endpoint.getPath());
+        mGzipHosts.remove(host);
+        response.close();
+        // 原文重发的字节同样计入实际发送量
+        endpoint.recordRequestBody(0, plain.size());
+        return checkAcceptEncoding(host, chain.proceed(request.newBuilder()
+                .method(request.method(), RequestBody.create(contentType, plain))
+                .build()));
+    }
+
+    /**
+     * 根据响应的 Accept-Encoding 记录服务端是否支持gzip请求体
+     */
+    private Response checkAcceptEncoding(String host, Response response) {
+        final String acceptEncoding = response.header(HEADER_ACCEPT_ENCODING);
+        if (acceptEncoding != null) {
+            if (acceptEncoding.toLowerCase().contains(GZIP)) {
+                if (mGzipHosts.add(host)) {
+                    Timber.d("gzip request enabled >>> " + host);
+                }
+            } else {
+                mGzipHosts.remove(host);
+            }
+        }
+        return response;
+    }
+
+    private static ByteString gzip(ByteString plain) throws IOException {
+        final Buffer out = new Buffer();
+        final BufferedSink gzipSink = Okio.buffer(new GzipSink(out));
+        gzipSink.write(plain);
+        gzipSink.close();
+        return out.readByteString();
+    }
+}
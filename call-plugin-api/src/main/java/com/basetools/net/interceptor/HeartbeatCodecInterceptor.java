@@ -0,0 +1,43 @@
+package com.basetools.net.interceptor;
+
+import com.basetools.net.converter.HeartbeatCodec;
+import com.basetools.util.GsonUtils;
+import com.basetools.util.Timber;
+import java.io.IOException;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+
+/**
+ * 二进制心跳协商：发送二进制请求时声明可接受的响应格式；服务端返回415时关闭二进制格式并以Json重发
+ * </br>
+ * 需添加在 {@link GzipRequestInterceptor} 之前。
+ */
+public class HeartbeatCodecInterceptor implements Interceptor {
+
+    private static final int HTTP_UNSUPPORTED_MEDIA_TYPE = 415;
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=UTF-8");
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        final Request request = chain.request();
+        if (!(request.body() instanceof HeartbeatCodec.BinaryRequestBody)) {
+            return chain.proceed(request);
+        }
+        final Response response = chain.proceed(request.newBuilder()
+                .header("Accept", HeartbeatCodec.ACCEPT)
+                .build());
+        if (response.code() != HTTP_UNSUPPORTED_MEDIA_TYPE) {
+            return response;
+        }
+        Timber.w("binary heartbeat rejected, fallback to json >>> " + request.url());
+        HeartbeatCodec.onRejected();
+        response.close();
+        final HeartbeatCodec.BinaryRequestBody body = (HeartbeatCodec.BinaryRequestBody) request.body();
+        return chain.proceed(request.newBuilder()
+                .method(request.method(), RequestBody.create(MEDIA_TYPE_JSON, GsonUtils.getGson().toJson(body.getRequest())))
+                .build());
+    }
+}
@@ -11,15 +11,11 @@ import java.nio.charset.StandardCharsets;
 import java.util.zip.GZIPInputStream;
 
 import okhttp3.Interceptor;
-import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import okio.Buffer;
-import okio.BufferedSink;
-import okio.GzipSink;
-import okio.Okio;
 
 public class NetworkLogInterceptor implements Interceptor {
     @Override
@@ -71,34 +67,15 @@ public class NetworkLogInterceptor implements Interceptor {
             if (copy.body() == null)
                 return "";
             copy.body().writeTo(buffer);
+            if ("gzip".equalsIgnoreCase(copy.header("Content-Encoding"))) {
+                return uncompress(buffer.readByteArray());
+            }
             return buffer.readUtf8();
-            // return uncompress(buffer.readByteArray());
         } catch (final IOException e) {
             return "{\"err\": \"" + e.getMessage() + "\"}";
         }
     }
 
-    private RequestBody gzip(final RequestBody body) {
-        return new RequestBody() {
-            @Override
-            public MediaType contentType() {
-                return body.contentType();
-            }
-
-            @Override
-            public long contentLength() {
-                return -1; // 无法知道压缩后的数据大小
-            }
-
-            @Override
-            public void writeTo(BufferedSink sink) throws IOException {
-                BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-                body.writeTo(gzipSink);
-                gzipSink.close();
-            }
-        };
-    }
-
     /**
      * GZIP内容解压缩
      *
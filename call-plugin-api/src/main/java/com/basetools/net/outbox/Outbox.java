@@ -0,0 +1,394 @@
+package com.basetools.net.outbox;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import com.basetools.CallKit;
+import com.basetools.constant.RequestPriority;
+import com.basetools.model.BaseResult;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.RetryPolicy;
+import com.basetools.net.service.CallService;
+import com.basetools.util.GsonUtils;
+import com.basetools.util.Timber;
+import com.google.gson.JsonElement;
+import com.google.gson.reflect.TypeToken;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.disposables.Disposable;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 终结类请求（离开频道、拒绝）发件箱
+ * </br>
+ * 请求发出前先追加写入日志文件，服务端返回 code == 1 或明确拒绝（业务错误码、4xx）后删除；进程被杀、断网或服务端
+ * 暂时不可用（5xx）时，下次启动或网络恢复后批量补发。日志为追加写，删除记录过多时压缩重写。
+ * </br>
+ * 送礼不经过发件箱：失败已立即告知用户，后台补发会在用户不知情时扣费。
+ * </br>
+ * 日志格式（每行一条，Tab分隔）：
+ * <pre>
+ * ADD  id  createTime  path  body
+ * DEL  id
+ * </pre>
+ */
+public class Outbox {
+
+    private static final String DIR_NAME = "callkit";
+    private static final String FILE_NAME = "outbox.journal";
+    private static final String OP_ADD = "ADD";
+    private static final String OP_DEL = "DEL";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final MediaType MEDIA_TYPE_JSON = MediaType.parse("application/json; charset=UTF-8");
+    /**
+     * 单次补发的最大条数
+     */
+    private static final int BATCH_SIZE = 10;
+    /**
+     * 删除记录超过该数量且多于有效记录时压缩日志
+     */
+    private static final int COMPACT_THRESHOLD = 64;
+    /**
+     * 超过该时长的记录不再补发（服务端早已超时关闭房间）
+     */
+    private static final long MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(24);
+    /**
+     * 补发失败后的退避策略
+     */
+    private static final RetryPolicy FLUSH_RETRY_POLICY = new RetryPolicy(Integer.MAX_VALUE, 2_000, 60_000);
+    /**
+     * 允许补发的接口，旧版本写入的其他记录（如送礼）直接丢弃
+     */
+    private static final Type RESULT_TYPE = new TypeToken<BaseResult<JsonElement>>() {
+    }.getType();
+    private static final Set<String> DURABLE_PATHS = new HashSet<>(
+            Arrays.asList(CallService.LEAVE_CHANNEL, CallService.REFUSE));
+
+    private static volatile Outbox sInstance;
+
+    private final File mJournalFile;
+    private final LinkedHashMap<String, OutboxEntry> mEntries = new LinkedHashMap<>();
+    /**
+     * 正在由业务请求发送中的记录，补发时跳过
+     */
+    private final Set<String> mInFlight = new HashSet<>();
+    private boolean mLoaded;
+    private int mDeletedCount;
+    private boolean mFlushing;
+    private int mFlushFailures;
+    /**
+     * 等待中的补发，同一时间只保留一个（最早的）；每次调度递增代号，被替换的补发即使已开始也直接返回
+     */
+    private Disposable mScheduledFlush;
+    private boolean mFlushPending;
+    private long mScheduledAtNanos;
+    private int mFlushGeneration;
+
+    public static Outbox getInstance() {
+        Outbox outbox = sInstance;
+        if (outbox == null) {
+            synchronized (Outbox.class) {
+                outbox = sInstance;
+                if (outbox == null) {
+                    File dir = new File(CallKit.getInstance().getContext().getFilesDir(), DIR_NAME);
+                    outbox = new Outbox(new File(dir, FILE_NAME));
+                    sInstance = outbox;
+                }
+            }
+        }
+        return outbox;
+    }
+
+    private Outbox(File journalFile) {
+        this.mJournalFile = journalFile;
+    }
+
+    /**
+     * 注册网络恢复监听，并补发上次未完成的请求
+     *
+     * @param context 上下文对象
+     */
+    public void init(Context context) {
+        context.getApplicationContext().registerReceiver(new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                ConnectivityManager cm = (ConnectivityManager) context.getSystemService(Context.CONNECTIVITY_SERVICE);
+                NetworkInfo networkInfo = cm != null ? cm.getActiveNetworkInfo() : null;
+                if (networkInfo != null && networkInfo.isConnected()) {
+                    flushAsync(0);
+                }
+            }
+        }, new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        flushAsync(0);
+    }
+
+    /**
+     * 写入一条请求（同步落盘），调用方随后自行发送
+     *
+     * @param id   记录ID（幂等键）
+     * @param path 接口路径
+     * @param body 请求体Json
+     */
+    public synchronized void append(String id, String path, String body) {
+        ensureLoaded();
+        OutboxEntry entry = new OutboxEntry(id, System.currentTimeMillis(), path, body);
+        mEntries.put(id, entry);
+        mInFlight.add(id);
+        writeLine(OP_ADD + '\t' + id + '\t' + entry.getCreateTime() + '\t' + path + '\t' + body);
+    }
+
+    /**
+     * 服务端返回 code == 1 或已明确拒绝，删除记录
+     *
+     * @param id 记录ID
+     */
+    public synchronized void remove(String id) {
+        ensureLoaded();
+        mInFlight.remove(id);
+        if (mEntries.remove(id) != null) {
+            writeLine(OP_DEL + '\t' + id);
+            mDeletedCount++;
+            compactIfNeeded();
+        }
+    }
+
+    /**
+     * 业务请求暂时性失败（网络异常、5xx、超时、熔断），保留记录，退避后补发
+     *
+     * @param id 记录ID
+     */
+    public void release(String id) {
+        final long delayMillis;
+        synchronized (this) {
+            mInFlight.remove(id);
+            delayMillis = FLUSH_RETRY_POLICY.delayMillis(mFlushFailures + 1);
+        }
+        // 网络未断开时不会收到网络恢复广播，需主动补发，否则服务端一直对已结束的房间计费
+        flushAsync(delayMillis);
+    }
+
+    /**
+     * 后台补发（后台优先级，不与通话中的请求争抢）
+     * </br>
+     * 已有更早的补发在等待时忽略，否则替换等待中的补发，多次调用不会形成多条并行的重试链
+     *
+     * @param delayMillis 延迟时间
+     */
+    public synchronized void flushAsync(long delayMillis) {
+        final long scheduledAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        if (mFlushPending) {
+            if (mScheduledAtNanos - scheduledAt <= 0) {
+                return;
+            }
+            mScheduledFlush.dispose();
+        }
+        final int generation = ++mFlushGeneration;
+        mFlushPending = true;
+        mScheduledAtNanos = scheduledAt;
+        mScheduledFlush = ApiClient.getExecutors().getRequestDispatcher().scheduler(RequestPriority.BACKGROUND)
+                .scheduleDirect(() -> flush(generation), delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush(int generation) {
+        final List<OutboxEntry> batch = new ArrayList<>();
+        synchronized (this) {
+            if (generation != mFlushGeneration) {
+                // 已被新的补发替换
+                return;
+            }
+            mFlushPending = false;
+            if (mFlushing) {
+                // 上一批仍在发送，结束后会再次调度
+                return;
+            }
+            ensureLoaded();
+            final long now = System.currentTimeMillis();
+            Iterator<OutboxEntry> iterator = mEntries.values().iterator();
+            while (iterator.hasNext() && batch.size() < BATCH_SIZE) {
+                OutboxEntry entry = iterator.next();
+                if (now - entry.getCreateTime() > MAX_AGE_MILLIS || !DURABLE_PATHS.contains(entry.getPath())) {
+                    Timber.w("outbox drop >>> " + entry);
+                    iterator.remove();
+                    writeLine(OP_DEL + '\t' + entry.getId());
+                    mDeletedCount++;
+                } else if (!mInFlight.contains(entry.getId())) {
+                    batch.add(entry);
+                }
+            }
+            if (batch.isEmpty()) {
+                compactIfNeeded();
+                return;
+            }
+            mFlushing = true;
+        }
+        boolean networkFailure = false;
+        final List<OutboxEntry> kept = new ArrayList<>();
+        for (OutboxEntry entry : batch) {
+            try {
+                if (send(entry)) {
+                    remove(entry.getId());
+                } else {
+                    kept.add(entry);
+                }
+            } catch (IOException e) {
+                // 网络不通时后面的记录同样失败，不再逐条等待超时
+                Timber.e("outbox flush failure >>> " + entry + " | " + e.getMessage());
+                networkFailure = true;
+                break;
+            }
+        }
+        final boolean retry = networkFailure || !kept.isEmpty();
+        final long nextDelay;
+        synchronized (this) {
+            mFlushing = false;
+            // 保留的记录移到队尾，下一批先发后面的记录，不会被排在前面的失败记录一直占用
+            for (OutboxEntry entry : kept) {
+                if (mEntries.remove(entry.getId()) != null) {
+                    mEntries.put(entry.getId(), entry);
+                }
+            }
+            if (retry) {
+                mFlushFailures++;
+                nextDelay = FLUSH_RETRY_POLICY.delayMillis(mFlushFailures);
+            } else {
+                mFlushFailures = 0;
+                nextDelay = 0;
+            }
+        }
+        // 暂时性失败退避后重试，否则继续下一批
+        flushAsync(nextDelay);
+    }
+
+    /**
+     * 发送一条记录
+     *
+     * @return 已处理完毕，可删除：服务端返回 code == 1，或已明确拒绝（业务错误码、4xx）、记录无效，再发结果相同；
+     * false 表示服务端暂时不可用（408、5xx），稍后再发
+     * @throws IOException 网络异常
+     */
+    private boolean send(OutboxEntry entry) throws IOException {
+        HttpUrl baseUrl = HttpUrl.parse(CallKit.getInstance().getBaseUrl());
+        HttpUrl url = baseUrl != null ? baseUrl.resolve(entry.getPath()) : null;
+        if (url == null) {
+            Timber.e("outbox drop illegal url >>> " + entry);
+            return true;
+        }
+        Request request = new Request.Builder()
+                .url(url)
+                .header(CallService.IDEMPOTENCY_KEY, entry.getId())
+                .post(RequestBody.create(MEDIA_TYPE_JSON, entry.getBody()))
+                .build();
+        try (Response response = ApiClient.getInstance().getOkHttpClient().newCall(request).execute()) {
+            final int code = response.code();
+            if (code == 408 || code >= 500) {
+                Timber.w("outbox flush retry later >>> " + entry + " | http " + code);
+                return false;
+            }
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                Timber.e("outbox drop rejected >>> " + entry + " | http " + code);
+                return true;
+            }
+            BaseResult<JsonElement> result = GsonUtils.fromJson(body.string(), RESULT_TYPE);
+            boolean success = result != null && result.getCode() == 1;
+            if (success) {
+                Timber.d("outbox flush >>> " + entry);
+            } else {
+                Timber.e("outbox drop rejected >>> " + entry + " | " + (result == null ? null : result.getCode()));
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // 请求体或响应无法解析，再发结果相同
+            Timber.e("outbox drop parse failure >>> " + entry + " | " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        if (!mJournalFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(mJournalFile), UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] parts = line.split("\t", 5);
+                if (parts.length == 5 && OP_ADD.equals(parts[0])) {
+                    try {
+                        mEntries.put(parts[1], new OutboxEntry(parts[1], Long.parseLong(parts[2]), parts[3], parts[4]));
+                    } catch (NumberFormatException ignored) {
+                        // 进程被杀导致的不完整记录，忽略
+                    }
+                } else if (parts.length == 2 && OP_DEL.equals(parts[0])) {
+                    mEntries.remove(parts[1]);
+                    mDeletedCount++;
+                }
+            }
+        } catch (IOException e) {
+            Timber.e("outbox load failure >>> " + e.getMessage());
+        }
+        Timber.d("outbox loaded >>> pending:" + mEntries.size());
+    }
+
+    private void compactIfNeeded() {
+        if (mDeletedCount < COMPACT_THRESHOLD || mDeletedCount < mEntries.size()) {
+            return;
+        }
+        File tmp = new File(mJournalFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            Writer writer = new OutputStreamWriter(out, UTF_8);
+            for (OutboxEntry entry : mEntries.values()) {
+                writer.write(OP_ADD + '\t' + entry.getId() + '\t' + entry.getCreateTime() + '\t'
+                        + entry.getPath() + '\t' + entry.getBody() + '\n');
+            }
+            writer.flush();
+            out.getFD().sync();
+        } catch (IOException e) {
+            Timber.e("outbox compact failure >>> " + e.getMessage());
+            return;
+        }
+        if (tmp.renameTo(mJournalFile)) {
+            mDeletedCount = 0;
+        }
+    }
+
+    private void writeLine(String line) {
+        File dir = mJournalFile.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            Timber.e("outbox mkdirs failure >>> " + dir);
+        }
+        try (FileOutputStream out = new FileOutputStream(mJournalFile, true)) {
+            out.write((line + '\n').getBytes(UTF_8));
+            out.getFD().sync();
+        } catch (IOException e) {
+            Timber.e("outbox write failure >>> " + e.getMessage());
+        }
+    }
+}
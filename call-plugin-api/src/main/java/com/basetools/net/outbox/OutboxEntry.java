@@ -0,0 +1,55 @@
+package com.basetools.net.outbox;
+
+/**
+ * 待发送的终结类请求（离开频道、拒绝）
+ */
+public class OutboxEntry {
+    /**
+     * 记录ID，同时作为请求的幂等键
+     */
+    private final String id;
+    /**
+     * 创建时间
+     */
+    private final long createTime;
+    /**
+     * 接口路径，如 rocket/one/leaveChannel
+     */
+    private final String path;
+    /**
+     * 请求体Json
+     */
+    private final String body;
+
+    public OutboxEntry(String id, long createTime, String path, String body) {
+        this.id = id;
+        this.createTime = createTime;
+        this.path = path;
+        this.body = body;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getCreateTime() {
+        return createTime;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEntry{" +
+                "id='" + id + '\'' +
+                ", createTime=" + createTime +
+                ", path='" + path + '\'' +
+                '}';
+    }
+}
@@ -1,5 +1,7 @@
 package com.basetools.net.repository;
 
+import com.basetools.CallKit;
+import com.basetools.listener.GiftSink;
 import com.basetools.model.BaseResult;
 import com.basetools.model.CreateChannelRequest;
 import com.basetools.model.CreateChannelResult;
@@ -7,6 +9,8 @@ import com.basetools.model.GiftListRequest;
 import com.basetools.model.GiftListResult;
 import com.basetools.model.GiveGiftRequest;
 import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
 import com.basetools.model.HeartBeatRequest;
 import com.basetools.model.HeartBeatResult;
 import com.basetools.model.HeartBeatResult2;
@@ -18,11 +22,26 @@ import com.basetools.model.RandomRoomResult;
 import com.basetools.model.RefuseRequest;
 import com.basetools.model.UpdatePackageRequest;
 import com.basetools.model.UpdatePackageResult;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.converter.GiftListStreamDecoder;
 import com.basetools.net.core.ApiClient;
 import com.basetools.net.core.ApiException;
 import com.basetools.net.core.ApiObserver;
+import com.basetools.net.core.Endpoint;
+import com.basetools.net.core.Hedging;
+import com.basetools.net.core.RequestDispatcher;
+import com.basetools.net.core.RetryPolicy;
+import com.basetools.net.outbox.Outbox;
+import com.basetools.net.rx.RetryWithBackoff;
 import com.basetools.net.rx.RxSchedulers;
 import com.basetools.net.service.CallService;
+import com.basetools.net.signaling.SignalingClient;
+import com.basetools.util.GsonUtils;
+import com.basetools.util.Timber;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import io.reactivex.Observable;
+import io.reactivex.schedulers.Schedulers;
 
 /**
  * 音视频通话数据请求
@@ -37,6 +56,129 @@ public class CallRepository {
         return SingletonHolder.sInstance;
     }
 
+    /**
+     * 进行中的请求：key -> 共享的请求
+     */
+    private final ConcurrentHashMap<String, Observable<?>> mInFlightRequests = new ConcurrentHashMap<>();
+    private final GiftListStreamDecoder mGiftListDecoder = new GiftListStreamDecoder(GsonUtils.getGson());
+
+    /**
+     * 合并重复请求：相同key的请求在进行中时，后来的调用方共享同一次网络请求及其结果
+     *
+     * @param key    请求标识（接口 + 关键参数）
+     * @param source 实际请求
+     * @return 共享的请求
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Observable<T> coalesce(String key, Observable<T> source) {
+        Observable<T> inFlight = (Observable<T>) mInFlightRequests.get(key);
+        if (inFlight == null) {
+            Observable<T> shared = source.doFinally(() -> mInFlightRequests.remove(key)).cache();
+            inFlight = (Observable<T>) mInFlightRequests.putIfAbsent(key, shared);
+            if (inFlight == null) {
+                return shared;
+            }
+        }
+        Timber.d("coalesce request >>> " + key);
+        return inFlight;
+    }
+
+    /**
+     * 执行网络请求：请求按接口优先级进入 {@link RequestDispatcher} 对应的队列执行，关键接口按配置对冲，经熔断器保护，网络异常时按接口的 {@link Endpoint#getRetryPolicy()} 退避重试
+     *
+     * @param endpoint 接口策略
+     * @param call     Retrofit请求
+     * @return 带重试的请求
+     */
+    private <T> Observable<T> execute(Endpoint endpoint, Observable<T> call) {
+        // 重试时由计时线程重新订阅，这里需保证每次请求（含重试、对冲）都经过调度器排队
+        final RequestDispatcher dispatcher = ApiClient.getExecutors().getRequestDispatcher();
+        Observable<T> attempt = call.subscribeOn(dispatcher.scheduler(endpoint.getPriority()));
+        // 未初始化（或宿主自行使用ApiClient）时不对冲、不重试
+        final CallConfig config = CallKit.getInstance().getCallConfig();
+        if (config != null && config.isHedgeEnable() && endpoint.isHedgeable()) {
+            attempt = Hedging.hedge(endpoint, attempt);
+        }
+        // 熔断中直接失败，不再占用io线程
+        attempt = endpoint.getCircuitBreaker().protect(attempt);
+        if (config != null && config.isRetryEnable()
+                && endpoint.getRetryPolicy().getMaxRetries() > 0) {
+            attempt = attempt.retryWhen(new RetryWithBackoff(endpoint.getPath(), endpoint.getRetryPolicy()));
+        }
+        return attempt;
+    }
+
+    /**
+     * 信令长连接已建立时优先通过长连接发送，连接不可用、断开或超时时改走HTTP请求；业务错误（{@link ApiException}）直接返回
+     *
+     * @param endpoint       接口策略
+     * @param idempotencyKey 幂等键，可为null
+     * @param request        请求参数
+     * @param resultType     响应类型
+     * @param http           HTTP请求
+     * @return 请求
+     */
+    static <T> Observable<T> signaling(Endpoint endpoint, String idempotencyKey, Object request,
+                                       Class<T> resultType, Observable<T> http) {
+        return Observable.defer(() -> {
+            final SignalingClient client = SignalingClient.getInstance();
+            final CallConfig config = CallKit.getInstance().getCallConfig();
+            if (config == null || !client.isConnected()) {
+                return http;
+            }
+            final long timeout = endpoint.timeoutMillis(config);
+            return client.<T>request(endpoint.getPath(), idempotencyKey, request, resultType, timeout)
+                    .onErrorResumeNext(e -> {
+                        if (e instanceof ApiException) {
+                            return Observable.error(e);
+                        }
+                        Timber.w("signaling fallback to http >>> " + endpoint.getPath() + " | " + e);
+                        return http;
+                    });
+        });
+    }
+
+    /**
+     * 终结类请求（离开、拒绝）：发出前先写入发件箱，服务端返回 code == 1 或明确拒绝（业务错误码、4xx）后删除，
+     * 网络异常、5xx等暂时性失败时保留记录，由 {@link Outbox} 在网络恢复或下次启动时补发
+     *
+     * @param path           接口路径
+     * @param idempotencyKey 幂等键，同时作为发件箱记录ID
+     * @param request        请求参数
+     * @param call           已完成业务校验的请求
+     * @return 带发件箱保障的请求
+     */
+    private static <T> Observable<T> durable(String path, String idempotencyKey, Object request, Observable<T> call) {
+        return Observable.defer(() -> {
+            Outbox.getInstance().append(idempotencyKey, path, GsonUtils.getGson().toJson(request));
+            return call;
+        }).doOnNext(result -> Outbox.getInstance().remove(idempotencyKey))
+                .doOnError(e -> {
+                    if (RetryPolicy.isTransient(e)) {
+                        // 未送达或服务端暂时不可用，保留记录等待补发
+                        Outbox.getInstance().release(idempotencyKey);
+                    } else {
+                        // 服务端已明确拒绝，补发结果相同
+                        Outbox.getInstance().remove(idempotencyKey);
+                    }
+                });
+    }
+
+    /**
+     * 生成幂等键，同一次业务操作的所有重试共用
+     */
+    private static String newIdempotencyKey() {
+        return UUID.randomUUID().toString();
+    }
+
+    private static String requestKey(String path, Object... params) {
+        StringBuilder builder = new StringBuilder(path);
+        for (Object param : params) {
+            builder.append('|').append(param);
+        }
+        return builder.toString();
+    }
+
     /**
      * 检测插件版本信息
      * @param request 请求参数
@@ -44,7 +186,7 @@ public class CallRepository {
      */
     public void checkCallPluginVersion(UpdatePackageRequest request, ApiObserver<UpdatePackageResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.checkCallPluginVersion(request).map(bridge -> {
+        execute(Endpoint.UPDATE_PACKAGE, callService.checkCallPluginVersion(request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
@@ -61,14 +203,15 @@ public class CallRepository {
      */
     public void createChannel(CreateChannelRequest request, ApiObserver<CreateChannelResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.createChannel(request).map(bridge -> {
+        final String key = requestKey(CallService.CREATE_CHANNEL, request.getType(), request.getRemoteUserId());
+        coalesce(key, execute(Endpoint.CREATE_CHANNEL, callService.createChannel(newIdempotencyKey(), request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        })).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -78,14 +221,15 @@ public class CallRepository {
      */
     public void joinChannel(JoinChannelRequest request, ApiObserver<JoinChannelResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.joinChannel(request).map(bridge -> {
+        final String key = requestKey(CallService.JOIN_CHANNEL, request.getRoomId(), request.getLoginFeeType());
+        coalesce(key, execute(Endpoint.JOIN_CHANNEL, callService.joinChannel(newIdempotencyKey(), request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        })).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -95,14 +239,16 @@ public class CallRepository {
      */
     public void heartbeat(HeartBeatRequest request, ApiObserver<HeartBeatResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.heartbeat(request).map(bridge -> {
+        final String key = requestKey(CallService.HEART_BEAT, request.getRoomId(), request.getChatId(), request.getLoginFeeType());
+        coalesce(key, signaling(Endpoint.HEART_BEAT, null, request, HeartBeatResult.class,
+                execute(Endpoint.HEART_BEAT, callService.heartbeat(request))).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        })).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -112,14 +258,35 @@ public class CallRepository {
      */
     public void heartbeatV2(HeartBeatRequest request, ApiObserver<HeartBeatResult2> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.heartbeatV2(request).map(bridge -> {
+        final String key = requestKey(CallService.HEART_BEAT, "v2", request.getRoomId(), request.getChatId(), request.getLoginFeeType());
+        coalesce(key, signaling(Endpoint.HEART_BEAT, null, request, HeartBeatResult2.class,
+                execute(Endpoint.HEART_BEAT, callService.heartbeatV2(request))).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        })).compose(RxSchedulers.apply()).subscribe(apiObserver);
+    }
+
+    /**
+     * 多房间心跳：请求整体失败时以错误结束，单个房间的结果由 {@link HeartBeatBatchResult.Room#getCode()} 区分
+     * @param request 请求参数
+     * @param apiObserver 回调
+     */
+    public void heartbeatBatch(HeartBeatBatchRequest request, ApiObserver<HeartBeatBatchResult> apiObserver){
+        CallService callService = ApiClient.getInstance().createApi(CallService.class);
+        final String key = requestKey(CallService.HEART_BEAT_BATCH, request.getRooms());
+        coalesce(key, signaling(Endpoint.HEART_BEAT_BATCH, null, request, HeartBeatBatchResult.class,
+                execute(Endpoint.HEART_BEAT_BATCH, callService.heartbeatBatch(request))).map(bridge -> {
+            if (bridge == null || bridge.getData() == null) {
+                throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
+            } else if (bridge.getCode() != 1) {
+                throw new ApiException(bridge.getCode(), bridge.getMsg());
+            }
+            return bridge;
+        })).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -129,14 +296,18 @@ public class CallRepository {
      */
     public void leaveChannel(LeaveChannelRequest request, ApiObserver<BaseResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.leaveChannel(request).map(bridge -> {
+        final String key = requestKey(CallService.LEAVE_CHANNEL, request.getRoomId());
+        final String idempotencyKey = newIdempotencyKey();
+        coalesce(key, durable(CallService.LEAVE_CHANNEL, idempotencyKey, request,
+                signaling(Endpoint.LEAVE_CHANNEL, idempotencyKey, request, BaseResult.class,
+                        execute(Endpoint.LEAVE_CHANNEL, callService.leaveChannel(idempotencyKey, request))).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        }))).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -146,14 +317,18 @@ public class CallRepository {
      */
     public void refuse(RefuseRequest request, ApiObserver<BaseResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.refuse(request).map(bridge -> {
+        final String key = requestKey(CallService.REFUSE, request.getUserId(), request.getRefuseType());
+        final String idempotencyKey = newIdempotencyKey();
+        coalesce(key, durable(CallService.REFUSE, idempotencyKey, request,
+                signaling(Endpoint.REFUSE, idempotencyKey, request, BaseResult.class,
+                        execute(Endpoint.REFUSE, callService.refuse(idempotencyKey, request))).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
                 throw new ApiException(bridge.getCode(), bridge.getMsg());
             }
             return bridge;
-        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+        }))).compose(RxSchedulers.apply()).subscribe(apiObserver);
     }
 
     /**
@@ -163,7 +338,26 @@ public class CallRepository {
      */
     public void giftList(GiftListRequest request, ApiObserver<GiftListResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.giftList(request).map(bridge -> {
+        execute(Endpoint.GIFT_LIST, callService.giftList(request)).map(bridge -> {
+            if (bridge == null) {
+                throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
+            } else if (bridge.getCode() != 1) {
+                throw new ApiException(bridge.getCode(), bridge.getMsg());
+            }
+            return bridge;
+        }).compose(RxSchedulers.apply()).subscribe(apiObserver);
+    }
+
+    /**
+     * 礼物列表（流式）：礼物边下载边解析并逐个写入sink，不构建完整列表
+     * @param request 请求参数
+     * @param sink 礼物接收方（io线程回调）
+     * @param apiObserver 回调，结果中只包含 lastTime 及 deletedIds，gifts 为null
+     */
+    public void giftList(GiftListRequest request, GiftSink sink, ApiObserver<GiftListResult> apiObserver){
+        CallService callService = ApiClient.getInstance().createApi(CallService.class);
+        execute(Endpoint.GIFT_LIST, callService.giftListStream(request)
+                .map(body -> mGiftListDecoder.decode(body, sink))).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
@@ -180,7 +374,9 @@ public class CallRepository {
      */
     public void giftSend(GiveGiftRequest request, ApiObserver<BaseResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.giftSend(request).map(bridge -> {
+        final String idempotencyKey = newIdempotencyKey();
+        // 不写入发件箱：失败已立即告知用户，后台补发会在用户不知情时扣费
+        execute(Endpoint.GIFT_SEND, callService.giftSend(idempotencyKey, request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
@@ -197,7 +393,7 @@ public class CallRepository {
      */
     public void sendGiftMessage(GiveGiftMsgRequest request, ApiObserver<BaseResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.sendMessageNewGift(request).map(bridge -> {
+        execute(Endpoint.MESSAGE_SEND_GIFT, callService.sendMessageNewGift(newIdempotencyKey(), request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
@@ -214,7 +410,7 @@ public class CallRepository {
      */
     public void randomRoom(RandomRoomRequest request, ApiObserver<RandomRoomResult> apiObserver){
         CallService callService = ApiClient.getInstance().createApi(CallService.class);
-        callService.randomRoom(request).map(bridge -> {
+        execute(Endpoint.RANDOM_ROOM, callService.randomRoom(request)).map(bridge -> {
             if (bridge == null) {
                 throw new ApiException(ApiException.CODE_FAILED, "Fetch data failure!");
             } else if (bridge.getCode() != 1) {
@@ -0,0 +1,37 @@
+package com.basetools.net.rx;
+
+import com.basetools.net.core.RetryPolicy;
+import com.basetools.util.Timber;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Function;
+
+/**
+ * 配合 {@link Observable#retryWhen(Function)} 使用，按 {@link RetryPolicy} 退避重试。
+ * 每次请求需创建新的实例。
+ */
+public class RetryWithBackoff implements Function<Observable<Throwable>, ObservableSource<?>> {
+
+    private final String tag;
+    private final RetryPolicy policy;
+    private int retryCount;
+
+    public RetryWithBackoff(String tag, RetryPolicy policy) {
+        this.tag = tag;
+        this.policy = policy;
+    }
+
+    @Override
+    public ObservableSource<?> apply(Observable<Throwable> errors) {
+        return errors.flatMap(e -> {
+            if (retryCount < policy.getMaxRetries() && policy.isRetryable(e)) {
+                retryCount++;
+                final long delay = policy.delayMillis(retryCount);
+                Timber.w("retry >>> " + tag + " | retryCount:" + retryCount + " | delay:" + delay + "ms | " + e);
+                return Observable.timer(delay, TimeUnit.MILLISECONDS);
+            }
+            return Observable.error(e);
+        });
+    }
+}
@@ -1,21 +1,21 @@
 package com.basetools.net.rx;
 
+import com.basetools.net.core.ApiClient;
 import io.reactivex.ObservableTransformer;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.schedulers.Schedulers;
 
 public final class RxSchedulers {
 
     public static <T> ObservableTransformer<T, T> apply() {
         return upstream ->
-                upstream.subscribeOn(Schedulers.io())
+                upstream.subscribeOn(ApiClient.getExecutors().getWorkerScheduler())
                         .observeOn(AndroidSchedulers.mainThread());
     }
 
     public static <T> ObservableTransformer<T, T> applyIO() {
         return upstream ->
-                upstream.subscribeOn(Schedulers.io())
-                        .observeOn(Schedulers.io());
+                upstream.subscribeOn(ApiClient.getExecutors().getWorkerScheduler())
+                        .observeOn(ApiClient.getExecutors().getWorkerScheduler());
     }
 
-}
\ No newline at end of file
+}
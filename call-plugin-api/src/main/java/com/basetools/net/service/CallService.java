@@ -7,6 +7,8 @@ import com.basetools.model.GiftListRequest;
 import com.basetools.model.GiftListResult;
 import com.basetools.model.GiveGiftRequest;
 import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
 import com.basetools.model.HeartBeatRequest;
 import com.basetools.model.HeartBeatResult;
 import com.basetools.model.HeartBeatResult2;
@@ -18,42 +20,74 @@ import com.basetools.model.RandomRoomResult;
 import com.basetools.model.RefuseRequest;
 import com.basetools.model.UpdatePackageRequest;
 import com.basetools.model.UpdatePackageResult;
+import com.basetools.net.converter.BinaryNegotiable;
 import io.reactivex.Observable;
+import okhttp3.ResponseBody;
 import retrofit2.http.Body;
+import retrofit2.http.Header;
 import retrofit2.http.POST;
+import retrofit2.http.Streaming;
 
 public interface CallService {
 
-    @POST("rocket/one/updatepackage")
+    /**
+     * 幂等键请求头：同一次业务操作的重试/重发携带相同的值，服务端据此去重
+     */
+    String IDEMPOTENCY_KEY = "Idempotency-Key";
+
+    String UPDATE_PACKAGE = "rocket/one/updatepackage";
+    String CREATE_CHANNEL = "rocket/one/createChannel";
+    String JOIN_CHANNEL = "rocket/one/joinChannel";
+    String RANDOM_ROOM = "rocket/one/randomRoom";
+    String HEART_BEAT = "rocket/one/heartBeat";
+    String HEART_BEAT_BATCH = "rocket/one/heartBeatBatch";
+    String REFUSE = "rocket/one/refuse";
+    String LEAVE_CHANNEL = "rocket/one/leaveChannel";
+    String GIFT_LIST = "rocket/gift/list";
+    String GIFT_SEND = "rocket/gift/send";
+    String MESSAGE_SEND_GIFT = "rocket/message/sendGift";
+
+    @POST(UPDATE_PACKAGE)
     Observable<UpdatePackageResult> checkCallPluginVersion(@Body UpdatePackageRequest request);
 
-    @POST("rocket/one/createChannel")
-    Observable<CreateChannelResult> createChannel(@Body CreateChannelRequest request);
+    @POST(CREATE_CHANNEL)
+    Observable<CreateChannelResult> createChannel(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body CreateChannelRequest request);
 
-    @POST("rocket/one/joinChannel")
-    Observable<JoinChannelResult> joinChannel(@Body JoinChannelRequest request);
+    @POST(JOIN_CHANNEL)
+    Observable<JoinChannelResult> joinChannel(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body JoinChannelRequest request);
 
-    @POST("rocket/one/randomRoom")
+    @POST(RANDOM_ROOM)
     Observable<RandomRoomResult> randomRoom(@Body RandomRoomRequest request);
 
-    @POST("rocket/one/heartBeat")
+    @POST(HEART_BEAT)
     Observable<HeartBeatResult> heartbeat(@Body HeartBeatRequest request);
 
-    @POST("rocket/one/heartBeat")
+    @BinaryNegotiable
+    @POST(HEART_BEAT)
     Observable<HeartBeatResult2> heartbeatV2(@Body HeartBeatRequest request);
 
-    @POST("rocket/one/refuse")
-    Observable<BaseResult> refuse(@Body RefuseRequest request);
+    @POST(HEART_BEAT_BATCH)
+    Observable<HeartBeatBatchResult> heartbeatBatch(@Body HeartBeatBatchRequest request);
 
-    @POST("rocket/one/leaveChannel")
-    Observable<BaseResult> leaveChannel(@Body LeaveChannelRequest request);
+    @POST(REFUSE)
+    Observable<BaseResult> refuse(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body RefuseRequest request);
 
-    @POST("rocket/gift/list")
+    @POST(LEAVE_CHANNEL)
+    Observable<BaseResult> leaveChannel(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body LeaveChannelRequest request);
+
+    @POST(GIFT_LIST)
     Observable<GiftListResult> giftList(@Body GiftListRequest request);
 
-    @POST("rocket/gift/send")
-    Observable<BaseResult> giftSend(@Body GiveGiftRequest request);
+    /**
+     * 礼物列表原始响应流，由 {@link com.basetools.net.converter.GiftListStreamDecoder} 边读边解析
+     */
+    @Streaming
+    @POST(GIFT_LIST)
+    Observable<ResponseBody> giftListStream(@Body GiftListRequest request);
+
+    @POST(GIFT_SEND)
+    Observable<BaseResult> giftSend(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body GiveGiftRequest request);
 
-    @POST("rocket/message/sendGift")
-    Observable<BaseResult> sendMessageNewGift(@Body GiveGiftMsgRequest request);
+    @POST(MESSAGE_SEND_GIFT)
+    Observable<BaseResult> sendMessageNewGift(@Header(IDEMPOTENCY_KEY) String idempotencyKey, @Body GiveGiftMsgRequest request);
 }
@@ -0,0 +1,328 @@
+package com.basetools.net.signaling;
+
+import android.text.TextUtils;
+import com.basetools.CallKit;
+import com.basetools.listener.SignalingListener;
+import com.basetools.model.RandomRoomData;
+import com.basetools.net.core.ApiClient;
+import com.basetools.net.core.ApiException;
+import com.basetools.net.core.NetworkExecutors;
+import com.basetools.util.GsonUtils;
+import com.basetools.util.Timber;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import io.reactivex.Observable;
+import io.reactivex.ObservableEmitter;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+
+/**
+ * 信令长连接：心跳、离开、拒绝等请求与服务端推送（余额变化、随机匹配结果）复用同一条WebSocket
+ * </br>
+ * 帧格式（文本，Json）：
+ * <pre>
+ * 请求：{"id":1, "path":"rocket/one/heartBeat", "key":"幂等键", "data":{请求参数}}
+ * 响应：{"id":1, "code":1, "msg":"", "data":{}, ...}，除id外与HTTP响应体相同
+ * 推送：{"event":"balance", "data":{"diamondNum":100}} | {"event":"match", "data":{"roomId":1, "token":""}}
+ * </pre>
+ * 未连接、发送失败或连接断开时请求以 {@link IOException} 失败，超时以 {@link java.util.concurrent.TimeoutException}
+ * 失败，由调用方改走HTTP；断开后按指数退避自动重连。
+ */
+public final class SignalingClient {
+
+    private static final String ID = "id";
+    private static final String PATH = "path";
+    private static final String KEY = "key";
+    private static final String EVENT = "event";
+    private static final String DATA = "data";
+    private static final String CODE = "code";
+    private static final String MSG = "msg";
+    private static final String EVENT_BALANCE = "balance";
+    private static final String EVENT_MATCH = "match";
+    private static final String DIAMOND_NUM = "diamondNum";
+    private static final int CODE_SUCCESS = 1;
+    private static final int NORMAL_CLOSURE = 1000;
+
+    private static final long PING_INTERVAL_SECONDS = 20;
+    private static final long MIN_RECONNECT_DELAY_MILLIS = 1_000;
+    private static final long MAX_RECONNECT_DELAY_MILLIS = 60_000;
+
+    private static class SingletonHolder {
+        private static final SignalingClient sInstance = new SignalingClient();
+    }
+
+    public static SignalingClient getInstance() {
+        return SingletonHolder.sInstance;
+    }
+
+    private final Gson mGson = GsonUtils.getGson();
+    private final AtomicLong mNextId = new AtomicLong();
+    /**
+     * 等待响应的请求：id -> 请求
+     */
+    private final ConcurrentHashMap<Long, PendingRequest> mPendingRequests = new ConcurrentHashMap<>();
+    private OkHttpClient mClient;
+    private String mUrl;
+    private WebSocket mWebSocket;
+    private volatile WebSocket mOpenWebSocket;
+    private int mReconnectCount;
+    private volatile SignalingListener mListener;
+
+    private SignalingClient() {
+    }
+
+    /**
+     * 建立连接，已连接到同一地址时忽略
+     *
+     * @param url 信令地址，如 wss://host/rocket/ws
+     */
+    public synchronized void connect(String url) {
+        if (TextUtils.isEmpty(url) || (url.equals(mUrl) && mWebSocket != null)) {
+            return;
+        }
+        closeLocked();
+        mUrl = url;
+        mReconnectCount = 0;
+        openLocked();
+    }
+
+    /**
+     * 断开连接并停止重连
+     */
+    public synchronized void disconnect() {
+        mUrl = null;
+        closeLocked();
+    }
+
+    public boolean isConnected() {
+        return mOpenWebSocket != null;
+    }
+
+    public void setListener(SignalingListener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * 通过长连接发送请求
+     *
+     * @param path           接口路径，与HTTP接口相同
+     * @param idempotencyKey 幂等键，可为null
+     * @param body           请求参数
+     * @param resultType     响应类型
+     * @param timeoutMillis  超时（毫秒）
+     * @return 响应，code != 1 时以 {@link ApiException} 失败，传输失败时以 {@link IOException} 失败，
+     * 超时以 {@link java.util.concurrent.TimeoutException} 失败
+     */
+    public <T> Observable<T> request(String path, String idempotencyKey, Object body, Type resultType,
+                                     long timeoutMillis) {
+        return Observable.<T>create(emitter -> {
+            final WebSocket webSocket = mOpenWebSocket;
+            if (webSocket == null) {
+                emitter.tryOnError(new IOException("signaling not connected"));
+                return;
+            }
+            final long id = mNextId.incrementAndGet();
+            mPendingRequests.put(id, new PendingRequest(resultType, emitter));
+            emitter.setCancellable(() -> mPendingRequests.remove(id));
+            if (!webSocket.send(encode(id, path, idempotencyKey, body))) {
+                mPendingRequests.remove(id);
+                emitter.tryOnError(new IOException("signaling send failure"));
+            }
+        }).timeout(timeoutMillis, TimeUnit.MILLISECONDS, ApiClient.getExecutors().getWorkerScheduler());
+    }
+
+    private String encode(long id, String path, String idempotencyKey, Object body) throws IOException {
+        final StringWriter out = new StringWriter();
+        final JsonWriter writer = mGson.newJsonWriter(out);
+        writer.beginObject();
+        writer.name(ID).value(id);
+        writer.name(PATH).value(path);
+        if (idempotencyKey != null) {
+            writer.name(KEY).value(idempotencyKey);
+        }
+        writer.name(DATA);
+        mGson.toJson(body, body.getClass(), writer);
+        writer.endObject();
+        writer.flush();
+        return out.toString();
+    }
+
+    private void openLocked() {
+        if (mClient == null) {
+            // 共用连接池、拦截器，读取线程单独使用一个线程池，不占用异步请求名额
+            mClient = ApiClient.getInstance().getOkHttpClient().newBuilder()
+                    .dispatcher(new Dispatcher(ApiClient.getExecutors().getExecutor(NetworkExecutors.Pool.SIGNALING)))
+                    .pingInterval(PING_INTERVAL_SECONDS, TimeUnit.SECONDS)
+                    .build();
+        }
+        final String token = CallKit.getInstance().getToken();
+        final Request request = new Request.Builder()
+                .url(mUrl)
+                .header("token", TextUtils.isEmpty(token) ? "" : token)
+                .header("domain", CallKit.getInstance().getBaseUrl())
+                .build();
+        mWebSocket = mClient.newWebSocket(request, new Listener());
+    }
+
+    private void closeLocked() {
+        if (mWebSocket != null) {
+            mWebSocket.close(NORMAL_CLOSURE, null);
+            mWebSocket = null;
+        }
+        mOpenWebSocket = null;
+        failPendingRequests();
+    }
+
+    private void failPendingRequests() {
+        for (Long id : mPendingRequests.keySet()) {
+            final PendingRequest pending = mPendingRequests.remove(id);
+            if (pending != null) {
+                pending.emitter.tryOnError(new IOException("signaling disconnected"));
+            }
+        }
+    }
+
+    private synchronized void onDisconnected(WebSocket webSocket) {
+        if (webSocket != mWebSocket) {
+            return;
+        }
+        mWebSocket = null;
+        mOpenWebSocket = null;
+        failPendingRequests();
+        if (mUrl == null) {
+            return;
+        }
+        final long delay = reconnectDelayMillis(mReconnectCount);
+        mReconnectCount++;
+        Timber.d("signaling reconnect >>> delay:" + delay + "ms");
+        ApiClient.getExecutors().getWorkerScheduler().scheduleDirect(() -> {
+            synchronized (SignalingClient.this) {
+                if (mUrl != null && mWebSocket == null) {
+                    openLocked();
+                }
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 重连间隔：从 {@link #MIN_RECONNECT_DELAY_MILLIS} 起每次翻倍，不超过 {@link #MAX_RECONNECT_DELAY_MILLIS}
+     *
+     * @param reconnectCount 连接成功后已重连的次数
+     */
+    static long reconnectDelayMillis(int reconnectCount) {
+        return Math.min(MAX_RECONNECT_DELAY_MILLIS, MIN_RECONNECT_DELAY_MILLIS << Math.min(reconnectCount, 6));
+    }
+
+    private void onFrame(String text) {
+        try {
+            final JsonObject frame = JsonParser.parseString(text).getAsJsonObject();
+            if (frame.has(ID)) {
+                onResponse(frame);
+            } else if (frame.has(EVENT)) {
+                onEvent(frame.get(EVENT).getAsString(), frame.get(DATA));
+            }
+        } catch (RuntimeException e) {
+            Timber.e(e, "signaling illegal frame: " + text);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void onResponse(JsonObject frame) {
+        final PendingRequest pending = mPendingRequests.remove(frame.remove(ID).getAsLong());
+        if (pending == null) {
+            // 已超时改走HTTP
+            return;
+        }
+        final ObservableEmitter<Object> emitter = (ObservableEmitter<Object>) pending.emitter;
+        try {
+            final JsonElement code = frame.get(CODE);
+            if (code != null && code.getAsInt() != CODE_SUCCESS) {
+                final JsonElement msg = frame.get(MSG);
+                final String message = msg != null && !msg.isJsonNull() ? msg.getAsString() : null;
+                emitter.tryOnError(new ApiException(code.getAsInt(), message));
+                return;
+            }
+            final Object result = mGson.fromJson(frame, pending.resultType);
+            if (result == null) {
+                emitter.tryOnError(new IOException("signaling empty response"));
+                return;
+            }
+            emitter.onNext(result);
+            emitter.onComplete();
+        } catch (JsonParseException | IllegalStateException | UnsupportedOperationException e) {
+            emitter.tryOnError(new IOException("signaling illegal response", e));
+        }
+    }
+
+    private void onEvent(String event, JsonElement data) {
+        final SignalingListener listener = mListener;
+        if (listener == null || data == null || !data.isJsonObject()) {
+            return;
+        }
+        if (EVENT_BALANCE.equals(event)) {
+            final int diamondNum = data.getAsJsonObject().get(DIAMOND_NUM).getAsInt();
+            AndroidSchedulers.mainThread().scheduleDirect(() -> listener.onBalanceChanged(diamondNum));
+        } else if (EVENT_MATCH.equals(event)) {
+            final RandomRoomData roomData = mGson.fromJson(data, RandomRoomData.class);
+            AndroidSchedulers.mainThread().scheduleDirect(() -> listener.onRandomMatched(roomData));
+        } else {
+            Timber.d("signaling unknown event >>> " + event);
+        }
+    }
+
+    private final class Listener extends WebSocketListener {
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            synchronized (SignalingClient.this) {
+                if (webSocket == mWebSocket) {
+                    mOpenWebSocket = webSocket;
+                    mReconnectCount = 0;
+                    Timber.d("signaling connected >>> " + mUrl);
+                }
+            }
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            onFrame(text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(NORMAL_CLOSURE, null);
+            onDisconnected(webSocket);
+        }
+
+        @Override
+        public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+            Timber.d("signaling failure >>> " + t.getMessage());
+            onDisconnected(webSocket);
+        }
+    }
+
+    private static final class PendingRequest {
+        final Type resultType;
+        final ObservableEmitter<?> emitter;
+
+        PendingRequest(Type resultType, ObservableEmitter<?> emitter) {
+            this.resultType = resultType;
+            this.emitter = emitter;
+        }
+    }
+}
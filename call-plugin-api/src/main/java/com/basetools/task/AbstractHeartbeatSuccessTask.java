@@ -20,4 +20,11 @@ public abstract class AbstractHeartbeatSuccessTask {
      * @param ext 扩展数据
      */
     public abstract void run(long balance, HeartbeatExt ext);
+
+    /**
+     * 建议的下次心跳时间：已对齐计费分钟并错开，余额不足时变密，在 run 之后回调
+     * @param delayMillis 距下次心跳的时间（毫秒）
+     */
+    public void onNextInterval(long delayMillis) {
+    }
 }
@@ -0,0 +1,68 @@
+package com.basetools.task;
+
+import java.io.Serializable;
+
+/**
+ * 多房间心跳中一个房间的参数及该房间的结果任务
+ */
+public final class HeartbeatRoom {
+
+    private final String channelId;
+    private final long chatId;
+    private final int loginFeeType;
+    private final Serializable ext;
+    private final AbstractHeartbeatSuccessTask okTask;
+    private final AbstractHeartbeatFailureTask errorTask;
+
+    /**
+     * @param channelId    频道ID
+     * @param chatId       消息ID
+     * @param loginFeeType 是否已建立通话 0 否 1 是
+     * @param ext          扩展参数
+     * @param okTask       该房间心跳成功后需要执行的任务
+     * @param errorTask    该房间心跳失败后执行的任务
+     */
+    public HeartbeatRoom(String channelId, long chatId, int loginFeeType, Serializable ext,
+                         AbstractHeartbeatSuccessTask okTask, AbstractHeartbeatFailureTask errorTask) {
+        this.channelId = channelId;
+        this.chatId = chatId;
+        this.loginFeeType = loginFeeType;
+        this.ext = ext;
+        this.okTask = okTask;
+        this.errorTask = errorTask;
+    }
+
+    public String getChannelId() {
+        return channelId;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public int getLoginFeeType() {
+        return loginFeeType;
+    }
+
+    public Serializable getExt() {
+        return ext;
+    }
+
+    public AbstractHeartbeatSuccessTask getOkTask() {
+        return okTask;
+    }
+
+    public AbstractHeartbeatFailureTask getErrorTask() {
+        return errorTask;
+    }
+
+    @Override
+    public String toString() {
+        return "HeartbeatRoom{" +
+                "channelId='" + channelId + '\'' +
+                ", chatId=" + chatId +
+                ", loginFeeType=" + loginFeeType +
+                ", ext=" + ext +
+                '}';
+    }
+}
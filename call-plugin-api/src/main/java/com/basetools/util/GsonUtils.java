@@ -1,5 +1,6 @@
 package com.basetools.util;
 
+import com.basetools.model.adapter.ModelTypeAdapterFactory;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
@@ -115,7 +116,9 @@ public final class GsonUtils {
      * @return {@link Gson} instance.
      */
     private static Gson createGson(final boolean serializeNulls) {
-        final GsonBuilder builder = new GsonBuilder();
+        final GsonBuilder builder = new GsonBuilder()
+                // 数据模型使用非反射实现
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory());
         if (serializeNulls) {
             builder.serializeNulls();
         }
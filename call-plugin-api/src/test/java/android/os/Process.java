@@ -0,0 +1,12 @@
+package android.os;
+
+/**
+ * 本地单元测试使用的 Process，android.jar 中的实现只抛出 "Stub!"
+ */
+public class Process {
+
+    public static final int THREAD_PRIORITY_BACKGROUND = 10;
+
+    public static void setThreadPriority(int priority) {
+    }
+}
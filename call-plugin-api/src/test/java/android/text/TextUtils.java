@@ -0,0 +1,11 @@
+package android.text;
+
+/**
+ * 本地单元测试使用的 TextUtils，android.jar 中的实现只抛出 "Stub!"
+ */
+public class TextUtils {
+
+    public static boolean isEmpty(CharSequence str) {
+        return str == null || str.length() == 0;
+    }
+}
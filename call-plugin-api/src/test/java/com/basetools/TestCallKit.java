@@ -0,0 +1,26 @@
+package com.basetools;
+
+import com.basetools.net.config.CallConfig;
+import java.lang.reflect.Field;
+
+/**
+ * 本地单元测试中设置 {@link CallKit} 配置，不依赖 Application 初始化
+ */
+public final class TestCallKit {
+
+    private TestCallKit() {
+    }
+
+    /**
+     * @param config 配置，为null时恢复未初始化状态
+     */
+    public static void setConfig(CallConfig config) {
+        try {
+            final Field field = CallKit.class.getDeclaredField("mCallConfig");
+            field.setAccessible(true);
+            field.set(null, config);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
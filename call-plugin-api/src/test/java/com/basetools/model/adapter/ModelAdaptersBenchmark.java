@@ -0,0 +1,149 @@
+package com.basetools.model.adapter;
+
+import com.basetools.TestCallKit;
+import com.basetools.model.CreateChannelRequest;
+import com.basetools.model.CreateChannelResult;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListRequest;
+import com.basetools.model.GiftListResult;
+import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.GiveGiftRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.JoinChannelRequest;
+import com.basetools.model.JoinChannelResult;
+import com.basetools.model.LeaveChannelRequest;
+import com.basetools.model.Platform;
+import com.basetools.model.RandomRoomRequest;
+import com.basetools.model.RandomRoomResult;
+import com.basetools.model.RefuseRequest;
+import com.basetools.model.UpdatePackageRequest;
+import com.basetools.model.UpdatePackageResult;
+import com.basetools.net.config.CallConfig;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+
+/**
+ * 非反射适配器与反射Gson的对比：新建Gson后为全部模型创建适配器的耗时（冷启动），以及每次心跳（编码请求、解析响应）的耗时和分配
+ * </br>
+ * 在IDE中直接运行 main（不属于单元测试），参数为测量轮数，默认5轮。第一轮的冷启动耗时包含类加载；
+ * 分配字节数依赖 HotSpot 的 com.sun.management.ThreadMXBean，其它JVM上不输出。
+ * 桌面JVM缓存了反射数据，ART上反射扫描字段的开销更大，需在目标设备上另行测量。
+ */
+public final class ModelAdaptersBenchmark {
+
+    private static final List<Class<?>> MODELS = Arrays.asList(Platform.class, Gift.class,
+            CreateChannelRequest.class, JoinChannelRequest.class, HeartBeatRequest.class, HeartBeatBatchRequest.class,
+            LeaveChannelRequest.class, RefuseRequest.class, RandomRoomRequest.class, GiftListRequest.class,
+            GiveGiftRequest.class, GiveGiftMsgRequest.class, UpdatePackageRequest.class,
+            CreateChannelResult.class, JoinChannelResult.class, HeartBeatResult.class, HeartBeatResult2.class,
+            HeartBeatBatchResult.class, RandomRoomResult.class, GiftListResult.class, UpdatePackageResult.class);
+
+    private static final String PLATFORM_JSON = "{\"fid\":1234567890123,\"baseProduct\":21,\"product\":2103,"
+            + "\"packageName\":\"com.example.callapp\",\"version\":\"3.12.0\",\"versionCode\":31200,"
+            + "\"release\":\"googleplay\",\"pid\":\"9f3c2a1b-7d4e-4c8a-b1f0-5e6d7c8b9a01\","
+            + "\"platform\":3,\"systemVersion\":\"13\",\"w\":1080,\"h\":2400,\"netType\":1,\"country\":\"ID\","
+            + "\"language\":\"in\",\"phonetype\":\"SM-A5460\",\"operator\":\"Telkomsel\"}";
+
+    private static final String RESULT_JSON = "{\"code\":1,\"msg\":\"success\","
+            + "\"data\":{\"diamondNum\":12860,\"nextInterval\":45},"
+            + "\"ext\":{\"location\":\"Jakarta\",\"accountDia\":\"12860\"}}";
+
+    private static final int COLD_ITERATIONS = 200;
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURE_ITERATIONS = 100_000;
+
+    /**
+     * 防止结果被优化掉
+     */
+    private static long sSink;
+
+    public static void main(String[] args) throws Exception {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        TestCallKit.setConfig(new CallConfig.Builder("https://api.example.test/", "token", PLATFORM_JSON, false)
+                .build());
+        final HeartBeatRequest request = new HeartBeatRequest("100023456", "200034567", 1);
+        final Gson reflective = reflective();
+        final Gson adapted = adapted();
+
+        for (int round = 1; round <= rounds; round++) {
+            System.out.println("round " + round);
+            measureCold("  cold adapters reflective", ModelAdaptersBenchmark::reflective);
+            measureCold("  cold adapters adapted   ", ModelAdaptersBenchmark::adapted);
+            measureBeat("  beat reflective", () -> beat(reflective, request));
+            measureBeat("  beat adapted   ", () -> beat(adapted, request));
+        }
+        System.out.println(sSink == 42 ? "" : "done");
+        TestCallKit.setConfig(null);
+    }
+
+    /**
+     * 与 GsonUtils 相同的配置（不输出null），不登记非反射适配器
+     */
+    private static Gson reflective() {
+        return new GsonBuilder().create();
+    }
+
+    private static Gson adapted() {
+        return new GsonBuilder().registerTypeAdapterFactory(new ModelTypeAdapterFactory()).create();
+    }
+
+    /**
+     * 一次心跳：编码请求（共享平台信息）并解析响应
+     */
+    private static int beat(Gson gson, HeartBeatRequest request) {
+        return gson.toJson(request).length() + gson.fromJson(RESULT_JSON, HeartBeatResult2.class).getCode();
+    }
+
+    /**
+     * 新建Gson并为全部模型创建适配器
+     */
+    private static void measureCold(String name, Callable<Gson> factory) throws Exception {
+        final long start = System.nanoTime();
+        for (int i = 0; i < COLD_ITERATIONS; i++) {
+            final Gson gson = factory.call();
+            for (Class<?> model : MODELS) {
+                sSink += gson.getAdapter(model).hashCode();
+            }
+        }
+        final double microsPerGson = (System.nanoTime() - start) / 1000.0 / COLD_ITERATIONS;
+        System.out.println(String.format(Locale.ROOT, "%s %8.1f us/gson", name, microsPerGson));
+    }
+
+    private static void measureBeat(String name, Callable<Integer> operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sSink += operation.call();
+        }
+        final long allocatedBefore = allocatedBytes();
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            sSink += operation.call();
+        }
+        final double nanosPerOp = (System.nanoTime() - start) / (double) MEASURE_ITERATIONS;
+        final long allocatedAfter = allocatedBytes();
+        final double bytesPerOp = (allocatedAfter - allocatedBefore) / (double) MEASURE_ITERATIONS;
+        final String allocated = allocatedBefore < 0 || allocatedAfter < 0 ? "n/a"
+                : String.format(Locale.ROOT, "%.0f B/op", bytesPerOp);
+        System.out.println(String.format(Locale.ROOT, "%s %8.1f ns/op %10s", name, nanosPerOp, allocated));
+    }
+
+    /**
+     * 当前线程累计分配的字节数，不支持时返回-1
+     */
+    private static long allocatedBytes() {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
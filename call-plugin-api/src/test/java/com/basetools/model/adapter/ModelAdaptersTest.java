@@ -0,0 +1,355 @@
+package com.basetools.model.adapter;
+
+import com.basetools.TestCallKit;
+import com.basetools.model.CreateChannelRequest;
+import com.basetools.model.CreateChannelResult;
+import com.basetools.model.Gift;
+import com.basetools.model.GiftListRequest;
+import com.basetools.model.GiftListResult;
+import com.basetools.model.GiveGiftMsgRequest;
+import com.basetools.model.GiveGiftRequest;
+import com.basetools.model.HeartBeatBatchRequest;
+import com.basetools.model.HeartBeatBatchResult;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.JoinChannelRequest;
+import com.basetools.model.JoinChannelResult;
+import com.basetools.model.LeaveChannelRequest;
+import com.basetools.model.Platform;
+import com.basetools.model.RandomRoomRequest;
+import com.basetools.model.RandomRoomResult;
+import com.basetools.model.RefuseRequest;
+import com.basetools.model.UpdatePackageRequest;
+import com.basetools.model.UpdatePackageResult;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.config.PlatformSnapshot;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link ModelAdapters} 与反射方式（{@link com.google.gson.internal.bind.ReflectiveTypeAdapterFactory}）逐个模型对比：
+ * 写出的Json完全相同，读取反射方式的输出得到相同的对象；包括null字段、serializeNulls，以及平台信息预编码片段
+ * </br>
+ * 模型通过反射逐字段填充，新增字段未同步到 ModelAdapters 时测试失败。
+ */
+public class ModelAdaptersTest {
+
+    private static final List<Class<?>> WRITTEN = Arrays.asList(Platform.class, Gift.class,
+            CreateChannelRequest.class, JoinChannelRequest.class, HeartBeatRequest.class, HeartBeatBatchRequest.class,
+            LeaveChannelRequest.class, RefuseRequest.class, RandomRoomRequest.class, GiftListRequest.class,
+            GiveGiftRequest.class, GiveGiftMsgRequest.class, UpdatePackageRequest.class);
+
+    private static final List<Class<?>> READ = Arrays.asList(Platform.class, Gift.class,
+            CreateChannelResult.class, JoinChannelResult.class, HeartBeatResult.class, HeartBeatResult2.class,
+            HeartBeatBatchResult.class, RandomRoomResult.class, GiftListResult.class, GiftListResult.GiftData.class,
+            UpdatePackageResult.class);
+
+    /**
+     * 完整的平台信息，字符串含需转义的字符
+     */
+    private static final String PLATFORM_JSON = "{\"fid\":1234567890123,\"baseProduct\":21,\"product\":2103,"
+            + "\"packageName\":\"com.example.callapp\",\"version\":\"3.12.0\",\"versionCode\":31200,"
+            + "\"release\":\"google<play>&'=\\\"\",\"pid\":\"9f3c2a1b\",\"imsi\":\"460011234567890\","
+            + "\"platform\":3,\"systemVersion\":\"13\",\"w\":1080,\"h\":2400,\"netType\":1,\"country\":\"ID\","
+            + "\"language\":\"中文\",\"phonetype\":\"SM-A5460\",\"operator\":\"Telkomsel\",\"oaid\":\"0000\"}";
+
+    /**
+     * 缺少部分字符串字段的平台信息，预编码片段不含这些字段
+     */
+    private static final String PARTIAL_PLATFORM_JSON = "{\"fid\":1,\"product\":2103,\"version\":\"3.12.0\","
+            + "\"platform\":0,\"w\":1080,\"h\":2400,\"unknown\":[1,{\"a\":null}]}";
+
+    /**
+     * 填充方式
+     */
+    private enum Fill {
+        /**
+         * 所有字段有值，列表含两个元素
+         */
+        FULL,
+        /**
+         * 嵌套对象、列表有值，字符串字段为null
+         */
+        NULL_STRINGS,
+        /**
+         * 所有引用类型字段为null（包括平台信息）
+         */
+        NULL_OBJECTS
+    }
+
+    private static final Gson REFLECTIVE = new GsonBuilder().create();
+    private static final Gson REFLECTIVE_NULLS = new GsonBuilder().serializeNulls().create();
+    private static final Gson ADAPTED = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .create();
+    private static final Gson ADAPTED_NULLS = new GsonBuilder()
+            .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+            .serializeNulls()
+            .create();
+
+    private int mSeed;
+
+    @After
+    public void tearDown() {
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void registeredTypes_allCovered() throws Exception {
+        assertEquals(new HashSet<>(WRITTEN), registered("WRITERS").keySet());
+        assertEquals(new HashSet<>(READ), registered("READERS").keySet());
+    }
+
+    @Test
+    public void writers_matchReflective() throws Exception {
+        setPlatformJson(PLATFORM_JSON);
+        for (Class<?> type : WRITTEN) {
+            for (Fill fill : Fill.values()) {
+                // 平台信息为新建实例（或null），不使用预编码片段
+                assertWritesSame(type + " " + fill, fill(type, fill));
+            }
+        }
+    }
+
+    @Test
+    public void writers_sharedPlatformMatchesReflective() throws Exception {
+        for (String platformJson : Arrays.asList(PLATFORM_JSON, PARTIAL_PLATFORM_JSON)) {
+            setPlatformJson(platformJson);
+            final PlatformSnapshot shared = PlatformSnapshot.current();
+            assertNotNull(shared);
+            for (Class<?> type : WRITTEN) {
+                final Field platform = field(type, Platform.class);
+                if (platform == null) {
+                    continue;
+                }
+                final Object value = fill(type, Fill.FULL);
+                platform.set(value, shared.getPlatform());
+                field(type, PlatformSnapshot.class).set(value, shared);
+                // 不输出null时拼接预编码片段，serializeNulls时逐字段编码
+                assertWritesSame(type + " " + platformJson, value);
+            }
+        }
+    }
+
+    @Test
+    public void sharedPlatform_copiedWhenTakenFromRequest() {
+        setPlatformJson(PARTIAL_PLATFORM_JSON);
+        final PlatformSnapshot shared = PlatformSnapshot.current();
+        final HeartBeatRequest request = new HeartBeatRequest("1", "2", 1);
+        assertSame(shared, request.getPlatformSnapshot());
+
+        final Platform platform = request.getPlatform();
+        platform.setCountry("ID");
+
+        assertNotSame(shared.getPlatform(), platform);
+        assertNull(request.getPlatformSnapshot());
+        assertSame(platform, request.getPlatform());
+        assertWritesSame("copy", request);
+        // 共用实例与预编码片段不受影响
+        assertNull(shared.getPlatform().getCountry());
+        assertSame(shared, new HeartBeatRequest("3", "4", 1).getPlatformSnapshot());
+        assertEquals(REFLECTIVE.toJson(shared.getPlatform()), shared.getEncodedJson());
+    }
+
+    @Test
+    public void sharedPlatform_replacedBySetPlatform() {
+        setPlatformJson(PLATFORM_JSON);
+        final JoinChannelRequest request = new JoinChannelRequest("1");
+        final Platform platform = new Platform();
+        platform.setPid("pid");
+
+        request.setPlatform(platform);
+
+        assertNull(request.getPlatformSnapshot());
+        assertWritesSame("replaced", request);
+    }
+
+    @Test
+    public void readers_matchReflective() throws Exception {
+        for (Class<?> type : READ) {
+            for (Fill fill : Fill.values()) {
+                final Object value = fill(type, fill);
+                for (String json : Arrays.asList(REFLECTIVE.toJson(value), REFLECTIVE_NULLS.toJson(value))) {
+                    assertReadsSame(type + " " + fill, json, type);
+                    // 未知字段跳过
+                    assertReadsSame(type + " " + fill + " unknown", json.replaceFirst("^\\{",
+                            "{\"unknown\":{\"a\":[1,null,\"x\",{\"b\":true}]},"), type);
+                }
+            }
+            assertReadsSame(type + " empty", "{}", type);
+            assertReadsSame(type + " null", "null", type);
+        }
+    }
+
+    @Test
+    public void readers_coercedValuesMatchReflective() throws Exception {
+        assertReadsSame("gifts", "{\"code\":\"1\",\"msg\":true,\"data\":{\"lastTime\":\"12\","
+                + "\"gifts\":[{\"giftId\":5,\"price\":\"3\",\"selected\":\"true\",\"giftName\":false}],"
+                + "\"deletedIds\":[1,true,\"x\"]}}", GiftListResult.class);
+        assertReadsSame("heartbeat", "{\"code\":\"1\",\"data\":{\"diamondNum\":\"5\",\"nextInterval\":7.0}}",
+                HeartBeatResult2.class);
+        assertReadsSame("platform", "{\"fid\":\"12\",\"platform\":null,\"pid\":1.5}", Platform.class);
+    }
+
+    @Test
+    public void readers_nullListElementsDropped() {
+        final String json = "{\"data\":{\"gifts\":[null,{\"giftId\":\"1\"}],\"deletedIds\":[null,\"2\"]}}";
+
+        final GiftListResult.GiftData reflective = REFLECTIVE.fromJson(json, GiftListResult.class).getData();
+        final GiftListResult.GiftData adapted = ADAPTED.fromJson(json, GiftListResult.class).getData();
+
+        // 与反射方式唯一的差异：列表中的null元素丢弃
+        assertEquals(2, reflective.getGifts().size());
+        assertEquals(2, reflective.getDeletedIds().size());
+        assertEquals(Arrays.asList(new Gift("1")), adapted.getGifts());
+        assertEquals(Arrays.asList("2"), adapted.getDeletedIds());
+
+        final String rooms = "{\"data\":[null,{\"roomId\":\"1\"}]}";
+        assertEquals(2, REFLECTIVE.fromJson(rooms, HeartBeatBatchResult.class).getData().size());
+        assertEquals(1, ADAPTED.fromJson(rooms, HeartBeatBatchResult.class).getData().size());
+    }
+
+    @Test
+    public void readers_nullKeepsDefault() {
+        final String json = "{\"platform\":null,\"packageName\":null}";
+
+        assertEquals(3, REFLECTIVE.fromJson(json, Platform.class).getPlatform());
+        assertEquals(3, ADAPTED.fromJson(json, Platform.class).getPlatform());
+    }
+
+    @Test
+    public void reflectiveDelegate_createdOnFirstUse() {
+        setPlatformJson(PLATFORM_JSON);
+        final List<Class<?>> delegated = new ArrayList<>();
+        // 后登记的工厂优先，记录工厂位于 ModelTypeAdapterFactory 之后，只在委托时被调用
+        final Gson gson = new GsonBuilder()
+                .registerTypeAdapterFactory(new TypeAdapterFactory() {
+                    @Override
+                    public <T> TypeAdapter<T> create(Gson gson, TypeToken<T> type) {
+                        delegated.add(type.getRawType());
+                        return null;
+                    }
+                })
+                .registerTypeAdapterFactory(new ModelTypeAdapterFactory())
+                .create();
+
+        gson.getAdapter(HeartBeatRequest.class);
+        gson.toJson(new HeartBeatRequest("1", "2", 1));
+        gson.getAdapter(HeartBeatResult2.class);
+        gson.fromJson("{\"code\":1,\"data\":{\"diamondNum\":5}}", HeartBeatResult2.class);
+        assertTrue(delegated.toString(), Collections.disjoint(delegated,
+                Arrays.asList(HeartBeatRequest.class, HeartBeatResult2.class, Platform.class)));
+
+        // 未登记的方向首次使用时才交给反射实现
+        gson.fromJson("{\"roomId\":\"1\"}", HeartBeatRequest.class);
+        assertTrue(delegated.contains(HeartBeatRequest.class));
+    }
+
+    private static void assertWritesSame(String message, Object value) {
+        assertEquals(message, REFLECTIVE.toJson(value), ADAPTED.toJson(value));
+        assertEquals(message + " serializeNulls", REFLECTIVE_NULLS.toJson(value), ADAPTED_NULLS.toJson(value));
+    }
+
+    /**
+     * 两种方式读取的对象再以反射方式（输出null）写出后比较
+     */
+    private static void assertReadsSame(String message, String json, Class<?> type) {
+        assertEquals(message + ": " + json, REFLECTIVE_NULLS.toJson(REFLECTIVE.fromJson(json, type)),
+                REFLECTIVE_NULLS.toJson(ADAPTED.fromJson(json, type)));
+    }
+
+    /**
+     * 逐字段填充（包括父类字段），跳过static、transient字段，平台信息快照置null
+     */
+    private Object fill(Class<?> type, Fill fill) throws Exception {
+        // 无参构造或Unsafe创建，与反射方式一致
+        final Object value = REFLECTIVE.fromJson("{}", type);
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                final int modifiers = field.getModifiers();
+                if (Modifier.isStatic(modifiers)) {
+                    continue;
+                }
+                field.setAccessible(true);
+                if (field.getType() == PlatformSnapshot.class) {
+                    // 平台信息被替换，与 setPlatform 一致不再使用预编码片段
+                    field.set(value, null);
+                } else if (!Modifier.isTransient(modifiers)) {
+                    field.set(value, sample(field.getGenericType(), fill));
+                }
+            }
+        }
+        return value;
+    }
+
+    private Object sample(Type type, Fill fill) throws Exception {
+        final int seed = ++mSeed;
+        if (type == int.class) {
+            return seed * 37 - 500;
+        } else if (type == long.class) {
+            return seed * 1_000_000_007L;
+        } else if (type == boolean.class) {
+            return seed % 2 == 0;
+        } else if (type == String.class) {
+            return fill == Fill.FULL ? "s" + seed + " \"中文\" <&='>\n😀" : null;
+        } else if (fill == Fill.NULL_OBJECTS) {
+            return null;
+        } else if (type instanceof ParameterizedType) {
+            final Type element = ((ParameterizedType) type).getActualTypeArguments()[0];
+            final List<Object> values = new ArrayList<>();
+            values.add(sample(element, Fill.FULL));
+            // 字符串数组的null元素会被丢弃，不在这里比较
+            values.add(sample(element, element == String.class ? Fill.FULL : fill));
+            return values;
+        } else if (type instanceof Class && ((Class<?>) type).getName().startsWith("com.basetools.model.")) {
+            return fill((Class<?>) type, fill);
+        }
+        throw new AssertionError("unsupported field type: " + type);
+    }
+
+    private static Field field(Class<?> type, Class<?> fieldType) throws Exception {
+        for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (field.getType() == fieldType) {
+                    field.setAccessible(true);
+                    return field;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Map<?, ?> registered(String name) throws Exception {
+        final Field field = ModelTypeAdapterFactory.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return (Map<?, ?>) field.get(null);
+    }
+
+    private static void setPlatformJson(String platformJson) {
+        TestCallKit.setConfig(new CallConfig.Builder("https://api.example.test/", "token", platformJson, false)
+                .build());
+    }
+}
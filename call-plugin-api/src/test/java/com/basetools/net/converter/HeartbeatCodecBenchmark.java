@@ -0,0 +1,76 @@
+package com.basetools.net.converter;
+
+import com.basetools.TestCallKit;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.net.config.CallConfig;
+import com.basetools.util.GsonUtils;
+import com.google.gson.Gson;
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import okio.Buffer;
+import okio.ByteString;
+
+/**
+ * 心跳Json与二进制格式的大小、编解码耗时对比，使用 {@link HeartbeatCodecSamples} 中的典型数据
+ * </br>
+ * 在IDE中直接运行 main（不属于单元测试），参数为测量轮数，默认5轮，每轮先预热再计时。
+ * 大小固定不变；耗时与设备、JIT有关，只用于比较两种格式，需在目标设备上另行测量。
+ */
+public final class HeartbeatCodecBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 20_000;
+    private static final int MEASURE_ITERATIONS = 100_000;
+
+    /**
+     * 防止结果被优化掉
+     */
+    private static long sSink;
+
+    public static void main(String[] args) throws Exception {
+        final int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        TestCallKit.setConfig(new CallConfig.Builder("https://api.example.test/", "token",
+                HeartbeatCodecSamples.PLATFORM_JSON, false)
+                .setBinaryHeartbeatEnable(true)
+                .build());
+        final Gson gson = GsonUtils.getGson();
+        final HeartBeatRequest request = HeartbeatCodecSamples.request();
+        final HeartBeatResult2 result = HeartbeatCodecSamples.result(true, true, true);
+        final String requestJson = gson.toJson(request);
+        final String resultJson = gson.toJson(result);
+        final ByteString requestBinary = HeartbeatCodec.encodeRequest(request);
+        final ByteString resultBinary = HeartbeatCodec.encodeResult(result);
+
+        System.out.println(String.format(Locale.ROOT, "request  %4d B json | %4d B binary",
+                ByteString.encodeUtf8(requestJson).size(), requestBinary.size()));
+        System.out.println(String.format(Locale.ROOT, "response %4d B json | %4d B binary",
+                ByteString.encodeUtf8(resultJson).size(), resultBinary.size()));
+
+        for (int round = 1; round <= rounds; round++) {
+            System.out.println("round " + round);
+            measure("  encode request  json  ", () -> gson.toJson(request).length());
+            measure("  encode request  binary", () -> HeartbeatCodec.encodeRequest(request).size());
+            measure("  decode response json  ", () -> gson.fromJson(resultJson, HeartBeatResult2.class).getCode());
+            measure("  decode response binary", () -> decodeResult(resultBinary).getCode());
+        }
+        System.out.println(sSink == 42 ? "" : "done");
+        TestCallKit.setConfig(null);
+    }
+
+    private static HeartBeatResult2 decodeResult(ByteString bytes) throws IOException {
+        return HeartbeatCodec.decodeResult(new Buffer().write(bytes));
+    }
+
+    private static void measure(String name, Callable<Integer> operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            sSink += operation.call();
+        }
+        final long start = System.nanoTime();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            sSink += operation.call();
+        }
+        final double nanosPerOp = (System.nanoTime() - start) / (double) MEASURE_ITERATIONS;
+        System.out.println(String.format(Locale.ROOT, "%s %8.1f ns/op", name, nanosPerOp));
+    }
+}
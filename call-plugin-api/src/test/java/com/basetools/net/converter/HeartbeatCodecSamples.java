@@ -0,0 +1,51 @@
+package com.basetools.net.converter;
+
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.HeartbeatExt;
+
+/**
+ * 心跳编解码测试、基准共用的典型数据
+ */
+final class HeartbeatCodecSamples {
+
+    /**
+     * 典型的平台信息
+     */
+    static final String PLATFORM_JSON = "{\"fid\":1234567890123,\"baseProduct\":21,\"product\":2103,"
+            + "\"packageName\":\"com.example.callapp\",\"version\":\"3.12.0\",\"versionCode\":31200,"
+            + "\"release\":\"googleplay\",\"pid\":\"9f3c2a1b-7d4e-4c8a-b1f0-5e6d7c8b9a01\","
+            + "\"imsi\":\"460011234567890\","
+            + "\"platform\":3,\"systemVersion\":\"13\",\"w\":1080,\"h\":2400,\"netType\":1,\"country\":\"ID\","
+            + "\"language\":\"in\",\"phonetype\":\"SM-A5460\",\"operator\":\"Telkomsel\","
+            + "\"oaid\":\"00000000-0000-0000-0000-000000000000\"}";
+
+    private HeartbeatCodecSamples() {
+    }
+
+    /**
+     * 使用 CallKit 共享平台信息的心跳请求
+     */
+    static HeartBeatRequest request() {
+        return new HeartBeatRequest("100023456", "200034567", 1);
+    }
+
+    static HeartBeatResult2 result(boolean hasData, boolean hasInterval, boolean hasExt) {
+        final HeartBeatResult2 result = new HeartBeatResult2();
+        result.setCode(1);
+        result.setMsg("success");
+        if (hasData) {
+            final HeartBeatResult2.Data data = new HeartBeatResult2.Data();
+            data.setDiamondNum(12860);
+            data.setNextInterval(hasInterval ? 45 : 0);
+            result.setData(data);
+        }
+        if (hasExt) {
+            final HeartbeatExt ext = new HeartbeatExt();
+            ext.setLocation("Jakarta");
+            ext.setAccountDia("12860");
+            result.setExt(ext);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,286 @@
+package com.basetools.net.converter;
+
+import com.basetools.TestCallKit;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.model.HeartBeatResult2;
+import com.basetools.model.Platform;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.service.CallService;
+import com.basetools.util.GsonUtils;
+import com.google.gson.Gson;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
+import retrofit2.converter.gson.GsonConverterFactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link HeartbeatCodec} 编解码往返、zigzag边界、截断输入，以及v1/v2心跳的格式协商
+ */
+public class HeartbeatCodecTest {
+
+    /**
+     * 与Json比较使用反射序列化，不经过 ModelAdapters
+     */
+    private final Gson mGson = new Gson();
+
+    @Before
+    public void setUp() {
+        TestCallKit.setConfig(new CallConfig.Builder("https://api.example.test/", "token",
+                HeartbeatCodecSamples.PLATFORM_JSON, false)
+                .setBinaryHeartbeatEnable(true)
+                .build());
+    }
+
+    @After
+    public void tearDown() {
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void request_roundTrip() throws IOException {
+        final HeartBeatRequest request = HeartbeatCodecSamples.request();
+
+        final HeartBeatRequest decoded = decodeRequest(HeartbeatCodec.encodeRequest(request));
+
+        assertEquals(mGson.toJson(request), mGson.toJson(decoded));
+    }
+
+    @Test
+    public void request_roundTripNullsAndExtremes() throws IOException {
+        final Platform platform = new Platform();
+        platform.setFid(Long.MIN_VALUE);
+        platform.setBaseProduct(Integer.MIN_VALUE);
+        platform.setProduct(Integer.MAX_VALUE);
+        platform.setVersionCode(-1);
+        platform.setW(-1080);
+        platform.setH(0);
+        platform.setNetType(-2);
+        platform.setPackageName("");
+        platform.setCountry("中国");
+        platform.setLanguage("emoji 😀");
+        final HeartBeatRequest request = new HeartBeatRequest(null, "", -1);
+        request.setPlatform(platform);
+
+        final HeartBeatRequest decoded = decodeRequest(HeartbeatCodec.encodeRequest(request));
+
+        assertEquals(mGson.toJson(request), mGson.toJson(decoded));
+        assertNull(decoded.getRoomId());
+        assertEquals("", decoded.getChatId());
+        assertNull(decoded.getPlatform().getPid());
+        assertEquals(Long.MIN_VALUE, decoded.getPlatform().getFid());
+    }
+
+    @Test
+    public void request_nullPlatform() throws IOException {
+        final HeartBeatRequest request = new HeartBeatRequest("1", "2", 0);
+        request.setPlatform(null);
+
+        assertNull(decodeRequest(HeartbeatCodec.encodeRequest(request)).getPlatform());
+    }
+
+    @Test
+    public void request_sharedPlatformRoundTrip() throws IOException {
+        final HeartBeatRequest first = new HeartBeatRequest("1", "2");
+        final HeartBeatRequest second = new HeartBeatRequest("3", "4");
+        assertNotNull(first.getPlatformSnapshot());
+        assertSame(first.getPlatformSnapshot(), second.getPlatformSnapshot());
+
+        // 第二次使用共享平台信息的编码缓存
+        final HeartBeatRequest firstDecoded = decodeRequest(HeartbeatCodec.encodeRequest(first));
+        final HeartBeatRequest secondDecoded = decodeRequest(HeartbeatCodec.encodeRequest(second));
+
+        assertEquals(mGson.toJson(first), mGson.toJson(firstDecoded));
+        assertEquals(mGson.toJson(second), mGson.toJson(secondDecoded));
+
+        // 取出后修改的是副本，不影响缓存
+        second.getPlatform().setCountry("ID");
+        assertEquals(mGson.toJson(second), mGson.toJson(decodeRequest(HeartbeatCodec.encodeRequest(second))));
+        assertEquals(mGson.toJson(first), mGson.toJson(decodeRequest(HeartbeatCodec.encodeRequest(first))));
+    }
+
+    @Test
+    public void result_roundTripAllFlagCombinations() throws IOException {
+        for (int flags = 0; flags < 8; flags++) {
+            final boolean hasData = (flags & 1) != 0;
+            final boolean hasExt = (flags & 2) != 0;
+            final boolean hasInterval = (flags & 4) != 0;
+            if (hasInterval && !hasData) {
+                // nextInterval 属于 data
+                continue;
+            }
+            final HeartBeatResult2 result = HeartbeatCodecSamples.result(hasData, hasInterval, hasExt);
+
+            final ByteString bytes = HeartbeatCodec.encodeResult(result);
+            final HeartBeatResult2 decoded = decodeResult(bytes);
+
+            assertEquals("flags " + flags, mGson.toJson(result), mGson.toJson(decoded));
+            // version | code | msg(长度 + ASCII) | flags
+            assertEquals("flags " + flags, flags, bytes.getByte(1 + 1 + 1 + result.getMsg().length()));
+        }
+    }
+
+    @Test
+    public void result_zigzagNegativeValues() throws IOException {
+        final HeartBeatResult2 result = new HeartBeatResult2();
+        result.setCode(-1);
+        final HeartBeatResult2.Data data = new HeartBeatResult2.Data();
+        data.setDiamondNum(Integer.MIN_VALUE);
+        data.setNextInterval(-30);
+        result.setData(data);
+
+        final ByteString bytes = HeartbeatCodec.encodeResult(result);
+        final HeartBeatResult2 decoded = decodeResult(bytes);
+
+        // zigzag：-1 编码为1，占一个字节；Integer.MIN_VALUE 占五个字节
+        assertEquals(1, bytes.getByte(1));
+        assertEquals(1 + 1 + 1 + 1 + 5 + 1, bytes.size());
+        assertEquals(-1, decoded.getCode());
+        assertNull(decoded.getMsg());
+        assertEquals(Integer.MIN_VALUE, decoded.getData().getDiamondNum());
+        assertEquals(-30, decoded.getData().getNextInterval());
+    }
+
+    @Test
+    public void result_zeroIntervalNotEncoded() throws IOException {
+        final HeartBeatResult2 result = HeartbeatCodecSamples.result(true, false, false);
+
+        final HeartBeatResult2 decoded = decodeResult(HeartbeatCodec.encodeResult(result));
+
+        assertEquals(0, decoded.getData().getNextInterval());
+    }
+
+    @Test
+    public void truncatedInput_failsWithEof() {
+        final ByteString request = HeartbeatCodec.encodeRequest(HeartbeatCodecSamples.request());
+        for (int length = 0; length < request.size(); length++) {
+            try {
+                decodeRequest(request.substring(0, length));
+                fail("request truncated to " + length);
+            } catch (IOException expected) {
+                assertTrue(expected instanceof EOFException);
+            }
+        }
+        final ByteString result = HeartbeatCodec.encodeResult(HeartbeatCodecSamples.result(true, true, true));
+        for (int length = 0; length < result.size(); length++) {
+            try {
+                decodeResult(result.substring(0, length));
+                fail("result truncated to " + length);
+            } catch (IOException expected) {
+                assertTrue(expected instanceof EOFException);
+            }
+        }
+    }
+
+    @Test
+    public void unsupportedVersion_failsWithProtocolException() throws IOException {
+        final Buffer encoded = new Buffer().write(HeartbeatCodec.encodeResult(
+                HeartbeatCodecSamples.result(true, true, true)));
+        // 首字节为版本号，改为2
+        encoded.readByte();
+        final Buffer version2 = new Buffer();
+        version2.writeByte(2);
+        version2.writeAll(encoded);
+        try {
+            HeartbeatCodec.decodeResult(version2);
+            fail();
+        } catch (ProtocolException expected) {
+            assertEquals("unsupported heartbeat codec version: 2", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void malformedVarint_failsWithProtocolException() throws IOException {
+        final Buffer buffer = new Buffer();
+        for (int i = 0; i < 10; i++) {
+            buffer.writeByte(0xFF);
+        }
+        try {
+            decodeResult(buffer.readByteString());
+            fail();
+        } catch (ProtocolException expected) {
+            assertEquals("malformed varint", expected.getMessage());
+        }
+    }
+
+    @Test
+    public void binarySmallerThanJson() {
+        final HeartBeatRequest request = HeartbeatCodecSamples.request();
+        final HeartBeatResult2 result = HeartbeatCodecSamples.result(true, true, true);
+
+        final int requestJson = ByteString.encodeUtf8(GsonUtils.getGson().toJson(request)).size();
+        final int resultJson = ByteString.encodeUtf8(GsonUtils.getGson().toJson(result)).size();
+
+        // 字段名不再传输，请求、响应均不超过Json的一半
+        assertTrue(HeartbeatCodec.encodeRequest(request).size() * 2 < requestJson);
+        assertTrue(HeartbeatCodec.encodeResult(result).size() * 2 < resultJson);
+    }
+
+    @Test
+    public void negotiation_onlyV2UsesBinary() throws Exception {
+        final MockWebServer server = new MockWebServer();
+        server.start();
+        try {
+            final CallService service = new Retrofit.Builder()
+                    .baseUrl(server.url("/"))
+                    .client(new OkHttpClient())
+                    .addCallAdapterFactory(RxJava2CallAdapterFactory.create())
+                    .addConverterFactory(HeartbeatConverterFactory.create())
+                    .addConverterFactory(GsonConverterFactory.create(GsonUtils.getGson()))
+                    .build()
+                    .create(CallService.class);
+            final HeartBeatRequest request = HeartbeatCodecSamples.request();
+            final HeartBeatResult2 expected = HeartbeatCodecSamples.result(true, true, true);
+
+            // v1 始终为Json
+            server.enqueue(new MockResponse().setBody("{\"code\":1,\"msg\":\"ok\",\"data\":5}"));
+            final HeartBeatResult v1 = service.heartbeat(request).blockingFirst();
+            final RecordedRequest v1Request = server.takeRequest();
+            assertTrue(v1Request.getHeader("Content-Type").startsWith("application/json"));
+            assertEquals(mGson.toJson(request), v1Request.getBody().readUtf8());
+            assertEquals(5, v1.getData());
+
+            // v2 发送二进制，按响应的 Content-Type 解析
+            server.enqueue(new MockResponse()
+                    .setHeader("Content-Type", HeartbeatCodec.MEDIA_TYPE.toString())
+                    .setBody(new Buffer().write(HeartbeatCodec.encodeResult(expected))));
+            final HeartBeatResult2 v2 = service.heartbeatV2(request).blockingFirst();
+            final RecordedRequest v2Request = server.takeRequest();
+            assertEquals(HeartbeatCodec.MEDIA_TYPE.toString(), v2Request.getHeader("Content-Type"));
+            assertEquals(mGson.toJson(request), mGson.toJson(decodeRequest(v2Request.getBody().readByteString())));
+            assertEquals(mGson.toJson(expected), mGson.toJson(v2));
+
+            // 服务端仍返回Json时照常解析
+            server.enqueue(new MockResponse().setBody(mGson.toJson(expected)));
+            assertEquals(mGson.toJson(expected), mGson.toJson(service.heartbeatV2(request).blockingFirst()));
+        } finally {
+            server.shutdown();
+        }
+    }
+
+    private static HeartBeatRequest decodeRequest(ByteString bytes) throws IOException {
+        return HeartbeatCodec.decodeRequest(new Buffer().write(bytes));
+    }
+
+    private static HeartBeatResult2 decodeResult(ByteString bytes) throws IOException {
+        return HeartbeatCodec.decodeResult(new Buffer().write(bytes));
+    }
+}
@@ -0,0 +1,160 @@
+package com.basetools.net.core;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.subjects.PublishSubject;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CircuitBreaker} 打开、半开探测及恢复
+ */
+public class CircuitBreakerTest {
+
+    private long mNanoTime;
+    private CircuitBreaker mBreaker;
+
+    @Before
+    public void setUp() {
+        mNanoTime = 0;
+        mBreaker = new CircuitBreaker("test", () -> mNanoTime);
+    }
+
+    @Test
+    public void closed_opensAfterFailureRate() {
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS - 1; i++) {
+            fail();
+        }
+        // 样本不足时不打开，第 MIN_CALLS 个请求后失败率超过阈值
+        assertTrue(passes());
+
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+    }
+
+    @Test
+    public void closed_opensAfterSlowCalls() {
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++) {
+            mBreaker.protect(Observable.defer(() -> {
+                advance(CircuitBreaker.SLOW_CALL_MILLIS + 1);
+                return Observable.just(1);
+            })).test().assertValue(1);
+        }
+
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+    }
+
+    @Test
+    public void open_rejectsUntilDurationElapsed() {
+        open();
+
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS - 1);
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+        advance(1);
+        assertTrue(passes());
+    }
+
+    @Test
+    public void halfOpen_allowsSingleProbe() {
+        open();
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS);
+
+        final PublishSubject<Integer> probe = PublishSubject.create();
+        final TestObserver<Integer> probeObserver = mBreaker.protect(probe).test();
+        // 探测未完成时其他请求直接失败
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+        assertTrue(probe.hasObservers());
+
+        probe.onNext(1);
+        probe.onComplete();
+
+        probeObserver.assertValue(1);
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++) {
+            assertTrue(passes());
+        }
+    }
+
+    @Test
+    public void halfOpen_failedProbeReopens() {
+        open();
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS);
+
+        fail();
+
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS - 1);
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+        advance(1);
+        assertTrue(passes());
+    }
+
+    @Test
+    public void halfOpen_slowProbeReopens() {
+        open();
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS);
+
+        mBreaker.protect(Observable.defer(() -> {
+            advance(CircuitBreaker.SLOW_CALL_MILLIS + 1);
+            return Observable.just(1);
+        })).test().assertValue(1);
+
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+    }
+
+    @Test
+    public void halfOpen_cancelledProbeAllowsNextProbe() {
+        open();
+        advance(CircuitBreaker.OPEN_DURATION_MILLIS);
+
+        final TestObserver<Integer> cancelled = mBreaker.protect(PublishSubject.<Integer>create()).test();
+        assertRejected(mBreaker.protect(Observable.just(1)).test());
+        cancelled.dispose();
+
+        assertTrue(passes());
+    }
+
+    @Test
+    public void clientErrorsDoNotOpen() {
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS * 2; i++) {
+            mBreaker.protect(Observable.<Integer>error(new ApiException(1001, "business"))).test()
+                    .assertError(ApiException.class);
+        }
+
+        assertTrue(passes());
+    }
+
+    private void open() {
+        for (int i = 0; i < CircuitBreaker.MIN_CALLS; i++) {
+            fail();
+        }
+        assertFalse(passes());
+    }
+
+    private void fail() {
+        mBreaker.protect(Observable.<Integer>error(new IOException("reset"))).test();
+    }
+
+    /**
+     * 发出一个成功的请求
+     *
+     * @return 请求被放行 true
+     */
+    private boolean passes() {
+        final TestObserver<Integer> observer = mBreaker.protect(Observable.just(1)).test();
+        return observer.values().size() == 1;
+    }
+
+    private void advance(long millis) {
+        mNanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static void assertRejected(TestObserver<Integer> observer) {
+        observer.assertNoValues();
+        observer.assertError(e -> e instanceof ApiException
+                && ((ApiException) e).getCode() == ApiException.CODE_CIRCUIT_OPEN);
+    }
+}
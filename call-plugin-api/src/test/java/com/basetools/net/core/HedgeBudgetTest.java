@@ -0,0 +1,55 @@
+package com.basetools.net.core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link HedgeBudget} 令牌的存入、消耗及上限
+ */
+public class HedgeBudgetTest {
+
+    @Test
+    public void empty_rejects() {
+        assertFalse(new HedgeBudget(0.5).tryAcquire());
+    }
+
+    @Test
+    public void hedgesLimitedToRatio() {
+        final HedgeBudget budget = new HedgeBudget(0.25);
+        int hedges = 0;
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+            if (budget.tryAcquire()) {
+                hedges++;
+            }
+        }
+
+        assertEquals(25, hedges);
+    }
+
+    @Test
+    public void tokensCappedAfterIdleBurst() {
+        final HedgeBudget budget = new HedgeBudget(1);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(budget.tryAcquire());
+        }
+        assertFalse(budget.tryAcquire());
+    }
+
+    @Test
+    public void zeroRatio_neverHedges() {
+        final HedgeBudget budget = new HedgeBudget(0);
+        for (int i = 0; i < 100; i++) {
+            budget.onRequest();
+        }
+
+        assertFalse(budget.tryAcquire());
+    }
+}
@@ -0,0 +1,228 @@
+package com.basetools.net.dns;
+
+import com.basetools.TestCallKit;
+import com.basetools.net.config.CallConfig;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * {@link CachingDns} 缓存、后台刷新、旧结果兜底及IPv4/IPv6排序
+ */
+public class CachingDnsTest {
+
+    private static final String HOST = "api.example.test";
+
+    private FakeDns mUpstream;
+    private ManualExecutor mExecutor;
+    private long mNanoTime;
+    private CachingDns mDns;
+
+    @Before
+    public void setUp() {
+        TestCallKit.setConfig(new CallConfig.Builder("https://" + HOST + "/", "token", "{}", false)
+                .setDnsCacheEnable(true)
+                .build());
+        mUpstream = new FakeDns();
+        mExecutor = new ManualExecutor();
+        mNanoTime = 0;
+        mDns = new CachingDns(mUpstream, mExecutor, () -> mNanoTime);
+    }
+
+    @After
+    public void tearDown() {
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void lookup_cacheHit() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv4(1));
+
+        final List<InetAddress> first = mDns.lookup(HOST);
+        advance(CachingDns.REFRESH_AFTER_MILLIS - 1);
+        final List<InetAddress> second = mDns.lookup(HOST);
+
+        assertEquals(Arrays.asList(ipv4(1)), first);
+        assertSame(first, second);
+        assertEquals(1, mUpstream.lookups);
+        assertEquals(0, mExecutor.pending());
+    }
+
+    @Test
+    public void lookup_refreshesInBackgroundAfterRefreshAfter() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv4(1));
+        mDns.lookup(HOST);
+
+        advance(CachingDns.REFRESH_AFTER_MILLIS);
+        mUpstream.addresses = Arrays.asList(ipv4(2));
+        // 刷新完成前继续返回旧结果，重复命中只刷新一次
+        assertEquals(Arrays.asList(ipv4(1)), mDns.lookup(HOST));
+        assertEquals(Arrays.asList(ipv4(1)), mDns.lookup(HOST));
+        assertEquals(1, mExecutor.pending());
+        assertEquals(1, mUpstream.lookups);
+
+        mExecutor.runAll();
+
+        assertEquals(2, mUpstream.lookups);
+        assertEquals(Arrays.asList(ipv4(2)), mDns.lookup(HOST));
+        assertEquals(0, mExecutor.pending());
+    }
+
+    @Test
+    public void lookup_servesStaleWhenRefreshFails() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv4(1));
+        mDns.lookup(HOST);
+
+        advance(CachingDns.REFRESH_AFTER_MILLIS);
+        mUpstream.addresses = null;
+        assertEquals(Arrays.asList(ipv4(1)), mDns.lookup(HOST));
+        mExecutor.runAll();
+
+        // 刷新失败保留旧结果，下次命中再次刷新
+        assertEquals(Arrays.asList(ipv4(1)), mDns.lookup(HOST));
+        assertEquals(1, mExecutor.pending());
+        mExecutor.runAll();
+        assertEquals(3, mUpstream.lookups);
+
+        // 超过最长使用时长后同步解析，失败时抛出
+        advance(CachingDns.MAX_STALE_MILLIS);
+        try {
+            mDns.lookup(HOST);
+            fail();
+        } catch (UnknownHostException expected) {
+            assertEquals(4, mUpstream.lookups);
+        }
+    }
+
+    @Test
+    public void clear_resolvesAgain() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv4(1));
+        mDns.lookup(HOST);
+
+        mDns.clear();
+        mUpstream.addresses = Arrays.asList(ipv4(2));
+
+        assertEquals(Arrays.asList(ipv4(2)), mDns.lookup(HOST));
+        assertEquals(2, mUpstream.lookups);
+    }
+
+    @Test
+    public void lookup_interleavesFamiliesIpv4First() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv6(1), ipv6(2), ipv6(3), ipv4(1), ipv4(2));
+
+        assertEquals(Arrays.asList(ipv4(1), ipv6(1), ipv4(2), ipv6(2), ipv6(3)), mDns.lookup(HOST));
+        // 两种协议族都有时后台比较连接速度
+        assertEquals(1, mExecutor.pending());
+    }
+
+    @Test
+    public void lookup_singleFamilyKeepsOrderWithoutRace() throws Exception {
+        mUpstream.addresses = Arrays.asList(ipv6(2), ipv6(1));
+
+        assertEquals(Arrays.asList(ipv6(2), ipv6(1)), mDns.lookup(HOST));
+        assertEquals(0, mExecutor.pending());
+    }
+
+    @Test
+    public void prefetch_putsFirstConnectedFamilyFirst() throws Exception {
+        final InetAddress loopback6 = InetAddress.getByName("::1");
+        final ServerSocket server = new ServerSocket();
+        try {
+            server.bind(new InetSocketAddress(loopback6, 0));
+        } catch (IOException e) {
+            server.close();
+            assumeTrue("IPv6 loopback unavailable", false);
+        }
+        try {
+            // 只有IPv6可连
+            final InetAddress loopback4 = InetAddress.getByName("127.0.0.1");
+            mUpstream.addresses = Arrays.asList(loopback4, ipv4(2), loopback6);
+
+            mDns.prefetch(HttpUrl.get("https://" + HOST + ":" + server.getLocalPort() + "/"));
+            mExecutor.runAll();
+
+            assertEquals(Arrays.asList(loopback6, loopback4, ipv4(2)), mDns.lookup(HOST));
+            assertEquals(1, mUpstream.lookups);
+
+            // 刷新结果沿用比较结果
+            advance(CachingDns.REFRESH_AFTER_MILLIS);
+            mDns.lookup(HOST);
+            mExecutor.runAll();
+            assertEquals(Arrays.asList(loopback6, loopback4, ipv4(2)), mDns.lookup(HOST));
+
+            // 网络切换后重新比较，尚未比较出结果时IPv4优先
+            mDns.clear();
+            assertEquals(Arrays.asList(loopback4, loopback6, ipv4(2)), mDns.lookup(HOST));
+        } finally {
+            server.close();
+        }
+    }
+
+    private void advance(long millis) {
+        mNanoTime += TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    private static InetAddress ipv4(int last) throws UnknownHostException {
+        return InetAddress.getByAddress(HOST, new byte[]{10, 0, 0, (byte) last});
+    }
+
+    private static InetAddress ipv6(int last) throws UnknownHostException {
+        final byte[] address = new byte[16];
+        address[0] = (byte) 0xfd;
+        address[15] = (byte) last;
+        return InetAddress.getByAddress(HOST, address);
+    }
+
+    private static final class FakeDns implements Dns {
+        /**
+         * 为null时解析失败
+         */
+        List<InetAddress> addresses;
+        int lookups;
+
+        @Override
+        public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+            lookups++;
+            if (addresses == null) {
+                throw new UnknownHostException(hostname);
+            }
+            return addresses;
+        }
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final List<Runnable> mTasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            mTasks.add(command);
+        }
+
+        int pending() {
+            return mTasks.size();
+        }
+
+        void runAll() {
+            while (!mTasks.isEmpty()) {
+                mTasks.remove(0).run();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.basetools.net.gift;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GiftAssetCache} 超过上限时按最近最少使用淘汰，进程重启后按修改时间恢复访问顺序
+ */
+public class GiftAssetCacheTest {
+
+    private static final String URL_A = "https://cdn.example.test/gift/a.svga";
+    private static final String URL_B = "https://cdn.example.test/gift/b.svga";
+    private static final String URL_C = "https://cdn.example.test/gift/c.png";
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void commit_trimsLeastRecentlyUsed() throws IOException {
+        final GiftAssetCache cache = new GiftAssetCache(mFolder.newFolder(), 10);
+        final File a = put(cache, URL_A, 4);
+        final File b = put(cache, URL_B, 4);
+
+        // 访问A后B成为最久未使用
+        assertEquals(a, cache.get(URL_A));
+        put(cache, URL_C, 4);
+
+        assertNotNull(cache.get(URL_A));
+        assertNull(cache.get(URL_B));
+        assertNotNull(cache.get(URL_C));
+        assertFalse(b.exists());
+    }
+
+    @Test
+    public void commit_trimsUntilUnderLimit() throws IOException {
+        final GiftAssetCache cache = new GiftAssetCache(mFolder.newFolder(), 10);
+        put(cache, URL_A, 3);
+        put(cache, URL_B, 3);
+
+        final File c = put(cache, URL_C, 9);
+
+        assertNull(cache.get(URL_A));
+        assertNull(cache.get(URL_B));
+        assertEquals(c, cache.get(URL_C));
+    }
+
+    @Test
+    public void commit_rejectsFileLargerThanLimit() throws IOException {
+        final GiftAssetCache cache = new GiftAssetCache(mFolder.newFolder(), 10);
+        put(cache, URL_A, 4);
+
+        final File temp = cache.newTempFile(URL_B);
+        write(temp, 11);
+
+        assertNull(cache.commit(URL_B, temp));
+        assertFalse(temp.exists());
+        assertNotNull(cache.get(URL_A));
+    }
+
+    @Test
+    public void recommit_replacesSize() throws IOException {
+        final GiftAssetCache cache = new GiftAssetCache(mFolder.newFolder(), 10);
+        put(cache, URL_A, 6);
+        put(cache, URL_A, 2);
+
+        // 重新下载的文件只计新的大小，8 字节仍可放下
+        put(cache, URL_B, 8);
+
+        assertNotNull(cache.get(URL_A));
+        assertNotNull(cache.get(URL_B));
+    }
+
+    @Test
+    public void reload_restoresOrderFromModifiedTime() throws IOException {
+        final File dir = mFolder.newFolder();
+        final GiftAssetCache first = new GiftAssetCache(dir, 100);
+        final File a = put(first, URL_A, 4);
+        final File b = put(first, URL_B, 4);
+        final File c = put(first, URL_C, 4);
+        final long now = System.currentTimeMillis();
+        // 访问顺序 B、C、A
+        assertTrue(b.setLastModified(now - 30_000));
+        assertTrue(c.setLastModified(now - 20_000));
+        assertTrue(a.setLastModified(now - 10_000));
+        final File unfinished = new File(dir, "unfinished.tmp");
+        write(unfinished, 1);
+
+        // 重启后上限变小，加载时淘汰最久未使用的B
+        final GiftAssetCache second = new GiftAssetCache(dir, 8);
+
+        assertNull(second.get(URL_B));
+        assertFalse(b.exists());
+        assertFalse(unfinished.exists());
+        assertNotNull(second.get(URL_C));
+        assertNotNull(second.get(URL_A));
+    }
+
+    @Test
+    public void get_forgetsFileDeletedBySystem() throws IOException {
+        final GiftAssetCache cache = new GiftAssetCache(mFolder.newFolder(), 10);
+        final File a = put(cache, URL_A, 6);
+        assertTrue(a.delete());
+
+        assertNull(cache.get(URL_A));
+        assertNull(cache.get(URL_A));
+        put(cache, URL_B, 6);
+        assertNotNull(cache.get(URL_B));
+    }
+
+    private static File put(GiftAssetCache cache, String url, int bytes) throws IOException {
+        final File temp = cache.newTempFile(url);
+        write(temp, bytes);
+        final File file = cache.commit(url, temp);
+        assertNotNull(file);
+        return file;
+    }
+
+    private static void write(File file, int bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[bytes]);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.basetools.net.gift;
+
+import com.basetools.model.Gift;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GiftIndex} 按价格、类型及名称前缀查询，以及查询结果为副本
+ */
+public class GiftIndexTest {
+
+    @Test
+    public void queries_returnCopies() {
+        final List<Gift> gifts = Arrays.asList(gift("1", "Rose", 10, 1), gift("2", "Ring", 20, 2));
+        final GiftIndex index = new GiftIndex(Collections.unmodifiableList(gifts));
+
+        final Gift found = index.get("1");
+        found.setSelected(true);
+        found.setPrice(0);
+        index.getByPrice(0, 100).get(1).setGiftName("changed");
+        index.getByType(1).get(0).setSvgaUrl("changed");
+        index.search("ri").get(0).setEnglish("changed");
+        index.getGifts().get(0).setGiftType(9);
+
+        assertNotSame(gifts.get(0), found);
+        assertFalse(index.get("1").isSelected());
+        assertEquals(10, index.get("1").getPrice());
+        assertEquals("Ring", index.get("2").getGiftName());
+        assertNull(index.get("1").getSvgaUrl());
+        assertNull(index.get("2").getEnglish());
+        assertEquals(Arrays.asList(gifts.get(0)), index.getByType(1));
+        // 目录中的礼物保持不变
+        assertFalse(gifts.get(0).isSelected());
+        assertEquals(10, gifts.get(0).getPrice());
+    }
+
+    @Test
+    public void getByPrice_boundsInclusiveAndStable() {
+        final GiftIndex index = new GiftIndex(Arrays.asList(gift("a", null, 30, 1), gift("b", null, 10, 1),
+                gift("c", null, 20, 1), gift("d", null, 10, 1), gift("e", null, 30, 1), gift("f", null, 0, 1)));
+
+        assertEquals(Arrays.asList("b", "d", "c"), ids(index.getByPrice(10, 20)));
+        assertEquals(Arrays.asList("b", "d", "c"), ids(index.getByPrice(5, 25)));
+        assertEquals(Arrays.asList("c", "a", "e"), ids(index.getByPrice(11, Integer.MAX_VALUE)));
+        assertEquals(Arrays.asList("f", "b", "d", "c", "a", "e"),
+                ids(index.getByPrice(Integer.MIN_VALUE, Integer.MAX_VALUE)));
+        assertEquals(Arrays.asList("a", "e"), ids(index.getByPrice(30, 30)));
+        assertEquals(Arrays.asList("f", "b", "d"), ids(index.getAffordable(19)));
+        assertTrue(index.getByPrice(11, 19).isEmpty());
+        assertTrue(index.getByPrice(31, 100).isEmpty());
+        assertTrue(index.getByPrice(20, 10).isEmpty());
+        assertTrue(index.getAffordable(-1).isEmpty());
+        assertTrue(GiftIndex.EMPTY.getByPrice(0, 100).isEmpty());
+    }
+
+    @Test
+    public void getByType_catalogOrder() {
+        final GiftIndex index = new GiftIndex(Arrays.asList(gift("a", null, 30, 2), gift("b", null, 10, 1),
+                gift("c", null, 20, 2)));
+
+        assertEquals(Arrays.asList("a", "c"), ids(index.getByType(2)));
+        assertEquals(Arrays.asList("b"), ids(index.getByType(1)));
+        assertTrue(index.getByType(3).isEmpty());
+    }
+
+    @Test
+    public void search_prefixOfAnyName() {
+        final Gift rose = gift("1", "Rose", 10, 1);
+        rose.setEnglish("Red Rose");
+        rose.setTaditional("玫瑰");
+        final Gift ring = gift("2", "Ring", 20, 1);
+        ring.setEnglish("ring");
+        final Gift car = gift("3", "Sports Car", 30, 1);
+        car.setEnglish("Racer");
+        final GiftIndex index = new GiftIndex(Arrays.asList(rose, ring, car, gift("4", null, 0, 1)));
+
+        // 按目录顺序，同一礼物的多个名称匹配时只出现一次
+        assertEquals(Arrays.asList("1", "2", "3"), ids(index.search("r")));
+        assertEquals(Arrays.asList("1", "2", "3"), ids(index.search(" R ")));
+        assertEquals(Arrays.asList("1"), ids(index.search("ROSE")));
+        assertEquals(Arrays.asList("1"), ids(index.search("red")));
+        assertEquals(Arrays.asList("1"), ids(index.search("玫")));
+        assertEquals(Arrays.asList("2"), ids(index.search("ring")));
+        assertEquals(Arrays.asList("3"), ids(index.search("sports c")));
+        // 只匹配前缀
+        assertTrue(index.search("car").isEmpty());
+        assertTrue(index.search("rings").isEmpty());
+        assertTrue(index.search("zz").isEmpty());
+        assertTrue(index.search("").isEmpty());
+        assertTrue(index.search("  ").isEmpty());
+        assertTrue(index.search(null).isEmpty());
+    }
+
+    private static List<String> ids(List<Gift> gifts) {
+        final List<String> ids = new ArrayList<>(gifts.size());
+        for (Gift gift : gifts) {
+            ids.add(gift.getGiftId());
+        }
+        return ids;
+    }
+
+    private static Gift gift(String giftId, String giftName, int price, int giftType) {
+        final Gift gift = new Gift(giftId);
+        gift.setGiftName(giftName);
+        gift.setPrice(price);
+        gift.setGiftType(giftType);
+        return gift;
+    }
+}
@@ -0,0 +1,172 @@
+package com.basetools.net.gift;
+
+import com.basetools.model.Gift;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link GiftSnapshotFile} 写入与映射读取、损坏文件的校验、只更新 lastTime，以及从映射记录建立 {@link GiftIndex}
+ */
+public class GiftSnapshotFileTest {
+
+    private static final int HEADER_SIZE = 24;
+
+    @Rule
+    public final TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void writeThenOpen_roundTrip() throws IOException {
+        final File file = mFolder.newFile();
+        final List<Gift> gifts = Arrays.asList(gift("1", "Rose", 10, 1), gift("2", null, 0, 2),
+                gift("3", "Rose", 5, 1));
+        gifts.get(0).setSvgaUrl("https://cdn.example.test/rose.svga");
+        gifts.get(1).setEnglish("中文 😀");
+
+        GiftSnapshotFile.write(file, 42, gifts);
+        final GiftSnapshotFile.Mapped mapped = GiftSnapshotFile.open(file);
+
+        assertEquals(42, mapped.getLastTime());
+        assertEquals(3, mapped.size());
+        for (int i = 0; i < gifts.size(); i++) {
+            assertSameGift(gifts.get(i), mapped.get(i));
+        }
+        assertSame(mapped.get(0), mapped.get(0));
+        assertSame(mapped.get(2), mapped.find("3"));
+        assertNull(mapped.find("4"));
+    }
+
+    @Test
+    public void patchLastTime_onlyRewritesHeader() throws IOException {
+        final File file = mFolder.newFile();
+        GiftSnapshotFile.write(file, 42, Arrays.asList(gift("1", "Rose", 10, 1)));
+        final long length = file.length();
+
+        assertTrue(GiftSnapshotFile.patchLastTime(file, 42, 43));
+
+        final GiftSnapshotFile.Mapped mapped = GiftSnapshotFile.open(file);
+        assertEquals(43, mapped.getLastTime());
+        assertEquals(length, file.length());
+        assertSameGift(gift("1", "Rose", 10, 1), mapped.get(0));
+    }
+
+    @Test
+    public void patchLastTime_mismatchNeedsFullWrite() throws IOException {
+        final File file = mFolder.newFile();
+        GiftSnapshotFile.write(file, 42, Arrays.asList(gift("1", "Rose", 10, 1)));
+
+        // 文件中的 lastTime 不是预期的（上次保存失败），不能只改文件头
+        assertFalse(GiftSnapshotFile.patchLastTime(file, 41, 43));
+        assertEquals(42, GiftSnapshotFile.open(file).getLastTime());
+        assertFalse(GiftSnapshotFile.patchLastTime(new File(mFolder.getRoot(), "missing"), 0, 43));
+    }
+
+    @Test
+    public void open_rejectsStringOffsetOutsideFile() throws IOException {
+        final File file = mFolder.newFile();
+        GiftSnapshotFile.write(file, 42, Arrays.asList(gift("1", "Rose", 10, 1)));
+        // 第一条记录的 giftName 偏移
+        overwriteInt(file, HEADER_SIZE + 4, Integer.MAX_VALUE - 8);
+
+        assertOpenFails(file);
+        overwriteInt(file, HEADER_SIZE + 4, -2);
+        assertOpenFails(file);
+    }
+
+    @Test
+    public void open_rejectsStringLengthOutsideFile() throws IOException {
+        final File file = mFolder.newFile();
+        GiftSnapshotFile.write(file, 42, Arrays.asList(gift("1", "Rose", 10, 1)));
+        final int stringsOffset = HEADER_SIZE + GiftSnapshotFile.RECORD_SIZE;
+        // 字符串表中的第一个字符串（giftId）
+        overwriteInt(file, stringsOffset, 1 << 20);
+
+        assertOpenFails(file);
+        overwriteInt(file, stringsOffset, -1);
+        assertOpenFails(file);
+    }
+
+    @Test
+    public void index_fromMappedRecordsCreatesNoGifts() throws Exception {
+        final File file = mFolder.newFile();
+        final List<Gift> gifts = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            gifts.add(gift(String.valueOf(i), "gift " + i, (i * 7) % 10, i % 3));
+        }
+        GiftSnapshotFile.write(file, 1, gifts);
+        final GiftSnapshotFile.Mapped mapped = GiftSnapshotFile.open(file);
+
+        final GiftIndex index = new GiftIndex(mapped);
+
+        assertEquals(0, createdGifts(mapped));
+        final GiftIndex expected = new GiftIndex(gifts);
+        assertEquals(expected.getByPrice(3, 6), index.getByPrice(3, 6));
+        assertEquals(expected.getByType(2), index.getByType(2));
+        assertEquals(expected.search("gift 1"), index.search("gift 1"));
+        assertEquals(mapped.get(5), index.get("5"));
+    }
+
+    private static void overwriteInt(File file, long position, int value) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            raf.writeInt(value);
+        }
+    }
+
+    private static void assertOpenFails(File file) {
+        try {
+            GiftSnapshotFile.open(file);
+            fail("corrupted snapshot opened");
+        } catch (IOException expected) {
+            // 损坏的快照在打开时失败，由目录重新全量同步
+        }
+    }
+
+    private static int createdGifts(GiftSnapshotFile.Mapped mapped) throws Exception {
+        final Field field = GiftSnapshotFile.Mapped.class.getDeclaredField("mGifts");
+        field.setAccessible(true);
+        final AtomicReferenceArray<?> gifts = (AtomicReferenceArray<?>) field.get(mapped);
+        int created = 0;
+        for (int i = 0; i < gifts.length(); i++) {
+            if (gifts.get(i) != null) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    private static Gift gift(String giftId, String giftName, int price, int giftType) {
+        final Gift gift = new Gift(giftId);
+        gift.setGiftName(giftName);
+        gift.setPrice(price);
+        gift.setGiftType(giftType);
+        return gift;
+    }
+
+    private static void assertSameGift(Gift expected, Gift actual) {
+        assertEquals(expected.getGiftId(), actual.getGiftId());
+        assertEquals(expected.getGiftName(), actual.getGiftName());
+        assertEquals(expected.getGiftDesc(), actual.getGiftDesc());
+        assertEquals(expected.getGiftUrl(), actual.getGiftUrl());
+        assertEquals(expected.getEnglish(), actual.getEnglish());
+        assertEquals(expected.getTaditional(), actual.getTaditional());
+        assertEquals(expected.getSvgaUrl(), actual.getSvgaUrl());
+        assertEquals(expected.getGiftType(), actual.getGiftType());
+        assertEquals(expected.getPrice(), actual.getPrice());
+    }
+}
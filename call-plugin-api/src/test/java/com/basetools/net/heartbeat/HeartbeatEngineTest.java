@@ -0,0 +1,420 @@
+package com.basetools.net.heartbeat;
+
+import com.basetools.TestCallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.schedulers.Schedulers;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link HeartbeatEngine} 使用假时钟验证：不漂移的定时、同一频道单个请求、宽限期重试、放弃回调的线程及多房间合并
+ */
+public class HeartbeatEngineTest {
+
+    private static final long INTERVAL = 20_000;
+    private static final String MAIN_THREAD = "test-main";
+
+    private static ExecutorService sMain;
+
+    private FakeClock mClock;
+    private HeartbeatEngine mEngine;
+
+    @BeforeClass
+    public static void setUpClass() {
+        sMain = Executors.newSingleThreadExecutor(r -> new Thread(r, MAIN_THREAD));
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+        RxAndroidPlugins.setMainThreadSchedulerHandler(scheduler -> Schedulers.from(sMain));
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        RxAndroidPlugins.setMainThreadSchedulerHandler(null);
+        sMain.shutdown();
+    }
+
+    @Before
+    public void setUp() {
+        setMultiRoom(false);
+        mClock = new FakeClock();
+        mEngine = new HeartbeatEngine(mClock);
+    }
+
+    @After
+    public void tearDown() {
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void fixedInterval_firesImmediatelyThenOnSchedule() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+
+        mClock.advance(0);
+        beat.succeed(0);
+        mClock.advance(INTERVAL - 1);
+        assertEquals(Arrays.asList(0L), beat.sentAt);
+
+        mClock.advance(1);
+        assertEquals(Arrays.asList(0L, INTERVAL), beat.sentAt);
+    }
+
+    @Test
+    public void slowResponse_doesNotDriftAndSkipsMissedBeats() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+        mClock.advance(0);
+
+        // 请求耗时超过两个间隔，错过的心跳不补发，仍按计划时间对齐
+        mClock.advance(45_000);
+        beat.succeed(0);
+        mClock.advance(14_999);
+        assertEquals(Arrays.asList(0L), beat.sentAt);
+        mClock.advance(1);
+        assertEquals(Arrays.asList(0L, 60_000L), beat.sentAt);
+    }
+
+    @Test
+    public void noFixedInterval_usesResultDelayFromResponseTime() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", beat);
+        mClock.advance(0);
+
+        mClock.advance(1_000);
+        beat.succeed(45_000);
+        mClock.advance(45_000);
+
+        assertEquals(Arrays.asList(0L, 46_000L), beat.sentAt);
+    }
+
+    @Test
+    public void noFixedIntervalOrHint_usesBillingPeriod() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", beat);
+        mClock.advance(0);
+
+        beat.succeed(0);
+        mClock.advance(HeartbeatIntervalPolicy.BILLING_PERIOD_MILLIS);
+
+        assertEquals(Arrays.asList(0L, HeartbeatIntervalPolicy.BILLING_PERIOD_MILLIS), beat.sentAt);
+    }
+
+    @Test
+    public void restartWhileInFlight_waitsThenFiresOnce() {
+        final FakeBeat first = new FakeBeat();
+        final FakeBeat second = new FakeBeat();
+        mEngine.start("a", INTERVAL, first);
+        mClock.advance(0);
+
+        mClock.advance(3_000);
+        mEngine.start("a", INTERVAL, second);
+        mClock.advance(1_000);
+        assertTrue(second.sentAt.isEmpty());
+
+        // 上一次请求完成后立即发出新的请求内容，旧结果不安排下一次
+        first.succeed(0);
+        mClock.advance(0);
+        assertEquals(Arrays.asList(0L), first.sentAt);
+        assertEquals(Arrays.asList(4_000L), second.sentAt);
+        assertEquals(0, mClock.pendingCount());
+        second.succeed(0);
+        assertEquals(1, mClock.pendingCount());
+    }
+
+    @Test
+    public void transientFailure_retriesWithinGraceThenGivesUpOnMainThread() throws Exception {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+
+        mClock.advance(0);
+        for (int i = 0; i < 10 && mEngine.isRunning("a"); i++) {
+            beat.fail(new IOException("timeout"));
+            mClock.advanceToNext();
+        }
+
+        assertTrue(beat.giveUp.await(5, TimeUnit.SECONDS));
+        // 退避2s、4s、8s封顶，距首次失败的计划时间满30s后放弃
+        assertEquals(Arrays.asList(0L, 2_000L, 6_000L, 14_000L, 22_000L, 30_000L), beat.sentAt);
+        assertEquals(MAIN_THREAD, beat.giveUpThread);
+        assertFalse(mEngine.isRunning("a"));
+    }
+
+    @Test
+    public void rejected_givesUpWithoutRetry() throws Exception {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+        mClock.advance(0);
+
+        beat.fail(new ApiException(ApiException.BUSINESS_CODE_ROOM_NOT_EXIST_ERROR, "room closed"), "room closed");
+
+        assertTrue(beat.giveUp.await(5, TimeUnit.SECONDS));
+        assertEquals(MAIN_THREAD, beat.giveUpThread);
+        assertEquals("room closed", beat.giveUpMsg);
+        mClock.advance(60_000);
+        assertEquals(Arrays.asList(0L), beat.sentAt);
+    }
+
+    @Test
+    public void synchronousException_isRetried() {
+        final FakeBeat beat = new FakeBeat();
+        beat.throwOnSend = new IllegalStateException("not ready");
+        mEngine.start("a", INTERVAL, beat);
+
+        mClock.advance(0);
+        beat.throwOnSend = null;
+        mClock.advance(2_000);
+        beat.succeed(0);
+
+        assertEquals(Arrays.asList(0L, 2_000L), beat.sentAt);
+        assertEquals(1, beat.giveUp.getCount());
+        assertTrue(mEngine.isRunning("a"));
+    }
+
+    @Test
+    public void successResetsGraceWindow() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+        mClock.advance(0);
+
+        beat.fail(new IOException("timeout"));
+        mClock.advance(2_000);
+        beat.succeed(0);
+        // 由重试的计划时间推算下一次；下一次失败重新从最短退避开始
+        mClock.advance(INTERVAL);
+        beat.fail(new IOException("timeout"));
+        mClock.advance(2_000);
+
+        assertEquals(Arrays.asList(0L, 2_000L, 22_000L, 24_000L), beat.sentAt);
+        assertTrue(mEngine.isRunning("a"));
+    }
+
+    @Test
+    public void stop_ignoresInFlightResult() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+        mClock.advance(0);
+
+        mEngine.stop("a");
+        beat.fail(new ApiException(ApiException.CODE_FAILED, "late"), "late");
+        mClock.advance(INTERVAL * 3);
+
+        assertFalse(mEngine.isRunning("a"));
+        assertEquals(Arrays.asList(0L), beat.sentAt);
+        assertEquals(0, mClock.pendingCount());
+        assertEquals(1, beat.giveUp.getCount());
+    }
+
+    @Test
+    public void callback_onlyFirstResultCounts() {
+        final FakeBeat beat = new FakeBeat();
+        mEngine.start("a", INTERVAL, beat);
+        mClock.advance(0);
+
+        final HeartbeatEngine.Callback callback = beat.pending.get(0);
+        callback.onSuccess(0);
+        callback.onFailure(new ApiException(ApiException.CODE_FAILED, "ignored"), "ignored");
+        mClock.advance(INTERVAL);
+
+        assertEquals(Arrays.asList(0L, INTERVAL), beat.sentAt);
+        assertNull(beat.giveUpMsg);
+    }
+
+    @Test
+    public void multiRoom_groupsBeatsDueWithinWindow() {
+        setMultiRoom(true);
+        final FakeBeat a = new FakeBeat();
+        final FakeBeat b = new FakeBeat();
+        mEngine.start("a", INTERVAL, a);
+        mClock.advance(0);
+        a.succeed(0);
+        mClock.advance(5_000);
+        mEngine.start("b", INTERVAL, b);
+        mClock.advance(0);
+        b.succeed(0);
+
+        // a 在20s到期时，25s到期的b一起发出；b 之后仍按自己的计划时间推算
+        mClock.advance(15_000);
+        assertEquals(Arrays.asList(0L, 20_000L), a.sentAt);
+        assertEquals(Arrays.asList(5_000L, 20_000L), b.sentAt);
+        a.succeed(0);
+        b.succeed(0);
+        mClock.advance(20_000);
+        assertEquals(Arrays.asList(0L, 20_000L, 40_000L), a.sentAt);
+        assertEquals(Arrays.asList(5_000L, 20_000L, 40_000L), b.sentAt);
+    }
+
+    @Test
+    public void multiRoom_doesNotGroupOutsideWindow() {
+        setMultiRoom(true);
+        final FakeBeat a = new FakeBeat();
+        final FakeBeat b = new FakeBeat();
+        mEngine.start("a", 30_000, a);
+        mClock.advance(0);
+        a.succeed(0);
+        mClock.advance(12_000);
+        mEngine.start("b", 30_000, b);
+        mClock.advance(0);
+        b.succeed(0);
+
+        mClock.advance(18_000);
+
+        assertEquals(Arrays.asList(0L, 30_000L), a.sentAt);
+        assertEquals(Arrays.asList(12_000L), b.sentAt);
+    }
+
+    @Test
+    public void singleRoom_doesNotGroup() {
+        final FakeBeat a = new FakeBeat();
+        final FakeBeat b = new FakeBeat();
+        mEngine.start("a", INTERVAL, a);
+        mClock.advance(0);
+        a.succeed(0);
+        mClock.advance(5_000);
+        mEngine.start("b", INTERVAL, b);
+        mClock.advance(0);
+        b.succeed(0);
+
+        mClock.advance(15_000);
+
+        assertEquals(Arrays.asList(0L, 20_000L), a.sentAt);
+        assertEquals(Arrays.asList(5_000L), b.sentAt);
+    }
+
+    private static void setMultiRoom(boolean enable) {
+        TestCallKit.setConfig(new CallConfig.Builder("https://api.example.test/", "token", "{}", false)
+                .setMultiRoomHeartbeatEnable(enable)
+                .build());
+    }
+
+    /**
+     * 手动推进的时钟，到期任务在推进时于当前线程执行
+     */
+    private static final class FakeClock implements HeartbeatEngine.Clock {
+
+        private final List<Task> mTasks = new ArrayList<>();
+        private long mNow;
+
+        @Override
+        public long elapsedMillis() {
+            return mNow;
+        }
+
+        @Override
+        public Future<?> schedule(Runnable task, long delayMillis) {
+            final FutureTask<Void> future = new FutureTask<>(task, null);
+            mTasks.add(new Task(mNow + delayMillis, future));
+            return future;
+        }
+
+        /**
+         * 推进时间，按到期先后执行任务（含执行中新安排的任务）
+         */
+        void advance(long millis) {
+            final long target = mNow + millis;
+            while (true) {
+                Task next = null;
+                for (Task task : mTasks) {
+                    if (task.at <= target && (next == null || task.at < next.at)) {
+                        next = task;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                mTasks.remove(next);
+                mNow = Math.max(mNow, next.at);
+                next.future.run();
+            }
+            mNow = target;
+        }
+
+        /**
+         * 推进到下一个任务的到期时间并执行
+         */
+        void advanceToNext() {
+            long next = Long.MAX_VALUE;
+            for (Task task : mTasks) {
+                next = Math.min(next, task.at);
+            }
+            advance(Math.max(0, next - mNow));
+        }
+
+        int pendingCount() {
+            int count = 0;
+            for (Task task : mTasks) {
+                if (!task.future.isCancelled()) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        private static final class Task {
+            final long at;
+            final FutureTask<Void> future;
+
+            Task(long at, FutureTask<Void> future) {
+                this.at = at;
+                this.future = future;
+            }
+        }
+    }
+
+    private final class FakeBeat implements HeartbeatEngine.Beat {
+
+        final List<Long> sentAt = Collections.synchronizedList(new ArrayList<Long>());
+        final List<HeartbeatEngine.Callback> pending = new ArrayList<>();
+        final CountDownLatch giveUp = new CountDownLatch(1);
+        RuntimeException throwOnSend;
+        volatile String giveUpThread;
+        volatile String giveUpMsg;
+
+        @Override
+        public void send(HeartbeatEngine.Callback callback) {
+            sentAt.add(mClock.elapsedMillis());
+            if (throwOnSend != null) {
+                throw throwOnSend;
+            }
+            pending.add(callback);
+        }
+
+        @Override
+        public void onGiveUp(Throwable e, String msg) {
+            giveUpThread = Thread.currentThread().getName();
+            giveUpMsg = msg;
+            giveUp.countDown();
+        }
+
+        void succeed(long nextDelayMillis) {
+            pending.remove(pending.size() - 1).onSuccess(nextDelayMillis);
+        }
+
+        void fail(Throwable e) {
+            fail(e, e.getMessage());
+        }
+
+        void fail(Throwable e, String msg) {
+            pending.remove(pending.size() - 1).onFailure(e, msg);
+        }
+    }
+}
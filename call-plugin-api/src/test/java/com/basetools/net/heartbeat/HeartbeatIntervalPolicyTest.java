@@ -0,0 +1,107 @@
+package com.basetools.net.heartbeat;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link HeartbeatIntervalPolicy} 各场景下的心跳延迟（表驱动）
+ * </br>
+ * 计费从0开始；偏移为0时心跳在计费边界前3秒发出。
+ */
+public class HeartbeatIntervalPolicyTest {
+
+    private static final List<Row> ROWS = Arrays.asList(
+            row("default interval aligns to billing boundary").expect(0, 57_000),
+            row("next boundary after first heartbeat").beat(57_000, 1000, 0).expect(57_000, 60_000),
+            row("jitter moves heartbeat earlier").jitter(0.5).expect(0, 53_500),
+            row("server hint shorter than a minute is not aligned").beat(0, 1000, 20).expect(0, 20_000),
+            row("server hint below minimum").beat(0, 1000, 2).expect(0, 5_000),
+            row("server hint longer than a minute aligns to whole minutes").beat(0, 1000, 120).expect(0, 117_000),
+            row("hint rounds to nearest boundary").beat(0, 1000, 100).expect(0, 117_000),
+            row("balance caps long hint").price(10).beat(0, 35, 180).expect(0, 117_000),
+            row("balance above low line keeps default").price(10).beat(0, 25, 0).expect(0, 57_000),
+            row("low balance polls quickly").price(10).beat(0, 15, 0).expect(0, 10_000),
+            row("low balance ignores server hint").price(10).beat(0, 15, 120).expect(0, 10_000),
+            row("estimated price from balance drop").beat(0, 100, 0).beat(60_000, 90, 0).expect(60_000, 57_000),
+            row("estimated price detects low balance").beat(0, 25, 0).beat(60_000, 15, 0).expect(60_000, 10_000),
+            row("fixed price is not re-estimated").price(1).beat(0, 100, 0).beat(60_000, 40, 0)
+                    .expect(60_000, 57_000),
+            row("estimated price makes the same balance low").beat(0, 100, 0).beat(60_000, 40, 0)
+                    .expect(60_000, 10_000));
+
+    @Test
+    public void nextDelayMillis_table() {
+        for (Row row : ROWS) {
+            final HeartbeatIntervalPolicy policy = new HeartbeatIntervalPolicy(0, new FixedRandom(row.jitter));
+            if (row.price > 0) {
+                policy.setPricePerMinute(row.price);
+            }
+            for (int[] beat : row.beats) {
+                policy.onHeartbeat(beat[0], beat[1], beat[2]);
+            }
+            assertEquals(row.name, row.expected, policy.nextDelayMillis(row.now));
+        }
+    }
+
+    private static Row row(String name) {
+        return new Row(name);
+    }
+
+    private static final class Row {
+        final String name;
+        double jitter;
+        int price;
+        /**
+         * {时间, 余额, 建议间隔（秒）}
+         */
+        int[][] beats = new int[0][];
+        long now;
+        long expected;
+
+        Row(String name) {
+            this.name = name;
+        }
+
+        Row jitter(double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        Row price(int price) {
+            this.price = price;
+            return this;
+        }
+
+        Row beat(int nowMillis, int diamondNum, int nextIntervalSeconds) {
+            beats = Arrays.copyOf(beats, beats.length + 1);
+            beats[beats.length - 1] = new int[]{nowMillis, diamondNum, nextIntervalSeconds};
+            return this;
+        }
+
+        Row expect(long now, long expected) {
+            this.now = now;
+            this.expected = expected;
+            return this;
+        }
+    }
+
+    /**
+     * 固定的随机偏移比例
+     */
+    private static final class FixedRandom extends Random {
+        private final double mValue;
+
+        FixedRandom(double value) {
+            this.mValue = value;
+        }
+
+        @Override
+        public double nextDouble() {
+            return mValue;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.basetools.net.interceptor;
+
+import com.basetools.TestCallKit;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.Endpoint;
+import com.basetools.net.core.NetworkMetrics;
+import com.basetools.net.service.CallService;
+import java.io.IOException;
+import java.util.Random;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import okio.GzipSource;
+import okio.Okio;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link GzipRequestInterceptor} 压缩阈值、服务端协商、415回退，以及压缩与未压缩请求的字节统计
+ */
+public class GzipRequestInterceptorTest {
+
+    private static final int MIN_BYTES = 512;
+    private static final MediaType JSON = MediaType.parse("application/json; charset=UTF-8");
+
+    private MockWebServer mServer;
+    private OkHttpClient mClient;
+    private long mPlainBefore;
+    private long mWireBefore;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        setCompressEnable(true);
+        mClient = new OkHttpClient.Builder().addInterceptor(new GzipRequestInterceptor()).build();
+        mPlainBefore = Endpoint.HEART_BEAT.getRequestBytesPlain();
+        mWireBefore = Endpoint.HEART_BEAT.getRequestBytesWire();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void undeclaredHost_sendsPlainAndCountsTotals() throws Exception {
+        final ByteString body = jsonBody(2_000);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertEquals(body, recorded.getBody().readByteString());
+        assertCounted(body.size(), body.size());
+    }
+
+    @Test
+    public void declaredHost_compressesAtThreshold() throws Exception {
+        declareGzip();
+        final ByteString body = jsonBody(MIN_BYTES);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        final ByteString wire = recorded.getBody().readByteString();
+        assertEquals("gzip", recorded.getHeader("Content-Encoding"));
+        assertEquals(body, gunzip(wire));
+        assertTrue(wire.size() < body.size());
+        assertCounted(body.size(), wire.size());
+    }
+
+    @Test
+    public void belowThreshold_sendsPlainAndCountsTotals() throws Exception {
+        declareGzip();
+        final ByteString body = jsonBody(MIN_BYTES - 1);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertEquals(body.size(), recorded.getBodySize());
+        assertCounted(body.size(), body.size());
+    }
+
+    @Test
+    public void unknownLengthBelowThreshold_sendsPlainAndCountsTotals() throws Exception {
+        declareGzip();
+        final ByteString body = jsonBody(MIN_BYTES - 1);
+
+        post(CallService.HEART_BEAT, streaming(body), new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertEquals(body, recorded.getBody().readByteString());
+        assertCounted(body.size(), body.size());
+    }
+
+    @Test
+    public void unknownLengthAboveThreshold_compresses() throws Exception {
+        declareGzip();
+        final ByteString body = jsonBody(2_000);
+
+        post(CallService.HEART_BEAT, streaming(body), new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        final ByteString wire = recorded.getBody().readByteString();
+        assertEquals("gzip", recorded.getHeader("Content-Encoding"));
+        assertEquals(body, gunzip(wire));
+        assertCounted(body.size(), wire.size());
+    }
+
+    @Test
+    public void incompressible_sendsPlainAndCountsTotals() throws Exception {
+        declareGzip();
+        final byte[] random = new byte[2_000];
+        new Random(1).nextBytes(random);
+        final ByteString body = ByteString.of(random);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertEquals(body, recorded.getBody().readByteString());
+        assertCounted(body.size(), body.size());
+    }
+
+    @Test
+    public void compressDisabled_sendsPlainAndCountsTotals() throws Exception {
+        declareGzip();
+        setCompressEnable(false);
+        final ByteString body = jsonBody(2_000);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+
+        final RecordedRequest recorded = mServer.takeRequest();
+        assertNull(recorded.getHeader("Content-Encoding"));
+        assertCounted(body.size(), body.size());
+    }
+
+    @Test
+    public void rejected_resendsPlainAndStopsCompressing() throws Exception {
+        declareGzip();
+        final ByteString body = jsonBody(2_000);
+
+        final Response response = post(CallService.HEART_BEAT, body, new MockResponse().setResponseCode(415),
+                new MockResponse());
+
+        assertEquals(200, response.code());
+        final RecordedRequest compressed = mServer.takeRequest();
+        final RecordedRequest resent = mServer.takeRequest();
+        assertEquals("gzip", compressed.getHeader("Content-Encoding"));
+        assertNull(resent.getHeader("Content-Encoding"));
+        assertEquals(body, resent.getBody().readByteString());
+        // 压缩请求与原文重发都计入实际发送量
+        assertCounted(body.size(), compressed.getBodySize() + body.size());
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+        assertNull(mServer.takeRequest().getHeader("Content-Encoding"));
+    }
+
+    @Test
+    public void notCompressibleEndpoint_notCountedOrCompressed() throws Exception {
+        declareGzip();
+        final long plainBefore = Endpoint.REFUSE.getRequestBytesPlain();
+
+        post(CallService.REFUSE, jsonBody(2_000), new MockResponse());
+
+        assertNull(mServer.takeRequest().getHeader("Content-Encoding"));
+        assertEquals(plainBefore, Endpoint.REFUSE.getRequestBytesPlain());
+        assertCounted(0, 0);
+    }
+
+    @Test
+    public void report_includesUncompressedTotals() throws Exception {
+        final ByteString body = jsonBody(1_000);
+
+        post(CallService.HEART_BEAT, body, new MockResponse());
+        mServer.takeRequest();
+
+        final long plain = Endpoint.HEART_BEAT.getRequestBytesPlain();
+        final long wire = Endpoint.HEART_BEAT.getRequestBytesWire();
+        assertTrue(NetworkMetrics.getInstance().getRequestBytesReport()
+                .contains(CallService.HEART_BEAT + ": " + plain + " -> " + wire));
+    }
+
+    /**
+     * 服务端通过 Accept-Encoding 声明支持gzip请求体
+     */
+    private void declareGzip() throws Exception {
+        post(CallService.UPDATE_PACKAGE, ByteString.EMPTY, new MockResponse().setHeader("Accept-Encoding", "gzip"));
+        mServer.takeRequest();
+    }
+
+    private Response post(String path, ByteString body, MockResponse... responses) throws IOException {
+        return post(path, RequestBody.create(JSON, body), responses);
+    }
+
+    private Response post(String path, RequestBody body, MockResponse... responses) throws IOException {
+        for (MockResponse response : responses) {
+            mServer.enqueue(response);
+        }
+        try (Response response = mClient.newCall(new Request.Builder()
+                .url(mServer.url("/" + path))
+                .post(body)
+                .build()).execute()) {
+            return response;
+        }
+    }
+
+    private void assertCounted(long plain, long wire) {
+        assertEquals(plain, Endpoint.HEART_BEAT.getRequestBytesPlain() - mPlainBefore);
+        assertEquals(wire, Endpoint.HEART_BEAT.getRequestBytesWire() - mWireBefore);
+    }
+
+    private void setCompressEnable(boolean enable) {
+        TestCallKit.setConfig(new CallConfig.Builder(mServer.url("/").toString(), "token", "{}", false)
+                .setCompressEnable(enable, MIN_BYTES)
+                .build());
+    }
+
+    /**
+     * 重复的Json，压缩率与心跳相近
+     */
+    private static ByteString jsonBody(int size) {
+        final StringBuilder builder = new StringBuilder("[");
+        while (builder.length() < size - 1) {
+            builder.append("{\"roomId\":\"100023456\",\"chatId\":\"200034567\"},");
+        }
+        builder.setLength(size - 1);
+        return ByteString.encodeUtf8(builder.append(']').toString());
+    }
+
+    /**
+     * 长度未知的请求体
+     */
+    private static RequestBody streaming(final ByteString body) {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return JSON;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(body);
+            }
+        };
+    }
+
+    private static ByteString gunzip(ByteString compressed) throws IOException {
+        return Okio.buffer(new GzipSource(new Buffer().write(compressed))).readByteString();
+    }
+}
@@ -0,0 +1,167 @@
+package com.basetools.net.repository;
+
+import com.basetools.TestCallKit;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.HeartBeatResult;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiException;
+import com.basetools.net.core.Endpoint;
+import com.basetools.net.signaling.SignalingClient;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link CallRepository#signaling} 长连接不可用、断开或超时时改走HTTP，业务错误直接返回
+ */
+public class CallRepositorySignalingTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+    private static final long FAST_TIMEOUT_MILLIS = 300;
+
+    private MockWebServer mServer;
+    private final BlockingQueue<WebSocket> mSockets = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> mFrames = new LinkedBlockingQueue<>();
+    private final AtomicInteger mHttpCalls = new AtomicInteger();
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        TestCallKit.setConfig(new CallConfig.Builder(mServer.url("/").toString(), "token", "{}", false)
+                .setDnsCacheEnable(false)
+                .setTimeoutBounds(FAST_TIMEOUT_MILLIS, FAST_TIMEOUT_MILLIS)
+                .setFastMaxTimeout(FAST_TIMEOUT_MILLIS)
+                .build());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        SignalingClient.getInstance().disconnect();
+        mServer.shutdown();
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void notConnected_usesHttp() {
+        final TestObserver<HeartBeatResult> observer = heartbeat().test();
+
+        observer.assertValue(result -> "http".equals(result.getMsg()));
+        assertEquals(1, mHttpCalls.get());
+    }
+
+    @Test
+    public void connected_usesSignaling() throws Exception {
+        final WebSocket socket = connect();
+
+        final TestObserver<HeartBeatResult> observer = heartbeat().test();
+        socket.send("{\"id\":" + nextFrameId() + ",\"code\":1,\"msg\":\"signaling\"}");
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertValue(result -> "signaling".equals(result.getMsg()));
+        assertEquals(0, mHttpCalls.get());
+    }
+
+    @Test
+    public void disconnected_fallsBackToHttp() throws Exception {
+        final WebSocket socket = connect();
+
+        final TestObserver<HeartBeatResult> observer = heartbeat().test();
+        nextFrameId();
+        socket.close(1001, "going away");
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertValue(result -> "http".equals(result.getMsg()));
+        assertEquals(1, mHttpCalls.get());
+    }
+
+    @Test
+    public void timeout_fallsBackToHttp() throws Exception {
+        connect();
+
+        final long start = System.nanoTime();
+        final TestObserver<HeartBeatResult> observer = heartbeat().test();
+        nextFrameId();
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertValue(result -> "http".equals(result.getMsg()));
+        assertEquals(1, mHttpCalls.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= FAST_TIMEOUT_MILLIS / 2);
+    }
+
+    @Test
+    public void businessError_doesNotFallBack() throws Exception {
+        final WebSocket socket = connect();
+
+        final TestObserver<HeartBeatResult> observer = heartbeat().test();
+        socket.send("{\"id\":" + nextFrameId() + ",\"code\":3001,\"msg\":\"no balance\"}");
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertError(e -> e instanceof ApiException && ((ApiException) e).getCode() == 3001);
+        assertEquals(0, mHttpCalls.get());
+    }
+
+    private Observable<HeartBeatResult> heartbeat() {
+        final Observable<HeartBeatResult> http = Observable.fromCallable(() -> {
+            mHttpCalls.incrementAndGet();
+            final HeartBeatResult result = new HeartBeatResult();
+            result.setCode(1);
+            result.setMsg("http");
+            return result;
+        });
+        return CallRepository.signaling(Endpoint.HEART_BEAT, null, new HeartBeatRequest("1", "chat"),
+                HeartBeatResult.class, http);
+    }
+
+    private WebSocket connect() throws InterruptedException {
+        mServer.enqueue(new MockResponse().withWebSocketUpgrade(new WebSocketListener() {
+            @Override
+            public void onOpen(WebSocket webSocket, Response response) {
+                mSockets.add(webSocket);
+            }
+
+            @Override
+            public void onMessage(WebSocket webSocket, String text) {
+                mFrames.add(text);
+            }
+
+            @Override
+            public void onClosing(WebSocket webSocket, int code, String reason) {
+                webSocket.close(code, null);
+            }
+        }));
+        final SignalingClient client = SignalingClient.getInstance();
+        client.connect(mServer.url("/rocket/ws").toString().replaceFirst("^http", "ws"));
+        final WebSocket socket = mSockets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(socket);
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!client.isConnected() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(client.isConnected());
+        return socket;
+    }
+
+    private long nextFrameId() throws InterruptedException {
+        final String frame = mFrames.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(frame);
+        return JsonParser.parseString(frame).getAsJsonObject().get("id").getAsLong();
+    }
+}
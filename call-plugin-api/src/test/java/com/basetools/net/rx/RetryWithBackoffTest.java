@@ -0,0 +1,113 @@
+package com.basetools.net.rx;
+
+import com.basetools.net.core.ApiException;
+import com.basetools.net.core.RetryPolicy;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.plugins.RxJavaPlugins;
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RetryWithBackoff} 重试次数、可重试的异常及退避抖动的范围
+ */
+public class RetryWithBackoffTest {
+
+    private static final long BASE_DELAY_MILLIS = 100;
+    private static final long MAX_DELAY_MILLIS = 1_000;
+
+    private final RetryPolicy mPolicy = new RetryPolicy(5, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS);
+    private TestScheduler mScheduler;
+
+    @Before
+    public void setUp() {
+        mScheduler = new TestScheduler();
+        RxJavaPlugins.setComputationSchedulerHandler(scheduler -> mScheduler);
+    }
+
+    @After
+    public void tearDown() {
+        RxJavaPlugins.reset();
+    }
+
+    @Test
+    public void delayMillis_withinJitterBounds() {
+        for (int retryCount = 1; retryCount <= 40; retryCount++) {
+            final long ceiling = ceiling(retryCount);
+            for (int i = 0; i < 1_000; i++) {
+                final long delay = mPolicy.delayMillis(retryCount);
+                assertTrue("retry " + retryCount + ": " + delay, delay >= 0 && delay < ceiling);
+            }
+        }
+        assertEquals(0, RetryPolicy.NONE.delayMillis(1));
+    }
+
+    @Test
+    public void delayMillis_jittered() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            final long delay = mPolicy.delayMillis(5);
+            min = Math.min(min, delay);
+            max = Math.max(max, delay);
+        }
+
+        // 全抖动：取值分布在整个区间内，而不是集中在上限附近
+        assertTrue(min < MAX_DELAY_MILLIS / 4);
+        assertTrue(max > MAX_DELAY_MILLIS * 3 / 4);
+    }
+
+    @Test
+    public void retriesWithinBackoffCeiling() {
+        final AtomicInteger subscriptions = new AtomicInteger();
+        final TestObserver<Object> observer = failing(subscriptions, new IOException("reset"))
+                .retryWhen(new RetryWithBackoff("test", mPolicy))
+                .test();
+
+        assertEquals(1, subscriptions.get());
+        for (int retryCount = 1; retryCount <= mPolicy.getMaxRetries(); retryCount++) {
+            // 逐毫秒推进，每次重试在退避上限内发生
+            long waited = 0;
+            while (subscriptions.get() == retryCount && waited < ceiling(retryCount)) {
+                mScheduler.advanceTimeBy(1, TimeUnit.MILLISECONDS);
+                waited++;
+            }
+            assertEquals("retry " + retryCount, retryCount + 1, subscriptions.get());
+        }
+        mScheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+        assertEquals(mPolicy.getMaxRetries() + 1, subscriptions.get());
+        observer.assertError(IOException.class);
+    }
+
+    @Test
+    public void businessErrorNotRetried() {
+        final AtomicInteger subscriptions = new AtomicInteger();
+        final TestObserver<Object> observer = failing(subscriptions, new ApiException(1001, "business"))
+                .retryWhen(new RetryWithBackoff("test", mPolicy))
+                .test();
+        mScheduler.advanceTimeBy(1, TimeUnit.HOURS);
+
+        assertEquals(1, subscriptions.get());
+        observer.assertError(ApiException.class);
+    }
+
+    private static Observable<Object> failing(AtomicInteger subscriptions, Throwable error) {
+        return Observable.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Observable.error(error);
+        });
+    }
+
+    private static long ceiling(int retryCount) {
+        return Math.min(MAX_DELAY_MILLIS, BASE_DELAY_MILLIS << Math.min(retryCount - 1, 16));
+    }
+}
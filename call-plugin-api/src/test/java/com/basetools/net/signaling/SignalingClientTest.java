@@ -0,0 +1,289 @@
+package com.basetools.net.signaling;
+
+import com.basetools.TestCallKit;
+import com.basetools.listener.SignalingListener;
+import com.basetools.model.HeartBeatRequest;
+import com.basetools.model.RandomRoomData;
+import com.basetools.net.config.CallConfig;
+import com.basetools.net.core.ApiException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import io.reactivex.android.plugins.RxAndroidPlugins;
+import io.reactivex.observers.TestObserver;
+import io.reactivex.schedulers.Schedulers;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link SignalingClient} 请求响应匹配、业务错误、断开与超时、重连退避及服务端推送
+ */
+public class SignalingClientTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private MockWebServer mServer;
+    private final BlockingQueue<ServerPeer> mSockets = new LinkedBlockingQueue<>();
+    private SignalingClient mClient;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // 主线程回调改为当前线程执行
+        RxAndroidPlugins.setInitMainThreadSchedulerHandler(scheduler -> Schedulers.trampoline());
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new MockWebServer();
+        mServer.start();
+        TestCallKit.setConfig(new CallConfig.Builder(mServer.url("/").toString(), "token", "{}", false)
+                .setDnsCacheEnable(false)
+                .build());
+        mClient = SignalingClient.getInstance();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mClient.disconnect();
+        mClient.setListener(null);
+        mServer.shutdown();
+        TestCallKit.setConfig(null);
+    }
+
+    @Test
+    public void request_matchesResponsesById() throws Exception {
+        final ServerPeer socket = connect();
+
+        final TestObserver<Result> first = mClient.<Result>request("rocket/one/heartBeat", null,
+                new HeartBeatRequest("1", "chat"), Result.class, 5_000).test();
+        final TestObserver<Result> second = mClient.<Result>request("rocket/one/leaveChannel", "key-2",
+                new HeartBeatRequest("2", "chat"), Result.class, 5_000).test();
+
+        final JsonObject firstFrame = socket.nextFrame();
+        final JsonObject secondFrame = socket.nextFrame();
+        assertEquals("rocket/one/heartBeat", firstFrame.get("path").getAsString());
+        assertFalse(firstFrame.has("key"));
+        assertEquals(1, firstFrame.getAsJsonObject("data").get("roomId").getAsInt());
+        assertEquals("rocket/one/leaveChannel", secondFrame.get("path").getAsString());
+        assertEquals("key-2", secondFrame.get("key").getAsString());
+
+        // 倒序响应，按id分别交给对应请求
+        socket.send("{\"id\":" + secondFrame.get("id") + ",\"code\":1,\"msg\":\"second\"}");
+        socket.send("{\"id\":" + firstFrame.get("id") + ",\"code\":1,\"msg\":\"first\"}");
+
+        assertTrue(first.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertTrue(second.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        first.assertComplete();
+        second.assertComplete();
+        assertEquals("first", first.values().get(0).msg);
+        assertEquals("second", second.values().get(0).msg);
+    }
+
+    @Test
+    public void request_businessErrorFailsWithApiException() throws Exception {
+        final ServerPeer socket = connect();
+
+        final TestObserver<Result> observer = mClient.<Result>request("rocket/one/refuse", null,
+                new HeartBeatRequest("3", "chat"), Result.class, 5_000).test();
+        socket.send("{\"id\":" + socket.nextFrame().get("id") + ",\"code\":3001,\"msg\":\"no balance\"}");
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertError(e -> e instanceof ApiException
+                && ((ApiException) e).getCode() == 3001
+                && "no balance".equals(((ApiException) e).getMsg()));
+    }
+
+    @Test
+    public void request_notConnectedFailsWithIOException() {
+        final TestObserver<Result> observer = mClient.<Result>request("rocket/one/heartBeat", null,
+                new HeartBeatRequest("1", "chat"), Result.class, 5_000).test();
+
+        observer.assertError(IOException.class);
+    }
+
+    @Test
+    public void request_disconnectFailsPendingWithIOException() throws Exception {
+        final ServerPeer socket = connect();
+
+        final TestObserver<Result> observer = mClient.<Result>request("rocket/one/heartBeat", null,
+                new HeartBeatRequest("1", "chat"), Result.class, 5_000).test();
+        socket.nextFrame();
+        socket.webSocket.close(1001, "going away");
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertError(IOException.class);
+        assertFalse(mClient.isConnected());
+    }
+
+    @Test
+    public void request_timeoutFailsAndIgnoresLateResponse() throws Exception {
+        final ServerPeer socket = connect();
+
+        final TestObserver<Result> observer = mClient.<Result>request("rocket/one/heartBeat", null,
+                new HeartBeatRequest("1", "chat"), Result.class, 200).test();
+        final JsonObject frame = socket.nextFrame();
+
+        assertTrue(observer.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        observer.assertError(TimeoutException.class);
+
+        // 超时后的响应丢弃，连接保持可用
+        socket.send("{\"id\":" + frame.get("id") + ",\"code\":1}");
+        final TestObserver<Result> next = mClient.<Result>request("rocket/one/heartBeat", null,
+                new HeartBeatRequest("1", "chat"), Result.class, 5_000).test();
+        socket.send("{\"id\":" + socket.nextFrame().get("id") + ",\"code\":1,\"msg\":\"next\"}");
+        assertTrue(next.awaitTerminalEvent(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals("next", next.values().get(0).msg);
+    }
+
+    @Test
+    public void reconnectDelay_doublesUpToMax() {
+        assertEquals(1_000, SignalingClient.reconnectDelayMillis(0));
+        assertEquals(2_000, SignalingClient.reconnectDelayMillis(1));
+        assertEquals(4_000, SignalingClient.reconnectDelayMillis(2));
+        assertEquals(32_000, SignalingClient.reconnectDelayMillis(5));
+        assertEquals(60_000, SignalingClient.reconnectDelayMillis(6));
+        assertEquals(60_000, SignalingClient.reconnectDelayMillis(100));
+    }
+
+    @Test
+    public void disconnect_reconnectsAfterBackoff() throws Exception {
+        final ServerPeer socket = connect();
+        final RecordedRequest handshake = mServer.takeRequest();
+        assertEquals("token", handshake.getHeader("token"));
+        mServer.enqueue(upgrade());
+
+        final long closedAt = System.nanoTime();
+        socket.webSocket.close(1001, "going away");
+        final ServerPeer reconnected = mSockets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        assertNotNull(reconnected);
+        final long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - closedAt);
+        // 按退避间隔重连而不是立即重连，调度器计时精度有偏差，只要求达到间隔的一半
+        assertTrue("reconnected after " + elapsed + "ms", elapsed >= SignalingClient.reconnectDelayMillis(0) / 2);
+        awaitConnected();
+    }
+
+    @Test
+    public void disconnect_stopsReconnecting() throws Exception {
+        connect();
+        mServer.enqueue(upgrade());
+
+        mClient.disconnect();
+
+        assertFalse(mClient.isConnected());
+        assertNull(mSockets.poll(SignalingClient.reconnectDelayMillis(0) * 2, TimeUnit.MILLISECONDS));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void event_dispatchesBalanceAndMatch() throws Exception {
+        final RecordingListener listener = new RecordingListener();
+        mClient.setListener(listener);
+        final ServerPeer socket = connect();
+
+        socket.send("{\"event\":\"balance\",\"data\":{\"diamondNum\":100}}");
+        socket.send("{\"event\":\"unknown\",\"data\":{}}");
+        socket.send("{\"event\":\"match\",\"data\":{\"roomId\":7,\"token\":\"room-token\"}}");
+
+        assertTrue(listener.matched.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(100, listener.diamondNum);
+        assertEquals(7, listener.roomData.getRoomId());
+        assertEquals("room-token", listener.roomData.getToken());
+    }
+
+    private ServerPeer connect() throws InterruptedException {
+        mServer.enqueue(upgrade());
+        mClient.connect(mServer.url("/rocket/ws").toString().replaceFirst("^http", "ws"));
+        final ServerPeer socket = mSockets.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(socket);
+        awaitConnected();
+        return socket;
+    }
+
+    private void awaitConnected() throws InterruptedException {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+        while (!mClient.isConnected() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(mClient.isConnected());
+    }
+
+    private MockResponse upgrade() {
+        return new MockResponse().withWebSocketUpgrade(new ServerPeer());
+    }
+
+    /**
+     * 服务端一侧的连接，记录收到的帧
+     */
+    private final class ServerPeer extends WebSocketListener {
+        final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        volatile WebSocket webSocket;
+
+        @Override
+        public void onOpen(WebSocket webSocket, Response response) {
+            this.webSocket = webSocket;
+            mSockets.add(this);
+        }
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            frames.add(text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+
+        JsonObject nextFrame() throws InterruptedException {
+            final String frame = frames.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertNotNull(frame);
+            return JsonParser.parseString(frame).getAsJsonObject();
+        }
+
+        void send(String text) {
+            assertTrue(webSocket.send(text));
+        }
+    }
+
+    private static final class RecordingListener implements SignalingListener {
+        final CountDownLatch matched = new CountDownLatch(1);
+        volatile int diamondNum;
+        volatile RandomRoomData roomData;
+
+        @Override
+        public void onBalanceChanged(int diamondNum) {
+            this.diamondNum = diamondNum;
+        }
+
+        @Override
+        public void onRandomMatched(RandomRoomData data) {
+            this.roomData = data;
+            matched.countDown();
+        }
+    }
+
+    static final class Result {
+        int code;
+        String msg;
+    }
+}